@@ -0,0 +1,90 @@
+package com.example.mjg.spring.mongo.filtering;
+
+import com.example.mjg.data.MigratableEntity;
+import com.example.mjg.spring.exceptions.InvalidRepositoryMethodException;
+import com.example.mjg.spring.filtering.SpringRepositoryFilterSet;
+import com.example.mjg.spring.repositories.MigratableSpringRepository;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Records matching a Criteria, executed with MongoTemplate
+ * (see MongoRepositoryStore), so that only some fields
+ * can be read (see @MatchWith(fields = ...)).
+ *
+ * Only MongoRepositoryStore can read it: executed as
+ * a repository method, it fails.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+public class MongoCriteriaFilterSet<
+    T extends MigratableEntity,
+    ID extends Serializable
+> extends SpringRepositoryFilterSet<T, ID> {
+    private final Criteria criteria;
+
+    /**
+     * All fields if empty
+     */
+    private final List<String> fields;
+
+    private MongoCriteriaFilterSet(Criteria criteria, List<String> fields) {
+        super(SpringRepositoryFilterSet.findAll());
+        this.criteria = criteria;
+        this.fields = fields;
+    }
+
+    public static <T extends MigratableEntity, ID extends Serializable>
+    MongoCriteriaFilterSet<T, ID> of(Criteria criteria) {
+        return new MongoCriteriaFilterSet<>(criteria, List.of());
+    }
+
+    public static <T extends MigratableEntity, ID extends Serializable>
+    MongoCriteriaFilterSet<T, ID> all() {
+        return of(new Criteria());
+    }
+
+    public static <T extends MigratableEntity, ID extends Serializable>
+    MongoCriteriaFilterSet<T, ID> byIdIn(Collection<ID> ids) {
+        return of(Criteria.where("_id").in(ids));
+    }
+
+    public MongoCriteriaFilterSet<T, ID> withFields(List<String> fields) {
+        return new MongoCriteriaFilterSet<>(criteria, List.copyOf(fields));
+    }
+
+    /**
+     * Rather than silently reading all records
+     * (the repository method of the superclass)
+     */
+    @Override
+    public Slice<T> executeAndReturnPage(MigratableSpringRepository<T, ID> repository, Pageable pageable)
+    throws Exception {
+        throw new InvalidRepositoryMethodException(
+            getClass(),
+            "must be read by a MongoRepositoryStore, not as a repository method"
+        );
+    }
+
+    public Query toQuery(Pageable pageable) {
+        // Sorted, for pages not to overlap
+        Query query = Query.query(criteria)
+            .with(Sort.by(Sort.Direction.ASC, "_id"))
+            .with(pageable);
+        for (String field : fields) {
+            query.fields().include(field);
+        }
+        return query;
+    }
+}
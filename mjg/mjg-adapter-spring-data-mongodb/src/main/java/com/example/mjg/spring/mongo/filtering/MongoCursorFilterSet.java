@@ -0,0 +1,54 @@
+package com.example.mjg.spring.mongo.filtering;
+
+import com.example.mjg.data.MigratableEntity;
+import com.example.mjg.spring.filtering.SpringRepositoryFilterSet;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * All records with ID greater than lastId (all records if
+ * lastId is null), in ascending ID order, read from a single
+ * server-side cursor instead of page by page.
+ *
+ * Executed as a repository method, it falls back to keyset
+ * pagination.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+public class MongoCursorFilterSet<
+    T extends MigratableEntity,
+    ID extends Serializable
+> extends SpringRepositoryFilterSet<T, ID> {
+    private final ID lastId;
+
+    public MongoCursorFilterSet(ID lastId) {
+        super(
+            lastId == null
+                ? SpringRepositoryFilterSet.findAllOrderByIdAsc()
+                : SpringRepositoryFilterSet.findAllByIdGreaterThan(lastId)
+        );
+        this.lastId = lastId;
+    }
+
+    /**
+     * @param batchSize number of documents per round trip
+     */
+    public Query toQuery(int batchSize) {
+        Query query = lastId == null
+            ? new Query()
+            : Query.query(Criteria.where("_id").gt(lastId));
+        return query
+            .with(Sort.by(Sort.Direction.ASC, "_id"))
+            .cursorBatchSize(batchSize)
+            // Records may take a while to migrate. Closed by
+            // MongoCursorDataPage.close() if the scan is abandoned
+            .noCursorTimeout();
+    }
+}
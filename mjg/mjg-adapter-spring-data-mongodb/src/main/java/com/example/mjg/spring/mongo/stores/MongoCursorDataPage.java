@@ -0,0 +1,128 @@
+package com.example.mjg.spring.mongo.stores;
+
+import com.example.mjg.data.DataPage;
+import com.example.mjg.data.DataStore;
+import com.example.mjg.data.MigratableEntity;
+import com.example.mjg.spring.filtering.SpringRepositoryFilterSet;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * A page read from a server-side cursor, which
+ * the next page is read from, if still open.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class MongoCursorDataPage<T extends MigratableEntity, ID extends Serializable>
+implements DataPage<T, ID, SpringRepositoryFilterSet<T, ID>> {
+    private final DataStore<T, ID, SpringRepositoryFilterSet<T, ID>> dataStore;
+
+    private final SpringRepositoryFilterSet<T, ID> filterSet;
+
+    private final Integer pageNumber;
+
+    private final List<T> records;
+
+    private final Integer pageSize;
+
+    @Getter(AccessLevel.NONE)
+    private final Cursor<T> cursor;
+
+    @Override
+    public boolean hasNext() {
+        return cursor.isOpen();
+    }
+
+    boolean isCursorOpen() {
+        return cursor.isOpen();
+    }
+
+    /**
+     * Closes the cursor shared with the previous and next pages,
+     * e.g. if the scan is abandoned before its end
+     */
+    @Override
+    public void close() {
+        cursor.close();
+    }
+
+    static <T extends MigratableEntity, ID extends Serializable> MongoCursorDataPage<T, ID> read(
+        DataStore<T, ID, SpringRepositoryFilterSet<T, ID>> dataStore,
+        SpringRepositoryFilterSet<T, ID> filterSet,
+        Stream<T> stream,
+        int pageSize
+    ) {
+        Cursor<T> cursor = new Cursor<>(stream);
+        return new MongoCursorDataPage<>(dataStore, filterSet, 0, cursor.next(pageSize), pageSize, cursor);
+    }
+
+    MongoCursorDataPage<T, ID> readNext() {
+        return new MongoCursorDataPage<>(dataStore, filterSet, pageNumber + 1, cursor.next(pageSize), pageSize, cursor);
+    }
+
+    /**
+     * Closed once exhausted, on the first error, after which
+     * it is reopened (see MongoRepositoryStore), or when the
+     * scan is abandoned.
+     *
+     * Reads hold a lock rather than a monitor, so that
+     * virtual threads waiting for the server are not pinned.
+     */
+    private static class Cursor<T> {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Stream<T> stream;
+
+        private final Iterator<T> iterator;
+
+        private volatile boolean open = true;
+
+        private Cursor(Stream<T> stream) {
+            this.stream = stream;
+            this.iterator = stream.iterator();
+        }
+
+        private boolean isOpen() {
+            return open;
+        }
+
+        private List<T> next(int n) {
+            lock.lock();
+            try {
+                List<T> records = new ArrayList<>(n);
+                while (records.size() < n && iterator.hasNext()) {
+                    records.add(iterator.next());
+                }
+                if (!iterator.hasNext()) {
+                    close();
+                }
+                return records;
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void close() {
+            lock.lock();
+            try {
+                if (!open) return;
+                open = false;
+                stream.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
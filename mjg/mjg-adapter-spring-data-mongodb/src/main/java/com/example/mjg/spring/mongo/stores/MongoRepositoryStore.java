@@ -1,18 +1,45 @@
 package com.example.mjg.spring.mongo.stores;
 
+import com.example.mjg.data.DataPage;
 import com.example.mjg.data.MigratableEntity;
+import com.example.mjg.data.SimpleDataPage;
 import com.example.mjg.exceptions.DuplicateDataException;
+import com.example.mjg.spring.filtering.SpringRepositoryFilterSet;
+import com.example.mjg.spring.mongo.filtering.MongoCriteriaFilterSet;
+import com.example.mjg.spring.mongo.filtering.MongoCursorFilterSet;
 import com.example.mjg.spring.stores.SpringRepositoryStore;
 import com.mongodb.DuplicateKeyException;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
 
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.core.GenericTypeResolver;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
 import org.springframework.data.mongodb.MongoTransactionManager;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
 import org.springframework.transaction.support.TransactionTemplate;
 
 @Slf4j
@@ -35,8 +62,157 @@ extends SpringRepositoryStore<T, ID>
 
 
 
+    public static enum SaveMode {
+        /**
+         * Through the repository, in a transaction if
+         * there is a transaction manager
+         */
+        REPOSITORY,
+
+        /**
+         * One unordered bulk write per batch. Way fewer round
+         * trips, but not atomic: on failure, some records may
+         * have been saved (saving them again is harmless, see
+         * bulkSave()).
+         */
+        BULK
+    }
+
+    /**
+     * Override to save batches with bulk writes
+     */
+    public SaveMode getSaveMode() {
+        return SaveMode.REPOSITORY;
+    }
+
+    /**
+     * Override to set the write concern of bulk writes,
+     * null for the collection's default.
+     */
+    public WriteConcern getBulkWriteConcern() {
+        return null;
+    }
+
+    /**
+     * Override to return true to scan all records from a single
+     * server-side cursor, ordered by ID, instead of page by page.
+     * Scans can be resumed after the last migrated ID.
+     *
+     * Requires getMigratableId() of the entity to be its _id.
+     */
+    protected boolean isCursorScanEnabled() {
+        return false;
+    }
+
+    private volatile Class<T> entityClass = null;
+
+    /**
+     * Resolved from type arguments by default
+     */
+    @SuppressWarnings("unchecked")
+    protected Class<T> getEntityClass() {
+        if (entityClass == null) {
+            entityClass = (Class<T>) GenericTypeResolver.resolveTypeArguments(getClass(), MongoRepositoryStore.class)[0];
+        }
+        return entityClass;
+    }
+
     private volatile TransactionTemplate txTemplate = null;
 
+    @Override
+    protected SpringRepositoryFilterSet<T, ID> doMatchAll() {
+        if (isCursorScanEnabled()) {
+            return new MongoCursorFilterSet<>(null);
+        }
+        return super.doMatchAll();
+    }
+
+    @Override
+    protected boolean doSupportsKeysetPagination() {
+        return isCursorScanEnabled() || super.doSupportsKeysetPagination();
+    }
+
+    @Override
+    protected SpringRepositoryFilterSet<T, ID> doMatchAllAfterId(ID lastId) {
+        if (isCursorScanEnabled()) {
+            return new MongoCursorFilterSet<>(lastId);
+        }
+        return super.doMatchAllAfterId(lastId);
+    }
+
+    /**
+     * Supported for MongoCriteriaFilterSet, and matchAll()
+     * (unless scanned by keyset or cursor)
+     */
+    @Override
+    protected SpringRepositoryFilterSet<T, ID> doProject(SpringRepositoryFilterSet<T, ID> filterSet, List<String> fields) {
+        if (filterSet instanceof MongoCriteriaFilterSet<T, ID> criteriaFilterSet) {
+            return criteriaFilterSet.withFields(fields);
+        }
+        if (filterSet.equals(SpringRepositoryFilterSet.findAll())) {
+            return MongoCriteriaFilterSet.<T, ID>all().withFields(fields);
+        }
+        return filterSet;
+    }
+
+    @Override
+    protected DataPage<T, ID, SpringRepositoryFilterSet<T, ID>>
+    doGetFirstPageOfRecords(SpringRepositoryFilterSet<T, ID> filterSet, int pageSize) throws Exception {
+        if (filterSet instanceof MongoCriteriaFilterSet<T, ID> criteriaFilterSet) {
+            return readCriteriaPage(criteriaFilterSet, PageRequest.of(0, pageSize));
+        }
+        if (filterSet instanceof MongoCursorFilterSet<T, ID> cursorFilterSet) {
+            return MongoCursorDataPage.read(
+                this,
+                cursorFilterSet,
+                getMongoTemplate().stream(cursorFilterSet.toQuery(pageSize), getEntityClass()),
+                pageSize
+            );
+        }
+        return super.doGetFirstPageOfRecords(filterSet, pageSize);
+    }
+
+    @Override
+    protected DataPage<T, ID, SpringRepositoryFilterSet<T, ID>>
+    doGetNextPageOfRecords(DataPage<T, ID, SpringRepositoryFilterSet<T, ID>> previousPage) throws Exception {
+        if (previousPage.getFilterSet() instanceof MongoCriteriaFilterSet<T, ID> criteriaFilterSet) {
+            return readCriteriaPage(
+                criteriaFilterSet,
+                PageRequest.of(previousPage.getPageNumber() + 1, previousPage.getPageSize())
+            );
+        }
+        if (previousPage instanceof MongoCursorDataPage<T, ID> cursorPage) {
+            if (cursorPage.isCursorOpen()) {
+                return cursorPage.readNext();
+            }
+
+            // The cursor failed (e.g. on a network error):
+            // reopen it after the last record read
+            List<T> previousRecords = cursorPage.getRecords();
+            @SuppressWarnings("unchecked")
+            ID lastId = previousRecords.isEmpty()
+                ? ((MongoCursorFilterSet<T, ID>) cursorPage.getFilterSet()).getLastId()
+                : (ID) previousRecords.get(previousRecords.size() - 1).getMigratableId();
+            return doGetFirstPageOfRecords(new MongoCursorFilterSet<>(lastId), cursorPage.getPageSize());
+        }
+        return super.doGetNextPageOfRecords(previousPage);
+    }
+
+    /**
+     * Without count query, like a Slice
+     */
+    private DataPage<T, ID, SpringRepositoryFilterSet<T, ID>>
+    readCriteriaPage(MongoCriteriaFilterSet<T, ID> filterSet, PageRequest pageRequest) {
+        List<T> records = getMongoTemplate().find(filterSet.toQuery(pageRequest), getEntityClass());
+        return new SimpleDataPage<>(
+            this,
+            filterSet,
+            pageRequest.getPageNumber(),
+            records,
+            pageRequest.getPageSize()
+        );
+    }
+
     /**
      * MongoDB transactions require special logic
      */
@@ -47,7 +223,9 @@ extends SpringRepositoryStore<T, ID>
         MongoTransactionManager txManager = getTxManager();
 
         try {
-            if (txManager != null) {
+            if (getSaveMode() == SaveMode.BULK) {
+                bulkSave(records);
+            } else if (txManager != null) {
                 if (txTemplate == null) {
                     txTemplate = new TransactionTemplate(txManager);
                 }
@@ -69,7 +247,127 @@ extends SpringRepositoryStore<T, ID>
             }
         } catch (DataIntegrityViolationException | DuplicateKeyException e) {
             throw new DuplicateDataException(e);
+        } catch (MongoBulkWriteException e) {
+            if (e.getWriteErrors().stream().anyMatch(error -> error.getCategory() == ErrorCategory.DUPLICATE_KEY)) {
+                throw new DuplicateDataException(e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Bulk writes upsert by ID (see bulkSave()), and repository
+     * saves are atomic if there is a transaction manager
+     */
+    @Override
+    protected boolean doIsSaveAllAtomicOrIdempotent() {
+        return getSaveMode() == SaveMode.BULK || getTxManager() != null;
+    }
+
+    /**
+     * In BULK save mode, outcome of each record is known
+     * exactly, and records failing do not prevent the others
+     * from being saved, so no transaction is needed.
+     *
+     * Otherwise, saved through the repository as usual
+     * (transaction, callbacks, auditing, versioning).
+     */
+    @Override
+    protected Map<Integer, Exception> doSaveAllReportingFailures(List<T> records) throws Exception {
+        if (records.isEmpty()) return Map.of();
+        if (getSaveMode() != SaveMode.BULK) {
+            return super.doSaveAllReportingFailures(records);
+        }
+
+        try {
+            bulkSave(records);
+            return Map.of();
+        } catch (MongoBulkWriteException e) {
+            if (e.getWriteConcernError() != null || e.getWriteErrors().isEmpty()) {
+                // Outcome unknown
+                throw e;
+            }
+            Map<Integer, Exception> failuresByIndex = new HashMap<>();
+            for (BulkWriteError error : e.getWriteErrors()) {
+                failuresByIndex.put(
+                    error.getIndex(),
+                    error.getCategory() == ErrorCategory.DUPLICATE_KEY
+                        ? new DuplicateDataException(error.getMessage())
+                        : new Exception("Code " + error.getCode() + ": " + error.getMessage())
+                );
+            }
+            return failuresByIndex;
+        }
+    }
+
+    /**
+     * One unordered bulk write, in one round trip (per
+     * driver batch): inserts if all records are new,
+     * otherwise upserts by ID.
+     *
+     * IDs of new records are generated here (if ObjectId
+     * or String), so that saving them again (e.g. on retry)
+     * is idempotent.
+     *
+     * NOTE: Lifecycle events and callbacks of
+     * Spring Data (e.g. auditing) are not triggered.
+     */
+    private void bulkSave(List<T> records) {
+        MongoTemplate mongoTemplate = getMongoTemplate();
+        MongoConverter converter = mongoTemplate.getConverter();
+
+        boolean allNew = true;
+        List<Document> documents = new ArrayList<>(records.size());
+        for (T record : records) {
+            if (assignIdIfAbsent(converter, record)) {
+                allNew = false;
+            }
+            Document document = new Document();
+            converter.write(record, document);
+            documents.add(document);
+        }
+
+        List<WriteModel<Document>> writeModels = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            Object id = document.get("_id");
+            if (allNew || id == null) {
+                writeModels.add(new InsertOneModel<>(document));
+            } else {
+                writeModels.add(new ReplaceOneModel<>(
+                    Filters.eq("_id", id),
+                    document,
+                    new ReplaceOptions().upsert(true)
+                ));
+            }
+        }
+
+        MongoCollection<Document> collection = mongoTemplate.getCollection(
+            mongoTemplate.getCollectionName(records.get(0).getClass())
+        );
+        WriteConcern writeConcern = getBulkWriteConcern();
+        if (writeConcern != null) {
+            collection = collection.withWriteConcern(writeConcern);
+        }
+        collection.bulkWrite(writeModels, new BulkWriteOptions().ordered(false));
+    }
+
+    /**
+     * @return whether record already had an ID
+     */
+    private static boolean assignIdIfAbsent(MongoConverter converter, Object record) {
+        MongoPersistentEntity<?> entity = converter.getMappingContext().getRequiredPersistentEntity(record.getClass());
+        MongoPersistentProperty idProperty = entity.getIdProperty();
+        if (idProperty == null) return false;
+
+        PersistentPropertyAccessor<?> accessor = entity.getPropertyAccessor(record);
+        if (accessor.getProperty(idProperty) != null) return true;
+
+        if (ObjectId.class.equals(idProperty.getType())) {
+            accessor.setProperty(idProperty, new ObjectId());
+        } else if (String.class.equals(idProperty.getType())) {
+            accessor.setProperty(idProperty, new ObjectId().toHexString());
         }
+        return false;
     }
 
     @Override
@@ -10,6 +10,10 @@ extends BaseMigrationException {
         super("Invalid repository method: " + method + "\nDetails: " + details);
     }
 
+    public InvalidRepositoryMethodException(Class<?> filterSetClass, String details) {
+        super("Filter set not executable as a repository method: " + filterSetClass.getCanonicalName() + "\nDetails: " + details);
+    }
+
     public InvalidRepositoryMethodException(Method method, Throwable cause) {
         super("Invalid repository method: " + method, cause);
     }
@@ -13,8 +13,9 @@ import com.example.mjg.utils.functional.interfaces.*;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
-import org.springframework.data.domain.Page;
+import lombok.Getter;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
@@ -33,20 +34,50 @@ public class SpringRepositoryFilterSet<
 
     private final List<Object> callbackArgs;
 
+    /**
+     * Whether the next page of this filter set should be
+     * fetched by "ID > last ID seen" rather than by offset.
+     * Set by the keyset filter sets below only.
+     */
+    @Getter
+    private final boolean keysetPaginated;
+
+    protected SpringRepositoryFilterSet(Method repositoryMethod, List<Object> callbackArgs) {
+        this(repositoryMethod, callbackArgs, false);
+    }
+
+    /**
+     * For subclasses changing how records
+     * of an existing filter set are read
+     */
+    protected SpringRepositoryFilterSet(SpringRepositoryFilterSet<T, ID> filterSet) {
+        this(filterSet.repositoryMethod, filterSet.callbackArgs, filterSet.keysetPaginated);
+    }
+
+    private SpringRepositoryFilterSet<T, ID> asKeysetPaginated() {
+        return new SpringRepositoryFilterSet<>(repositoryMethod, callbackArgs, true);
+    }
+
     public DataPage<T, ID, SpringRepositoryFilterSet<T, ID>>
     executeAndReturnDataPage(SpringRepositoryStore<T, ID> store, Pageable pageable)
     throws Exception {
-        Page<T> page = executeAndReturnPage(store.getRepository(), pageable);
+        Slice<T> slice = executeAndReturnPage(store.getRepository(), pageable);
 
         return new SimpleDataPage<>(
             store,
             this,
             pageable.getPageNumber(),
-            page.getContent()
+            slice.getContent(),
+            pageable.getPageSize(),
+            slice.hasNext()
         );
     }
 
-    public Page<T> executeAndReturnPage(MigratableSpringRepository<T, ID> repository, Pageable pageable)
+    /**
+     * Repository methods may return a Page<T> or, to skip
+     * the count query, a Slice<T>.
+     */
+    public Slice<T> executeAndReturnPage(MigratableSpringRepository<T, ID> repository, Pageable pageable)
     throws Exception {
         repositoryMethod.setAccessible(true);
         Object returnValue;
@@ -58,13 +89,13 @@ public class SpringRepositoryFilterSet<
             throw new InvalidRepositoryMethodException(repositoryMethod, e);
         }
 
-        if (returnValue instanceof Page) {
+        if (returnValue instanceof Slice) {
             @SuppressWarnings("unchecked")
-            Page<T> realPage = (Page<T>) returnValue;
-            return realPage;
+            Slice<T> realSlice = (Slice<T>) returnValue;
+            return realSlice;
         }
 
-        throw new InvalidRepositoryMethodException(repositoryMethod, "method not returning an instance of Page<T>");
+        throw new InvalidRepositoryMethodException(repositoryMethod, "method not returning an instance of Page<T> or Slice<T>");
     }
 
     public static <
@@ -73,7 +104,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>
     >
     SpringRepositoryFilterSet<T, ID> findAll() {
-        return SpringRepositoryFilterSet.of(REPO::findAll);
+        return SpringRepositoryFilterSet.of(REPO::findAllBy);
     }
 
     public static <
@@ -85,6 +116,25 @@ public class SpringRepositoryFilterSet<
         return SpringRepositoryFilterSet.of(REPO::findAllByIdInOrderByIdAsc, ids);
     }
 
+    public static <
+        T extends MigratableEntity,
+        ID extends Serializable,
+        REPO extends MigratableSpringRepository<T, ID>
+    >
+    SpringRepositoryFilterSet<T, ID> findAllOrderByIdAsc() {
+        return SpringRepositoryFilterSet.<T, ID, REPO>of(REPO::findAllByOrderByIdAsc).asKeysetPaginated();
+    }
+
+    public static <
+        T extends MigratableEntity,
+        ID extends Serializable,
+        REPO extends MigratableSpringRepository<T, ID>
+    >
+    SpringRepositoryFilterSet<T, ID> findAllByIdGreaterThan(ID lastId) {
+        return SpringRepositoryFilterSet.<T, ID, REPO, ID>of(REPO::findAllByIdGreaterThanOrderByIdAsc, lastId).asKeysetPaginated();
+    }
+
+
 
     ////////////////////////////////////////////////////////
     /// OVERLOADS FOR SEVERAL FUNCTION PARAMETER ARITIES ///
@@ -95,7 +145,7 @@ public class SpringRepositoryFilterSet<
         ID extends Serializable,
         REPO extends MigratableSpringRepository<T, ID>
     >
-    SpringRepositoryFilterSet<T, ID> of(Function2<REPO, Pageable, Page<T>> lambda) {
+    SpringRepositoryFilterSet<T, ID> of(Function2<REPO, Pageable, ? extends Slice<T>> lambda) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
             List.of()
@@ -108,7 +158,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A
     >
-    SpringRepositoryFilterSet<T, ID> of(Function3<REPO, A, Pageable, Page<T>> lambda, A a) {
+    SpringRepositoryFilterSet<T, ID> of(Function3<REPO, A, Pageable, ? extends Slice<T>> lambda, A a) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
             List.of(a)
@@ -121,7 +171,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A, B
     >
-    SpringRepositoryFilterSet<T, ID> of(Function4<REPO, A, B, Pageable, Page<T>> lambda, A a, B b) {
+    SpringRepositoryFilterSet<T, ID> of(Function4<REPO, A, B, Pageable, ? extends Slice<T>> lambda, A a, B b) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
             List.of(a, b)
@@ -134,7 +184,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A, B, C
     >
-    SpringRepositoryFilterSet<T, ID> of(Function5<REPO, A, B, C, Pageable, Page<T>> lambda, A a, B b, C c) {
+    SpringRepositoryFilterSet<T, ID> of(Function5<REPO, A, B, C, Pageable, ? extends Slice<T>> lambda, A a, B b, C c) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
             List.of(a, b, c)
@@ -147,7 +197,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A, B, C, D
     >
-    SpringRepositoryFilterSet<T, ID> of(Function6<REPO, A, B, C, D, Pageable, Page<T>> lambda, A a, B b, C c, D d) {
+    SpringRepositoryFilterSet<T, ID> of(Function6<REPO, A, B, C, D, Pageable, ? extends Slice<T>> lambda, A a, B b, C c, D d) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
             List.of(a, b, c, d)
@@ -160,7 +210,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A, B, C, D, E
     >
-    SpringRepositoryFilterSet<T, ID> of(Function7<REPO, A, B, C, D, E, Pageable, Page<T>> lambda, A a, B b, C c, D d, E e) {
+    SpringRepositoryFilterSet<T, ID> of(Function7<REPO, A, B, C, D, E, Pageable, ? extends Slice<T>> lambda, A a, B b, C c, D d, E e) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
             List.of(a, b, c, d, e)
@@ -173,7 +223,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A, B, C, D, E, F
     >
-    SpringRepositoryFilterSet<T, ID> of(Function8<REPO, A, B, C, D, E, F, Pageable, Page<T>> lambda,
+    SpringRepositoryFilterSet<T, ID> of(Function8<REPO, A, B, C, D, E, F, Pageable, ? extends Slice<T>> lambda,
                                         A a, B b, C c, D d, E e, F f) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
@@ -187,7 +237,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A, B, C, D, E, F, G
     >
-    SpringRepositoryFilterSet<T, ID> of(Function9<REPO, A, B, C, D, E, F, G, Pageable, Page<T>> lambda,
+    SpringRepositoryFilterSet<T, ID> of(Function9<REPO, A, B, C, D, E, F, G, Pageable, ? extends Slice<T>> lambda,
                                         A a, B b, C c, D d, E e, F f, G g) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
@@ -201,7 +251,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A, B, C, D, E, F, G, H
     >
-    SpringRepositoryFilterSet<T, ID> of(Function10<REPO, A, B, C, D, E, F, G, H, Pageable, Page<T>> lambda,
+    SpringRepositoryFilterSet<T, ID> of(Function10<REPO, A, B, C, D, E, F, G, H, Pageable, ? extends Slice<T>> lambda,
                                         A a, B b, C c, D d, E e, F f, G g, H h) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
@@ -215,7 +265,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A, B, C, D, E, F, G, H, I
     >
-    SpringRepositoryFilterSet<T, ID> of(Function11<REPO, A, B, C, D, E, F, G, H, I, Pageable, Page<T>> lambda,
+    SpringRepositoryFilterSet<T, ID> of(Function11<REPO, A, B, C, D, E, F, G, H, I, Pageable, ? extends Slice<T>> lambda,
                                         A a, B b, C c, D d, E e, F f, G g, H h, I i) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
@@ -229,7 +279,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A, B, C, D, E, F, G, H, I, J
     >
-    SpringRepositoryFilterSet<T, ID> of(Function12<REPO, A, B, C, D, E, F, G, H, I, J, Pageable, Page<T>> lambda,
+    SpringRepositoryFilterSet<T, ID> of(Function12<REPO, A, B, C, D, E, F, G, H, I, J, Pageable, ? extends Slice<T>> lambda,
                                         A a, B b, C c, D d, E e, F f, G g, H h, I i, J j) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
@@ -243,7 +293,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A, B, C, D, E, F, G, H, I, J, K
     >
-    SpringRepositoryFilterSet<T, ID> of(Function13<REPO, A, B, C, D, E, F, G, H, I, J, K, Pageable, Page<T>> lambda,
+    SpringRepositoryFilterSet<T, ID> of(Function13<REPO, A, B, C, D, E, F, G, H, I, J, K, Pageable, ? extends Slice<T>> lambda,
                                         A a, B b, C c, D d, E e, F f, G g, H h, I i, J j, K k) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
@@ -257,7 +307,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A, B, C, D, E, F, G, H, I, J, K, L
     >
-    SpringRepositoryFilterSet<T, ID> of(Function14<REPO, A, B, C, D, E, F, G, H, I, J, K, L, Pageable, Page<T>> lambda,
+    SpringRepositoryFilterSet<T, ID> of(Function14<REPO, A, B, C, D, E, F, G, H, I, J, K, L, Pageable, ? extends Slice<T>> lambda,
                                         A a, B b, C c, D d, E e, F f, G g, H h, I i, J j, K k, L l) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
@@ -271,7 +321,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A, B, C, D, E, F, G, H, I, J, K, L, M
     >
-    SpringRepositoryFilterSet<T, ID> of(Function15<REPO, A, B, C, D, E, F, G, H, I, J, K, L, M, Pageable, Page<T>> lambda,
+    SpringRepositoryFilterSet<T, ID> of(Function15<REPO, A, B, C, D, E, F, G, H, I, J, K, L, M, Pageable, ? extends Slice<T>> lambda,
                                         A a, B b, C c, D d, E e, F f, G g, H h, I i, J j, K k, L l, M m) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
@@ -285,7 +335,7 @@ public class SpringRepositoryFilterSet<
         REPO extends MigratableSpringRepository<T, ID>,
         A, B, C, D, E, F, G, H, I, J, K, L, M, N
     >
-    SpringRepositoryFilterSet<T, ID> of(Function16<REPO, A, B, C, D, E, F, G, H, I, J, K, L, M, N, Pageable, Page<T>> lambda,
+    SpringRepositoryFilterSet<T, ID> of(Function16<REPO, A, B, C, D, E, F, G, H, I, J, K, L, M, N, Pageable, ? extends Slice<T>> lambda,
                                         A a, B b, C c, D d, E e, F f, G g, H h, I i, J j, K k, L l, M m, N n) {
         return new SpringRepositoryFilterSet<>(
             ReflectionUtils.extractMemberMethodFromLambda(lambda),
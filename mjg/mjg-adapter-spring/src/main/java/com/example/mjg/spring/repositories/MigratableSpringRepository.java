@@ -3,6 +3,7 @@ package com.example.mjg.spring.repositories;
 import com.example.mjg.data.MigratableEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.io.Serializable;
 import java.util.Set;
@@ -10,7 +11,18 @@ import java.util.Set;
 public interface MigratableSpringRepository<T extends MigratableEntity, ID extends Serializable> {
     Page<T> findAll(Pageable pageable);
 
-    Page<T> findAllByIdInOrderByIdAsc(Set<ID> ids, Pageable pageable);
+    /**
+     * Same as findAll(), but as a Slice, without the count query.
+     */
+    Slice<T> findAllBy(Pageable pageable);
+
+    Slice<T> findAllByIdInOrderByIdAsc(Set<ID> ids, Pageable pageable);
+
+    // For keyset pagination
+
+    Slice<T> findAllByOrderByIdAsc(Pageable pageable);
+
+    Slice<T> findAllByIdGreaterThanOrderByIdAsc(ID id, Pageable pageable);
 
     <S extends T> S save(S entity);
 
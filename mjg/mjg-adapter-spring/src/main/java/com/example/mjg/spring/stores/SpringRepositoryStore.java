@@ -3,12 +3,14 @@ package com.example.mjg.spring.stores;
 import com.example.mjg.data.DataPage;
 import com.example.mjg.data.DataStore;
 import com.example.mjg.data.MigratableEntity;
+import com.example.mjg.data.SimpleDataPage;
 import com.example.mjg.exceptions.DuplicateDataException;
 import com.example.mjg.spring.filtering.SpringRepositoryFilterSet;
 import com.example.mjg.spring.repositories.MigratableSpringRepository;
 
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
 import java.io.Serializable;
 import java.util.List;
@@ -22,6 +24,18 @@ extends DataStore<T, ID, SpringRepositoryFilterSet<T, ID>>
 {
     public abstract MigratableSpringRepository<T, ID> getRepository();
 
+    /**
+     * Override to return true to scan all records with keyset
+     * (seek) pagination, i.e. "ID > last ID seen" ordered by ID,
+     * instead of skip/limit, whose cost grows with the offset.
+     *
+     * Requires getMigratableId() of the entity to be its
+     * repository ID.
+     */
+    protected boolean isKeysetPaginationEnabled() {
+        return false;
+    }
+
 
     @Override
     protected DataPage<T, ID, SpringRepositoryFilterSet<T, ID>>
@@ -34,15 +48,53 @@ extends DataStore<T, ID, SpringRepositoryFilterSet<T, ID>>
     doGetNextPageOfRecords(DataPage<T, ID, SpringRepositoryFilterSet<T, ID>> previousPage) throws Exception {
         var filterSet = previousPage.getFilterSet();
         var pageNumber = previousPage.getPageNumber() + 1;
-        var pageSize = previousPage.getSize();
+        var pageSize = previousPage.getPageSize();
+
+        if (filterSet.isKeysetPaginated()) {
+            List<T> previousRecords = previousPage.getRecords();
+            if (previousRecords.isEmpty()) {
+                return new SimpleDataPage<>(this, filterSet, pageNumber, List.of(), pageSize);
+            }
+
+            @SuppressWarnings("unchecked")
+            ID lastId = (ID) previousRecords.get(previousRecords.size() - 1).getMigratableId();
+            SpringRepositoryFilterSet<T, ID> nextFilterSet = SpringRepositoryFilterSet.findAllByIdGreaterThan(lastId);
+            Slice<T> slice = nextFilterSet.executeAndReturnPage(getRepository(), PageRequest.of(0, pageSize));
+
+            return new SimpleDataPage<>(
+                this,
+                nextFilterSet,
+                pageNumber,
+                slice.getContent(),
+                pageSize,
+                slice.hasNext()
+            );
+        }
+
         return filterSet.executeAndReturnDataPage(this, PageRequest.of(pageNumber, pageSize));
     }
 
     @Override
     protected SpringRepositoryFilterSet<T, ID> doMatchAll() {
+        if (isKeysetPaginationEnabled()) {
+            return SpringRepositoryFilterSet.findAllOrderByIdAsc();
+        }
         return SpringRepositoryFilterSet.findAll();
     }
 
+    @Override
+    protected boolean doSupportsKeysetPagination() {
+        return isKeysetPaginationEnabled();
+    }
+
+    @Override
+    protected SpringRepositoryFilterSet<T, ID> doMatchAllAfterId(ID lastId) {
+        if (lastId == null) {
+            return SpringRepositoryFilterSet.findAllOrderByIdAsc();
+        }
+        return SpringRepositoryFilterSet.findAllByIdGreaterThan(lastId);
+    }
+
     @Override
     protected SpringRepositoryFilterSet<T, ID> doMatchByIdIn(Set<ID> ids) {
         return SpringRepositoryFilterSet.findAllByIdIn(ids);
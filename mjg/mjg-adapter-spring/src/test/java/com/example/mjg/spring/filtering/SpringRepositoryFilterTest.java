@@ -154,4 +154,29 @@ public class SpringRepositoryFilterTest {
         assertEquals(4, map.get(filterSet4a));
         assertEquals(4, map.get(filterSet4b));
     }
+
+    @Test
+    public void testKeysetPaginated() {
+        SpringRepositoryFilterSet<MyEntity, Integer> filterSet1 =
+            SpringRepositoryFilterSet.findAllOrderByIdAsc();
+
+        SpringRepositoryFilterSet<MyEntity, Integer> filterSet2a =
+            SpringRepositoryFilterSet.findAllByIdGreaterThan(1);
+        SpringRepositoryFilterSet<MyEntity, Integer> filterSet2b =
+            SpringRepositoryFilterSet.findAllByIdGreaterThan(1);
+
+        SpringRepositoryFilterSet<MyEntity, Integer> unrelatedFilterSet1 =
+            SpringRepositoryFilterSet.findAll();
+        SpringRepositoryFilterSet<MyEntity, Integer> unrelatedFilterSet2 =
+            SpringRepositoryFilterSet.findAllByIdIn(Set.of(1));
+
+        assertTrue(filterSet1.isKeysetPaginated());
+        assertTrue(filterSet2a.isKeysetPaginated());
+        assertFalse(unrelatedFilterSet1.isKeysetPaginated());
+        assertFalse(unrelatedFilterSet2.isKeysetPaginated());
+
+        assertEquals(filterSet2a, filterSet2b);
+        assertNotEquals(filterSet2a, SpringRepositoryFilterSet.findAllByIdGreaterThan(2));
+        assertNotEquals(filterSet1, unrelatedFilterSet1);
+    }
 }
@@ -16,4 +16,13 @@ public @interface ForEachRecordFrom {
     int batchSize() default 512;
 
     ErrorResolution inCaseOfError() default @ErrorResolution;
+
+    /**
+     * When positive, reading, matching/reducing and
+     * transforming/saving run as concurrent stages,
+     * with at most this many pages buffered between
+     * two consecutive stages. 0 means run page after
+     * page on a single thread.
+     */
+    int pipelineCapacity() default 0;
 }
@@ -2,6 +2,7 @@ package com.example.mjg.annotations;
 
 import com.example.mjg.config.Cardinality;
 import com.example.mjg.config.ErrorResolution;
+import com.example.mjg.config.LookupMode;
 import com.example.mjg.data.DataFilterSet;
 import com.example.mjg.data.DataStore;
 import com.example.mjg.data.MigratableEntity;
@@ -21,5 +22,55 @@ public @interface MatchWith {
 
     int batchSize() default 512;
 
+    /**
+     * Matchings are run by increasing order. Matchings of the same order
+     * must not depend on each other (e.g. on what the other reduces),
+     * since they are run concurrently if the migration is thread-safe.
+     */
     int order() default 0;
+
+    /**
+     * With BATCHED (or BROADCAST), the migration must declare, instead of matchWith...():
+     * <pre>
+     * K matchingKeyFor...(InputEntity record, Map&lt;String, Object&gt; aggregates); // null = unmatched
+     * K matchedKeyFrom...(MatchingEntity matchedRecord);
+     * F matchWith...ByKeys(Set&lt;K&gt; keys, MatchingStore store);
+     * </pre>
+     * Cardinality is then checked per key. batchSize also bounds
+     * the number of keys per query.
+     */
+    LookupMode lookup() default LookupMode.PER_FILTER_SET;
+
+    /**
+     * If positive, matching records are cached (by filter set,
+     * or by key with BATCHED lookups) for the whole migration,
+     * keeping at most this many entries, least recently used
+     * ones evicted first. Zero matches are cached too. Results
+     * of more than batchSize records are not cached.
+     */
+    int cacheMaxEntries() default 0;
+
+    /**
+     * With BROADCAST: if the store holds more records than this,
+     * it is not preloaded, and BATCHED lookups are used instead.
+     */
+    int broadcastMaxRecords() default 100_000;
+
+    /**
+     * If not empty, only these fields (plus the ID) of matching
+     * records are read, if the store supports it (see
+     * DataStore.doProject()). Other fields are left unset, so
+     * these must include all fields used by matchedKeyFrom...()
+     * and reduceFrom...().
+     */
+    String[] fields() default {};
+
+    /**
+     * With PER_FILTER_SET: max number of distinct filter sets queried
+     * at the same time (each one until its last page), for this store,
+     * by all migrations (the smallest limit set for it applies).
+     * Matching records are reduced as they arrive, but never for two
+     * input records at once unless the migration is thread-safe.
+     */
+    int maxConcurrentQueries() default 1;
 }
@@ -9,4 +9,21 @@ import java.lang.annotation.Target;
 @Target(ElementType.TYPE)
 public @interface Migration {
     int order() default 0;
+
+    /**
+     * Declares that startReduction(), matchWith...(), matchingKeyFor...(),
+     * reduceFrom...() and transform() may be called for different input
+     * records at the same time. Each input record has its own aggregates,
+     * so this holds unless these methods share mutable state.
+     *
+     * If true, these calls are made in parallel, record by record.
+     * Calls for one same input record are still made in order.
+     */
+    boolean threadSafe() default false;
+
+    /**
+     * Max number of threads making these calls, if threadSafe is true.
+     * 0 means the number of available processors.
+     */
+    int parallelism() default 0;
 }
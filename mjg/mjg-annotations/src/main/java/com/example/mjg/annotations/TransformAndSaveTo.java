@@ -22,4 +22,16 @@ public @interface TransformAndSaveTo {
     ErrorResolution inCaseOfError() default @ErrorResolution;
 
     int batchSize() default 512;
+
+    /**
+     * If true, output records of several input records are
+     * saved together in one saveAll() of at most batchSize
+     * records. A failed batch is split in halves until the
+     * failing input records are isolated.
+     *
+     * Ignored (with a warning) unless the output store declares
+     * that saveAll() is all-or-nothing or idempotent, see
+     * DataStore.isSaveAllAtomicOrIdempotent().
+     */
+    boolean batchAcrossInputRecords() default false;
 }
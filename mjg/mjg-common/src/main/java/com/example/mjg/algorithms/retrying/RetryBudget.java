@@ -0,0 +1,49 @@
+package com.example.mjg.algorithms.retrying;
+
+/**
+ * Token bucket limiting the number of retries per minute against
+ * a store, so that a store which is down is not hammered by
+ * retries of every record. There is one per store, see
+ * DataStoreRegistry.getRetryBudget().
+ */
+public class RetryBudget {
+    private int retriesPerMinute;
+
+    private double tokens;
+
+    private long lastRefillNanos = System.nanoTime();
+
+    public RetryBudget(int retriesPerMinute) {
+        this.retriesPerMinute = retriesPerMinute;
+        this.tokens = retriesPerMinute;
+    }
+
+    /**
+     * Several annotations may set a budget for the same
+     * store: the smallest one applies.
+     */
+    public synchronized void lowerTo(int retriesPerMinute) {
+        if (retriesPerMinute < this.retriesPerMinute) {
+            this.retriesPerMinute = retriesPerMinute;
+            this.tokens = Math.min(tokens, retriesPerMinute);
+        }
+    }
+
+    /**
+     * @return false if the budget is exhausted
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(
+            retriesPerMinute,
+            tokens + (now - lastRefillNanos) * retriesPerMinute / 60e9
+        );
+        lastRefillNanos = now;
+
+        if (tokens < 1) {
+            return false;
+        }
+        --tokens;
+        return true;
+    }
+}
@@ -1,11 +1,14 @@
 package com.example.mjg.algorithms.retrying;
 
+import com.example.mjg.config.ErrorResolution;
 import com.example.mjg.exceptions.RetriesExhaustedException;
+import com.example.mjg.storage.DataStoreRegistry;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.BiConsumer;
 
 @Slf4j
@@ -25,10 +28,58 @@ public class RetryLogic {
      */
     private BiConsumer<Exception, Object> exceptionReporter;
 
+    private double backoffMultiplier;
+
+    private int maxRetryDelayInSeconds;
+
+    private double jitter;
+
+    /**
+     * null if retries are not limited
+     */
+    private RetryBudget retryBudget;
+
+    private boolean nonBlocking;
+
     public static MaxRetriesStep maxRetries(int maxRetries) {
         return Builder.maxRetries(maxRetries);
     }
 
+    /**
+     * With all options of errorResolution (backoff,
+     * retry budget of the store, ...)
+     */
+    public static RetryDelayInSecondsStep fromErrorResolution(
+        ErrorResolution errorResolution,
+        String storeFQCN,
+        DataStoreRegistry storeRegistry
+    ) {
+        Builder builder = new Builder(errorResolution.retryTimes());
+        builder.backoffMultiplier = errorResolution.backoffMultiplier();
+        builder.maxRetryDelayInSeconds = errorResolution.maxRetryDelayInSeconds();
+        builder.jitter = errorResolution.jitter();
+        builder.retryBudget = storeRegistry.getRetryBudget(storeFQCN, errorResolution.retryBudgetPerMinute());
+        builder.nonBlocking = errorResolution.nonBlocking();
+        return builder.retryDelayInSeconds(errorResolution.retryDelayInSeconds());
+    }
+
+    /**
+     * @param retryIndex 0 for the first retry
+     */
+    public long computeRetryDelayInMilliseconds(int retryIndex) {
+        if (retryDelayInSeconds <= 0) {
+            return 0;
+        }
+        double delay = retryDelayInSeconds * 1000.0 * Math.pow(backoffMultiplier, retryIndex);
+        if (maxRetryDelayInSeconds > 0) {
+            delay = Math.min(delay, maxRetryDelayInSeconds * 1000.0);
+        }
+        if (jitter > 0) {
+            delay *= 1 - jitter * ThreadLocalRandom.current().nextDouble();
+        }
+        return (long) delay;
+    }
+
     public <T, R> RetryLogicExecutor<T, R> withCallback(RetryableFunction<T, R> callback) {
         return new RetryLogicExecutor<>(callback, this);
     }
@@ -70,6 +121,11 @@ public class RetryLogic {
             newBuilder.retryDelayInSeconds = retryDelayInSeconds;
             newBuilder.debugContext = debugContext;
             newBuilder.exceptionReporter = exceptionReporter;
+            newBuilder.backoffMultiplier = backoffMultiplier;
+            newBuilder.maxRetryDelayInSeconds = maxRetryDelayInSeconds;
+            newBuilder.jitter = jitter;
+            newBuilder.retryBudget = retryBudget;
+            newBuilder.nonBlocking = nonBlocking;
             return newBuilder;
         }
 
@@ -77,6 +133,11 @@ public class RetryLogic {
         private int retryDelayInSeconds = 0;
         private String debugContext = null;
         private BiConsumer<Exception, Object> exceptionReporter = null;
+        private double backoffMultiplier = 1.0;
+        private int maxRetryDelayInSeconds = 0;
+        private double jitter = 0.0;
+        private RetryBudget retryBudget = null;
+        private boolean nonBlocking = false;
 
         private Builder(int maxRetries) {
             this.maxRetries = maxRetries;
@@ -116,7 +177,12 @@ public class RetryLogic {
                 maxRetries,
                 retryDelayInSeconds,
                 debugContext,
-                exceptionReporter
+                exceptionReporter,
+                backoffMultiplier,
+                maxRetryDelayInSeconds,
+                jitter,
+                retryBudget,
+                nonBlocking
             );
         }
     }
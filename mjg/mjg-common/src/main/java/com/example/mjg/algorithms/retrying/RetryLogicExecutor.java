@@ -4,6 +4,7 @@ import com.example.mjg.exceptions.RetriesExhaustedException;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 
 @Slf4j
@@ -13,19 +14,12 @@ public class RetryLogicExecutor<T, R> {
     private final RetryLogic retryLogic;
 
     public R apply(T arg) throws RetriesExhaustedException {
-        final int retryDelayInSeconds = retryLogic.getRetryDelayInSeconds();
         final int maxRetries = retryLogic.getMaxRetries();
         final String debugContext = retryLogic.getDebugContext();
         final BiConsumer<Exception, Object>
             exceptionReporter = retryLogic.getExceptionReporter();
 
-        long retryDelayInMilliseconds = (
-            retryDelayInSeconds > 0
-                ? retryDelayInSeconds * 1000L
-                : 0
-        );
-
-        int retriesLeft = maxRetries;
+        int retryIndex = 0;
         Exception exception = null;
         while (true) {
             try {
@@ -33,13 +27,15 @@ public class RetryLogicExecutor<T, R> {
             } catch (Exception e) {
                 exception = e;
                 log.error(debugContext + ": " + e.getMessage());
-                --retriesLeft;
-                if (retriesLeft < 0) {
+                if (!canRetry(retryIndex, maxRetries)) {
                     log.debug("NO MORE RETRIES LEFT, PROPAGATING ERROR");
                     break;
                 }
 
-                log.debug("Delaying {} seconds before retrying.", retryDelayInSeconds);
+                long retryDelayInMilliseconds = retryLogic.computeRetryDelayInMilliseconds(retryIndex);
+                ++retryIndex;
+
+                log.debug("Delaying {} ms before retrying.", retryDelayInMilliseconds);
 
                 try {
                     Thread.sleep(retryDelayInMilliseconds);
@@ -51,4 +47,63 @@ public class RetryLogicExecutor<T, R> {
 
         throw new RetriesExhaustedException(debugContext, exception);
     }
+
+    /**
+     * If the retry logic is non-blocking, the first attempt is made
+     * in the calling thread, but retries are scheduled on a timer
+     * instead of sleeping, and made in other threads. Otherwise,
+     * same as apply(), returning a completed future.
+     *
+     * @return future completed exceptionally with
+     * RetriesExhaustedException if all attempts failed
+     */
+    public CompletableFuture<R> applyAsync(T arg) {
+        if (!retryLogic.isNonBlocking()) {
+            try {
+                return CompletableFuture.completedFuture(apply(arg));
+            } catch (RetriesExhaustedException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        CompletableFuture<R> result = new CompletableFuture<>();
+        attempt(arg, 0, result);
+        return result;
+    }
+
+    private void attempt(T arg, int retryIndex, CompletableFuture<R> result) {
+        try {
+            result.complete(callback.apply(arg));
+        } catch (Exception e) {
+            log.error(retryLogic.getDebugContext() + ": " + e.getMessage());
+            if (!canRetry(retryIndex, retryLogic.getMaxRetries())) {
+                log.debug("NO MORE RETRIES LEFT, PROPAGATING ERROR");
+                try {
+                    retryLogic.getExceptionReporter().accept(e, arg);
+                } finally {
+                    result.completeExceptionally(new RetriesExhaustedException(retryLogic.getDebugContext(), e));
+                }
+                return;
+            }
+
+            long retryDelayInMilliseconds = retryLogic.computeRetryDelayInMilliseconds(retryIndex);
+            log.debug("Retrying in {} ms, without blocking.", retryDelayInMilliseconds);
+            RetryScheduler.schedule(
+                () -> attempt(arg, retryIndex + 1, result),
+                retryDelayInMilliseconds
+            );
+        }
+    }
+
+    private boolean canRetry(int retryIndex, int maxRetries) {
+        if (retryIndex >= maxRetries) {
+            return false;
+        }
+        RetryBudget retryBudget = retryLogic.getRetryBudget();
+        if (retryBudget != null && !retryBudget.tryAcquire()) {
+            log.warn("Retry budget exhausted: " + retryLogic.getDebugContext());
+            return false;
+        }
+        return true;
+    }
 }
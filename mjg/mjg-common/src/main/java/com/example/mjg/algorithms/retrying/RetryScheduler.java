@@ -0,0 +1,29 @@
+package com.example.mjg.algorithms.retrying;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.example.mjg.utils.EngineExecutors;
+
+/**
+ * Parks non-blocking retries until they are due. The timer thread
+ * only hands them over to worker threads, so that a slow retry
+ * does not delay other ones.
+ */
+class RetryScheduler {
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+        EngineExecutors.daemonThreadFactory("mjg-retry-timer")
+    );
+
+    private static final ExecutorService workers = EngineExecutors.newPerTaskExecutor("mjg-retry");
+
+    static void schedule(Runnable retry, long delayInMilliseconds) {
+        timer.schedule(
+            () -> workers.execute(retry),
+            delayInMilliseconds,
+            TimeUnit.MILLISECONDS
+        );
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.mjg.algorithms.store_guard;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.example.mjg.exceptions.BaseMigrationException;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resilience layer around the I/O of a data store:
+ *
+ * - A circuit breaker: after several consecutive failures, calls
+ * are paused (not failed) while the store recovers. Then a single
+ * probe call is let through, which closes the circuit if it succeeds.
+ *
+ * - An AIMD concurrency limit: the number of concurrent calls grows
+ * by one per window of successful calls, and is cut down when calls
+ * fail or get much slower than the best latency seen recently.
+ * Reads and writes are compared to their own best latency, and
+ * batch writes per record, since their sizes vary.
+ *
+ * Exceptions about the data (BaseMigrationException, e.g. duplicates)
+ * are not failures of the store.
+ *
+ * Callers wait on a lock condition rather than a monitor, so that
+ * waiting virtual threads do not pin their carrier threads.
+ */
+@Slf4j
+public class StoreGuard {
+    public static enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public static enum Operation {
+        READ,
+        WRITE
+    }
+
+    @FunctionalInterface
+    public interface StoreCall<R> {
+        R call() throws Exception;
+    }
+
+    /**
+     * Latency samples after which the best latency is
+     * partly forgotten, to follow changes of the store
+     */
+    private static final int LATENCY_WINDOW = 100;
+
+    private static final double LATENCY_DECREASE_RATIO = 0.9;
+
+    private static final double FAILURE_DECREASE_RATIO = 0.5;
+
+    private final String storeName;
+
+    private final StoreGuardConfig config;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when a call is released
+     */
+    private final Condition released = lock.newCondition();
+
+    @Getter
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures = 0;
+
+    private long currentOpenMillis;
+
+    private long openUntilNanos = 0;
+
+    private boolean probeInFlight = false;
+
+    private double limit;
+
+    @Getter
+    private int inFlight = 0;
+
+    private final Map<Operation, LatencyBaseline> latencyBaselines = new EnumMap<>(Operation.class);
+
+    public StoreGuard(String storeName, StoreGuardConfig config) {
+        this.storeName = storeName;
+        this.config = config;
+        this.currentOpenMillis = config.getOpenMillis();
+        this.limit = config.getInitialConcurrencyLimit();
+        for (Operation operation : Operation.values()) {
+            latencyBaselines.put(operation, new LatencyBaseline());
+        }
+    }
+
+    public int getConcurrencyLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public <R> R call(StoreCall<R> storeCall) throws Exception {
+        return call(Operation.READ, 1, storeCall);
+    }
+
+    /**
+     * @param numRecords number of records written by a batch
+     *                   write, its latency is compared per record
+     */
+    public <R> R call(Operation operation, int numRecords, StoreCall<R> storeCall) throws Exception {
+        boolean probe = acquire();
+        long start = System.nanoTime();
+        boolean healthy = true;
+        try {
+            return storeCall.call();
+        } catch (BaseMigrationException e) {
+            throw e;
+        } catch (Exception e) {
+            healthy = false;
+            throw e;
+        } finally {
+            release(
+                probe,
+                latencyBaselines.get(operation),
+                (System.nanoTime() - start) / Math.max(1, numRecords),
+                healthy
+            );
+        }
+    }
+
+    /**
+     * Blocks while the circuit is open, or
+     * while too many calls are in flight.
+     *
+     * @return whether this is the probe call
+     * of a half-open circuit
+     */
+    private boolean acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                if (state == State.OPEN) {
+                    long remainingNanos = openUntilNanos - System.nanoTime();
+                    if (remainingNanos > 0) {
+                        released.await(remainingNanos, TimeUnit.NANOSECONDS);
+                        continue;
+                    }
+                    state = State.HALF_OPEN;
+                    log.info("Probing store " + storeName + " again");
+                }
+
+                if (state == State.HALF_OPEN) {
+                    if (!probeInFlight) {
+                        probeInFlight = true;
+                        ++inFlight;
+                        return true;
+                    }
+                } else if (inFlight < (int) limit) {
+                    ++inFlight;
+                    return false;
+                }
+
+                released.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(boolean probe, LatencyBaseline latencyBaseline, long latencyNanos, boolean healthy) {
+        lock.lock();
+        try {
+            --inFlight;
+
+            if (probe) {
+                probeInFlight = false;
+                if (healthy) {
+                    log.info("Store " + storeName + " is back, closing circuit");
+                    state = State.CLOSED;
+                    consecutiveFailures = 0;
+                    currentOpenMillis = config.getOpenMillis();
+                    limit = config.getMinConcurrencyLimit();
+                } else {
+                    currentOpenMillis = Math.min(currentOpenMillis * 2, config.getMaxOpenMillis());
+                    open();
+                }
+            } else if (state == State.CLOSED) {
+                // Results of calls made before the circuit opened are ignored
+                if (healthy) {
+                    consecutiveFailures = 0;
+                    onLatency(latencyBaseline, latencyNanos);
+                } else {
+                    ++consecutiveFailures;
+                    decreaseLimit(FAILURE_DECREASE_RATIO);
+                    if (consecutiveFailures >= config.getFailureThreshold()) {
+                        open();
+                    }
+                }
+            }
+
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void open() {
+        log.warn(
+            "Store " + storeName + " looks unhealthy, pausing calls to it for "
+            + currentOpenMillis + " ms"
+        );
+        state = State.OPEN;
+        openUntilNanos = System.nanoTime() + currentOpenMillis * 1_000_000;
+    }
+
+    private void onLatency(LatencyBaseline latencyBaseline, long latencyNanos) {
+        latencyBaseline.bestLatencyNanos = Math.min(latencyBaseline.bestLatencyNanos, latencyNanos);
+        if (++latencyBaseline.numLatencySamples % LATENCY_WINDOW == 0) {
+            latencyBaseline.bestLatencyNanos += latencyBaseline.bestLatencyNanos / 10;
+        }
+
+        if (latencyNanos > latencyBaseline.bestLatencyNanos * config.getLatencyTolerance()) {
+            decreaseLimit(LATENCY_DECREASE_RATIO);
+        } else if (inFlight + 1 >= (int) limit) {
+            // Only grows if the limit is actually reached
+            limit = Math.min(config.getMaxConcurrencyLimit(), limit + 1.0 / limit);
+        }
+    }
+
+    private void decreaseLimit(double ratio) {
+        limit = Math.max(config.getMinConcurrencyLimit(), limit * ratio);
+    }
+
+    /**
+     * Best latency seen recently for one kind of operation
+     */
+    private static class LatencyBaseline {
+        private long bestLatencyNanos = Long.MAX_VALUE;
+
+        private int numLatencySamples = 0;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.mjg.algorithms.store_guard;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * See StoreGuard. Defaults should suit most stores.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class StoreGuardConfig {
+    /**
+     * Consecutive failures after which the circuit opens
+     */
+    private int failureThreshold = 5;
+
+    /**
+     * How long the circuit stays open at first. Doubled each
+     * time the probe call fails, up to maxOpenMillis.
+     */
+    private long openMillis = 5_000;
+
+    private long maxOpenMillis = 120_000;
+
+    private int initialConcurrencyLimit = 4;
+
+    private int minConcurrencyLimit = 1;
+
+    private int maxConcurrencyLimit = 64;
+
+    /**
+     * Calls slower than this many times the best latency
+     * seen recently are taken as a sign of overload.
+     */
+    private double latencyTolerance = 3.0;
+}
@@ -44,79 +44,100 @@ public class SuperTopoSort<T> {
     }
 
     public List<SuperEdge<T>> toSorted() {
-        Set<InternalNode<T>> resolvedNodes = allNodes
+        return toLevels()
                 .stream()
-                .filter(node -> node.getPredecessors().isEmpty())
-                .collect(Collectors.toSet());
-
-        List<SuperEdge<T>> sortedList = new ArrayList<>(superEdges.size());
-        int iteration = 0;
-        boolean done = false;
-        boolean sanityChecked = false;
-        while (!done) {
-            done = true;
-
-            for (InternalSuperEdge<T> e : superEdges) {
-                if (sortedList.contains(e.getOriginalSuperEdge())) {
-                    continue;
-                }
-
-                try {
-                    if (!sanityChecked) {
-                        if (e.getTargetNodes().stream().anyMatch(e.getSourceNodes()::contains)) {
-                            throw new IllegalArgumentException("A source node must not be a target node.");
-                        }
-                    }
+                .flatMap(List::stream)
+                .toList();
+    }
 
-                    if (resolvedNodes.containsAll(e.getSourceNodes())) {
-                        if (e.getTargetNodes().stream().anyMatch(resolvedNodes::contains)) {
-                            throw new IllegalArgumentException("Cycle detected, or at least, there are two super-edges with some same target node(s)!");
-                        }
-                        // This super edge resolves
-                        resolvedNodes.addAll(e.getTargetNodes());
-                        sortedList.add(e.getOriginalSuperEdge());
-                    } else {
-                        done = false;
-                    }
-                } catch (IllegalArgumentException exception) {
-                    throw new IllegalArgumentException(
-                            "While processing edge having:"
-                                    + "\n    source nodes: " + e.getSourceNodes()
-                                    + "\n    target nodes: " + e.getTargetNodes()
-                                    + "\n\nMeanwhile, the currently resolved nodes are:"
-                                    + "\n    " + resolvedNodes.stream().map(String::valueOf).collect(Collectors.joining(",\n    "))
-                                    + "\n\nand the resolved/sorted edges are:"
-                                    + "\n    " + sortedList.stream().map(String::valueOf).collect(Collectors.joining(",\n    "))
-                                    + "\n\nAll the edges are:"
-                                    + "\n    " + superEdges.stream()
-                                    .map(InternalSuperEdge::getOriginalSuperEdge)
-                                    .map(String::valueOf)
-                                    .collect(Collectors.joining(",\n    "))
-                                    + "\n\nException occurred:"
-                                    + "\n    " + exception.getMessage(),
-
-                            exception
-                    );
+    /**
+     * Kahn's algorithm on super-edges, in O(total number of
+     * source and target nodes).
+     *
+     * @return super-edges grouped by level: every super-edge only
+     * depends on super-edges of previous levels, so super-edges
+     * of the same level are independent of each other.
+     */
+    public List<List<SuperEdge<T>>> toLevels() {
+        // Super-edge producing each node, and super-edges consuming it
+        Map<InternalNode<T>, InternalSuperEdge<T>> producers = new HashMap<>(allNodes.size());
+        Map<InternalNode<T>, List<InternalSuperEdge<T>>> consumers = new HashMap<>(allNodes.size());
+        // Number of source nodes not yet resolved, per super-edge
+        Map<InternalSuperEdge<T>, Integer> numUnresolvedSourceNodes = new HashMap<>(superEdges.size());
+
+        for (InternalSuperEdge<T> e : superEdges) {
+            if (e.getTargetNodes().stream().anyMatch(e.getSourceNodes()::contains)) {
+                throw buildException(e, "A source node must not be a target node.");
+            }
+            for (InternalNode<T> targetNode : e.getTargetNodes()) {
+                if (producers.putIfAbsent(targetNode, e) != null) {
+                    throw buildException(e, "There are two super-edges with some same target node(s)!");
                 }
             }
+        }
 
-            sanityChecked = true;
-
-            ++iteration;
-            if (iteration > superEdges.size()) {
-                break;
+        List<InternalSuperEdge<T>> currentLevel = new ArrayList<>();
+        for (InternalSuperEdge<T> e : superEdges) {
+            int count = 0;
+            for (InternalNode<T> sourceNode : e.getSourceNodes()) {
+                // Nodes without predecessors are resolved from the start
+                if (producers.containsKey(sourceNode)) {
+                    consumers.computeIfAbsent(sourceNode, k -> new ArrayList<>()).add(e);
+                    ++count;
+                }
+            }
+            numUnresolvedSourceNodes.put(e, count);
+            if (count == 0) {
+                currentLevel.add(e);
             }
         }
 
-        if (!done) {
-            throw new IllegalArgumentException("Resolution does not converge - there is a loop.");
+        List<List<SuperEdge<T>>> levels = new ArrayList<>();
+        int numSortedEdges = 0;
+        while (!currentLevel.isEmpty()) {
+            levels.add(currentLevel.stream().map(InternalSuperEdge::getOriginalSuperEdge).toList());
+            numSortedEdges += currentLevel.size();
+
+            List<InternalSuperEdge<T>> nextLevel = new ArrayList<>();
+            for (InternalSuperEdge<T> e : currentLevel) {
+                for (InternalNode<T> resolvedNode : e.getTargetNodes()) {
+                    for (InternalSuperEdge<T> consumer : consumers.getOrDefault(resolvedNode, List.of())) {
+                        if (numUnresolvedSourceNodes.merge(consumer, -1, Integer::sum) == 0) {
+                            nextLevel.add(consumer);
+                        }
+                    }
+                }
+            }
+            currentLevel = nextLevel;
         }
 
-        if (sortedList.size() != superEdges.size()) {
-            throw new RuntimeException("Algorithm gone wrong");
+        if (numSortedEdges != superEdges.size()) {
+            throw new IllegalArgumentException(
+                    "Resolution does not converge - there is a loop."
+                            + "\n\nUnresolved edges are:"
+                            + "\n    " + superEdges.stream()
+                            .filter(e -> numUnresolvedSourceNodes.get(e) > 0)
+                            .map(InternalSuperEdge::getOriginalSuperEdge)
+                            .map(String::valueOf)
+                            .collect(Collectors.joining(",\n    "))
+            );
         }
 
-        return sortedList;
+        return levels;
     }
 
+    private IllegalArgumentException buildException(InternalSuperEdge<T> e, String message) {
+        return new IllegalArgumentException(
+                "While processing edge having:"
+                        + "\n    source nodes: " + e.getSourceNodes()
+                        + "\n    target nodes: " + e.getTargetNodes()
+                        + "\n\nAll the edges are:"
+                        + "\n    " + superEdges.stream()
+                        .map(InternalSuperEdge::getOriginalSuperEdge)
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(",\n    "))
+                        + "\n\nException occurred:"
+                        + "\n    " + message
+        );
+    }
 }
@@ -11,4 +11,41 @@ public @interface ErrorResolution {
     int retryTimes() default 1;
 
     int retryDelayInSeconds() default 1;
+
+    /**
+     * Each retry waits backoffMultiplier times longer than
+     * the previous one (1 for a constant delay).
+     */
+    double backoffMultiplier() default 1.0;
+
+    /**
+     * Upper bound of the delay between retries, when
+     * backing off. 0 for no bound.
+     */
+    int maxRetryDelayInSeconds() default 0;
+
+    /**
+     * Between 0 and 1: each delay is randomly shortened by up
+     * to this fraction, so that records failing together are
+     * not retried all at once.
+     */
+    double jitter() default 0.0;
+
+    /**
+     * Maximum number of retries per minute against the store,
+     * for all records together. Once exceeded, operations fail
+     * without being retried, until the budget is refilled.
+     * Shared by all annotations on the same store, the
+     * smallest budget of them applies. 0 for no budget.
+     */
+    int retryBudgetPerMinute() default 0;
+
+    /**
+     * For lookups (@MatchWith): instead of sleeping before
+     * retrying, failed lookups are retried on a timer, while
+     * other lookups of the same page go on. Reduce methods may
+     * then be called from other threads (one at a time unless
+     * the migration is thread-safe).
+     */
+    boolean nonBlocking() default false;
 }
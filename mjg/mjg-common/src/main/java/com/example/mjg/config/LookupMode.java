@@ -0,0 +1,26 @@
+package com.example.mjg.config;
+
+/**
+ * How a @MatchWith store is queried for a page of input records.
+ */
+public enum LookupMode {
+    /**
+     * One query per distinct filter set returned by matchWith...().
+     */
+    PER_FILTER_SET,
+
+    /**
+     * One query per chunk of distinct matching keys (usually once per page),
+     * built by matchWith...ByKeys(). Matched records are routed back
+     * to input records by key.
+     */
+    BATCHED,
+
+    /**
+     * The whole store is read once (through matchAll()) into an in-memory
+     * index on matchedKeyFrom...(), then matched without any I/O. Same
+     * methods as BATCHED, which is also the fallback if the store holds
+     * more than broadcastMaxRecords records.
+     */
+    BROADCAST
+}
@@ -3,7 +3,8 @@ package com.example.mjg.data;
 import java.io.Serializable;
 import java.util.List;
 
-public interface DataPage<T extends MigratableEntity, ID extends Serializable, F extends DataFilterSet> {
+public interface DataPage<T extends MigratableEntity, ID extends Serializable, F extends DataFilterSet>
+extends AutoCloseable {
     DataStore<T, ID, F> getDataStore();
 
     F getFilterSet();
@@ -15,4 +16,31 @@ public interface DataPage<T extends MigratableEntity, ID extends Serializable, F
     default Integer getSize() {
         return getRecords().size();
     }
+
+    /**
+     * The requested page size, which the last
+     * page may not fill up.
+     */
+    default Integer getPageSize() {
+        return getSize();
+    }
+
+    /**
+     * Whether there might be a next page. If not,
+     * the next page is not even requested.
+     *
+     * By default, a partially filled page is
+     * considered the last one.
+     */
+    default boolean hasNext() {
+        return getSize() > 0 && getSize() >= getPageSize();
+    }
+
+    /**
+     * Releases what is held to read the next pages (e.g. a
+     * server-side cursor), when no more pages are read.
+     * Must be idempotent. Nothing to release by default.
+     */
+    @Override
+    default void close() {}
 }
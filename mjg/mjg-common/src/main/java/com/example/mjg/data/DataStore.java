@@ -1,10 +1,23 @@
 package com.example.mjg.data;
 
+import com.example.mjg.algorithms.store_guard.StoreGuard;
+
+import lombok.Getter;
+import lombok.Setter;
+
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public abstract class DataStore<T extends MigratableEntity, ID extends Serializable, F extends DataFilterSet> {
+    /**
+     * If set, reads and writes go through it (see DataStoreRegistry)
+     */
+    @Getter
+    @Setter
+    private volatile StoreGuard storeGuard = null;
+
     protected abstract DataPage<T, ID, F> doGetFirstPageOfRecords(
         F filterSet,
         int pageSize
@@ -14,6 +27,37 @@ public abstract class DataStore<T extends MigratableEntity, ID extends Serializa
 
     protected abstract F doMatchByIdIn(Set<ID> ids);
 
+    /**
+     * Whether doMatchAllAfterId() is implemented.
+     */
+    protected boolean doSupportsKeysetPagination() {
+        return false;
+    }
+
+    /**
+     * For keyset (seek) pagination: matches all records
+     * with ID greater than lastId (all records if lastId
+     * is null), in ascending ID order.
+     *
+     * Only called if doSupportsKeysetPagination().
+     */
+    protected F doMatchAllAfterId(ID lastId) {
+        throw new UnsupportedOperationException(
+            "Keyset pagination is not supported by " + getClass().getCanonicalName()
+        );
+    }
+
+    /**
+     * Restricts records read with filterSet to the given
+     * fields (plus their ID), other fields being left unset.
+     *
+     * Returns filterSet itself if the store does not
+     * support it, i.e. whole records are read.
+     */
+    protected F doProject(F filterSet, List<String> fields) {
+        return filterSet;
+    }
+
     protected abstract DataPage<T, ID, F> doGetNextPageOfRecords(
         DataPage<T, ID, F> previousPage
     ) throws Exception;
@@ -22,6 +66,33 @@ public abstract class DataStore<T extends MigratableEntity, ID extends Serializa
 
     protected abstract void doSaveAll(List<T> records) throws Exception;
 
+    /**
+     * Saves records independently of each other, i.e. some
+     * failing does not prevent the others from being saved.
+     *
+     * @return failures by index in records (empty if all saved)
+     * @throws Exception if the outcome of single records is
+     * unknown, in which case none is assumed to be saved.
+     * By default, whenever doSaveAll() fails.
+     */
+    protected Map<Integer, Exception> doSaveAllReportingFailures(List<T> records) throws Exception {
+        doSaveAll(records);
+        return Map.of();
+    }
+
+    /**
+     * Whether a failed doSaveAll() (or doSaveAllReportingFailures()
+     * throwing) can safely be repeated on parts of the records,
+     * i.e. it saved nothing (e.g. in a transaction) or saving the
+     * same records again is harmless (e.g. upserts by ID).
+     *
+     * Output records of several input records are only saved
+     * together if so (see @TransformAndSaveTo).
+     */
+    protected boolean doIsSaveAllAtomicOrIdempotent() {
+        return false;
+    }
+
 
 
 
@@ -29,7 +100,7 @@ public abstract class DataStore<T extends MigratableEntity, ID extends Serializa
         F filterSet,
         int pageSize
     ) throws Exception {
-        return doGetFirstPageOfRecords(filterSet, pageSize);
+        return guarded(StoreGuard.Operation.READ, 1, () -> doGetFirstPageOfRecords(filterSet, pageSize));
     }
 
     public final F matchAll() {
@@ -40,19 +111,66 @@ public abstract class DataStore<T extends MigratableEntity, ID extends Serializa
         return doMatchByIdIn(ids);
     }
 
+    public final F matchAllAfterId(ID lastId) {
+        return doMatchAllAfterId(lastId);
+    }
+
+    /**
+     * @param fields all fields if empty
+     */
+    public final F project(F filterSet, List<String> fields) {
+        if (fields.isEmpty()) {
+            return filterSet;
+        }
+        return doProject(filterSet, fields);
+    }
+
+    /**
+     * Whether matchAllAfterId() is supported, in which
+     * case an interrupted scan can be resumed after the
+     * last migrated ID instead of from the start.
+     */
+    public final boolean supportsKeysetPagination() {
+        return doSupportsKeysetPagination();
+    }
+
+    public final boolean isSaveAllAtomicOrIdempotent() {
+        return doIsSaveAllAtomicOrIdempotent();
+    }
+
     public final DataPage<T, ID, F> getNextPageOfRecords(
             DataPage<T, ID, F> previousPage
     ) throws Exception {
-        return doGetNextPageOfRecords(previousPage);
+        return guarded(StoreGuard.Operation.READ, 1, () -> doGetNextPageOfRecords(previousPage));
     }
 
     public final void save(T record)
     throws Exception {
-        doSave(record);
+        guarded(StoreGuard.Operation.WRITE, 1, () -> {
+            doSave(record);
+            return null;
+        });
     }
 
     public final void saveAll(List<T> records)
     throws Exception {
-        doSaveAll(records);
+        guarded(StoreGuard.Operation.WRITE, records.size(), () -> {
+            doSaveAll(records);
+            return null;
+        });
+    }
+
+    public final Map<Integer, Exception> saveAllReportingFailures(List<T> records)
+    throws Exception {
+        return guarded(StoreGuard.Operation.WRITE, records.size(), () -> doSaveAllReportingFailures(records));
+    }
+
+    private <R> R guarded(
+        StoreGuard.Operation operation,
+        int numRecords,
+        StoreGuard.StoreCall<R> storeCall
+    ) throws Exception {
+        StoreGuard storeGuard = this.storeGuard;
+        return storeGuard == null ? storeCall.call() : storeGuard.call(operation, numRecords, storeCall);
     }
 }
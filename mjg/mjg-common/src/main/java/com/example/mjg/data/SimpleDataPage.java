@@ -1,5 +1,6 @@
 package com.example.mjg.data;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
@@ -17,4 +18,28 @@ implements DataPage<T, ID, F> {
     private final Integer pageNumber;
 
     private final List<T> records;
+
+    private final Integer pageSize;
+
+    /**
+     * null if unknown
+     */
+    @Getter(AccessLevel.NONE)
+    private final Boolean hasNext;
+
+    public SimpleDataPage(DataStore<T, ID, F> dataStore, F filterSet, Integer pageNumber, List<T> records) {
+        this(dataStore, filterSet, pageNumber, records, records.size());
+    }
+
+    public SimpleDataPage(DataStore<T, ID, F> dataStore, F filterSet, Integer pageNumber, List<T> records, Integer pageSize) {
+        this(dataStore, filterSet, pageNumber, records, pageSize, null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (hasNext != null) {
+            return hasNext;
+        }
+        return DataPage.super.hasNext();
+    }
 }
@@ -1,8 +1,9 @@
 package com.example.mjg.storage;
 
 import java.lang.reflect.InvocationTargetException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,7 +11,7 @@ import lombok.extern.slf4j.Slf4j;
 @NoArgsConstructor
 @Slf4j
 public class AbstractRegistry<T> {
-    private final Map<String, T> dataStores = new HashMap<>();
+    private final Map<String, T> dataStores = new ConcurrentHashMap<>();
 
     public T get(String requestedFQCN) {
         return dataStores.computeIfAbsent(
@@ -21,6 +22,7 @@ public class AbstractRegistry<T> {
                         @SuppressWarnings("unchecked")
                         T instance = (T) clazz.getDeclaredConstructor().newInstance();
                         // log.debug("Instantiated singleton class: " + fqcn);
+                        onRegistered(fqcn, instance);
                         return instance;
                     } catch (ClassNotFoundException e) {
                         throw new RuntimeException(e);
@@ -32,6 +34,17 @@ public class AbstractRegistry<T> {
     }
 
     public void set(String fqcn, T instance) {
+        onRegistered(fqcn, instance);
         dataStores.put(fqcn, instance);
     }
+
+    /**
+     * Called for each instance, whether set or instantiated
+     */
+    protected void onRegistered(String fqcn, T instance) {
+    }
+
+    protected void forEachRegistered(BiConsumer<String, T> consumer) {
+        dataStores.forEach(consumer);
+    }
 }
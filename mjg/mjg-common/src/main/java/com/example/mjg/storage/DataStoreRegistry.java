@@ -1,15 +1,32 @@
 package com.example.mjg.storage;
 
+import com.example.mjg.algorithms.retrying.RetryBudget;
+import com.example.mjg.algorithms.store_guard.StoreGuard;
+import com.example.mjg.algorithms.store_guard.StoreGuardConfig;
 import com.example.mjg.data.DataFilterSet;
 import com.example.mjg.data.DataStore;
 import com.example.mjg.data.MigratableEntity;
+import com.example.mjg.utils.QueryPermits;
 
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @NoArgsConstructor
 public class DataStoreRegistry extends AbstractRegistry<DataStore<? extends MigratableEntity, ? extends Serializable, ? extends DataFilterSet>> {
+    /**
+     * null if stores are not guarded
+     */
+    @Getter
+    private volatile StoreGuardConfig storeGuardConfig = null;
+
+    private final Map<String, RetryBudget> retryBudgetsByStore = new ConcurrentHashMap<>();
+
+    private final Map<String, QueryPermits> queryPermitsByStore = new ConcurrentHashMap<>();
+
     public <T extends MigratableEntity, ID extends Serializable, F extends DataFilterSet>
     void set(
         Class<? extends DataStore<T, ID, F>> clazz,
@@ -17,4 +34,59 @@ public class DataStoreRegistry extends AbstractRegistry<DataStore<? extends Migr
     ) {
         set(clazz.getCanonicalName(), instance);
     }
+
+    /**
+     * Wraps the reads and writes of every store, registered or
+     * to be, in a StoreGuard (circuit breaker and adaptive
+     * concurrency limit), or none if storeGuardConfig is null.
+     */
+    public void setStoreGuardConfig(StoreGuardConfig storeGuardConfig) {
+        this.storeGuardConfig = storeGuardConfig;
+        forEachRegistered(this::onRegistered);
+    }
+
+    /**
+     * @return the retry budget shared by all users of the store,
+     * i.e. the smallest retriesPerMinute set for it applies,
+     * or null if retriesPerMinute <= 0 (no budget)
+     */
+    public RetryBudget getRetryBudget(String storeFQCN, int retriesPerMinute) {
+        if (retriesPerMinute <= 0) {
+            return null;
+        }
+        return retryBudgetsByStore.compute(storeFQCN, (fqcn, retryBudget) -> {
+            if (retryBudget == null) {
+                return new RetryBudget(retriesPerMinute);
+            }
+            retryBudget.lowerTo(retriesPerMinute);
+            return retryBudget;
+        });
+    }
+
+    /**
+     * @return the query permits shared by all users of the store,
+     * i.e. the smallest maxConcurrentQueries set for it applies,
+     * or null if maxConcurrentQueries <= 1 (queried one at a time)
+     */
+    public QueryPermits getQueryPermits(String storeFQCN, int maxConcurrentQueries) {
+        if (maxConcurrentQueries <= 1) {
+            return null;
+        }
+        return queryPermitsByStore.compute(storeFQCN, (fqcn, queryPermits) -> {
+            if (queryPermits == null) {
+                return new QueryPermits(maxConcurrentQueries);
+            }
+            queryPermits.lowerTo(maxConcurrentQueries);
+            return queryPermits;
+        });
+    }
+
+    @Override
+    protected void onRegistered(
+        String fqcn,
+        DataStore<? extends MigratableEntity, ? extends Serializable, ? extends DataFilterSet> instance
+    ) {
+        StoreGuardConfig storeGuardConfig = this.storeGuardConfig;
+        instance.setStoreGuard(storeGuardConfig == null ? null : new StoreGuard(fqcn, storeGuardConfig));
+    }
 }
@@ -6,13 +6,20 @@ import java.lang.reflect.Proxy;
 import com.example.mjg.config.ErrorResolution;
 
 public class AnnotationInstantiation {
+    /**
+     * Other attributes have their default values.
+     */
     public static ErrorResolution createErrorResolution(int retryTimes, int retryDelayInSeconds) {
         InvocationHandler handler = (proxy, method, args) -> {
             switch (method.getName()) {
                 case "retryTimes": return retryTimes;
                 case "retryDelayInSeconds": return retryDelayInSeconds;
                 case "annotationType": return ErrorResolution.class;
-                default: throw new UnsupportedOperationException("Unsupported method: " + method.getName());
+                default:
+                    if (method.getDefaultValue() != null) {
+                        return method.getDefaultValue();
+                    }
+                    throw new UnsupportedOperationException("Unsupported method: " + method.getName());
             }
         };
 
@@ -3,6 +3,7 @@ package com.example.mjg.utils;
 import java.util.Collection;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 /*
@@ -24,6 +25,9 @@ import java.util.function.Consumer;
 
             // wait until workers finish (either by stop or after draining queue)
             processor.awaitTermination();
+
+            // the first exception thrown by workerLogic, if any
+            processor.throwIfFailed();
         }
     }
 }
@@ -33,10 +37,12 @@ public class BoundedParallelProcessor<T> implements AutoCloseable {
     private final BlockingQueue<T> queue;
     private final ExecutorService workers;
     private final AtomicBoolean stop = new AtomicBoolean(false);
+    private final AtomicBoolean noMoreItems = new AtomicBoolean(false);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
 
     public BoundedParallelProcessor(int threads, int capacity, Consumer<T> workerLogic) {
         this.queue = new ArrayBlockingQueue<>(capacity);
-        this.workers = Executors.newFixedThreadPool(threads);
+        this.workers = EngineExecutors.newFixedThreadPool(threads, "mjg-worker");
 
         // spawn worker threads
         for (int i = 0; i < threads; i++) {
@@ -44,11 +50,17 @@ public class BoundedParallelProcessor<T> implements AutoCloseable {
                 try {
                     while (!stop.get()) {
                         T item = queue.poll(100, TimeUnit.MILLISECONDS);
-                        if (item == null) continue; // no item, check stop again
+                        if (item == null) {
+                            // no item: either the queue is drained for good,
+                            // or check stop again
+                            if (noMoreItems.get() && queue.isEmpty()) break;
+                            continue;
+                        }
                         try {
                             workerLogic.accept(item);
-                        } catch (Exception e) {
+                        } catch (Throwable e) {
                             // trigger stop on worker failure
+                            failure.compareAndSet(null, e);
                             stop.set(true);
                             throw e;
                         }
@@ -60,28 +72,56 @@ public class BoundedParallelProcessor<T> implements AutoCloseable {
         }
     }
 
-    /** Submit a single item */
-    public void submit(T item) throws InterruptedException {
-        if (!stop.get()) {
-            queue.put(item); // blocks if full
+    /**
+     * Submit a single item. Blocks while the queue is full
+     * (backpressure), and gives up once stopped.
+     * @return false if the item was not accepted due to stop
+     */
+    public boolean submit(T item) throws InterruptedException {
+        while (!stop.get()) {
+            if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
         }
+        return false;
     }
 
     /** Submit a batch */
     public void submitAll(Collection<T> items) throws InterruptedException {
         for (T item : items) {
-            if (stop.get()) break;
-            queue.put(item);
+            if (!submit(item)) break;
         }
     }
 
+    public boolean isStopped() {
+        return stop.get();
+    }
+
+    /** The first exception thrown by workerLogic, or null */
+    public Throwable getFailure() {
+        return failure.get();
+    }
+
+    /** Rethrow the first exception thrown by workerLogic, if any */
+    public void throwIfFailed() {
+        Throwable e = failure.get();
+        if (e == null) return;
+        if (e instanceof RuntimeException runtimeException) throw runtimeException;
+        if (e instanceof Error error) throw error;
+        throw new RuntimeException(e);
+    }
+
     /** Trigger a cooperative stop */
     public void stop() {
         stop.set(true);
     }
 
-    /** Wait for workers to finish (after stop or after queue drains) */
+    /**
+     * Wait for workers to finish (after stop or after queue drains).
+     * No more items may be submitted after calling this.
+     */
     public boolean awaitTermination() throws InterruptedException {
+        noMoreItems.set(true);
         workers.shutdown();
         return workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
     }
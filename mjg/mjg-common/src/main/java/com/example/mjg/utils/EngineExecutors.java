@@ -0,0 +1,114 @@
+package com.example.mjg.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Threads for the I/O-bound work of the engine: lookups, retries,
+ * pipeline stages and concurrent migrations.
+ *
+ * Run with {@code -Dmjg.virtualThreads=true} on JDK 21+, these are
+ * virtual threads, one per task, so that concurrency is bounded by
+ * per-store limits (maxConcurrentQueries, store guards) rather than
+ * by pool sizes. Otherwise, and on older JDKs, platform threads are
+ * used, as before.
+ *
+ * Since the build targets Java 17, virtual threads are created
+ * through reflection.
+ */
+@Slf4j
+public class EngineExecutors {
+    public static final String VIRTUAL_THREADS_PROPERTY = "mjg.virtualThreads";
+
+    /**
+     * null if virtual threads are disabled or not supported
+     */
+    private static final VirtualThreads virtualThreads = VirtualThreads.loadIfEnabled();
+
+    public static boolean usesVirtualThreads() {
+        return virtualThreads != null;
+    }
+
+    /**
+     * For short-lived tasks: one new thread per task (virtual),
+     * or cached daemon threads
+     */
+    public static ExecutorService newPerTaskExecutor(String namePrefix) {
+        if (virtualThreads != null) {
+            return virtualThreads.newPerTaskExecutor(namePrefix);
+        }
+        return Executors.newCachedThreadPool(daemonThreadFactory(namePrefix));
+    }
+
+    /**
+     * For long-running workers, e.g. pipeline stages
+     */
+    public static ExecutorService newFixedThreadPool(int numThreads, String namePrefix) {
+        if (virtualThreads != null) {
+            return Executors.newFixedThreadPool(numThreads, virtualThreads.threadFactory(namePrefix));
+        }
+        return Executors.newFixedThreadPool(numThreads);
+    }
+
+    public static ThreadFactory daemonThreadFactory(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger(0);
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record VirtualThreads(
+        Method ofVirtual,
+        Method name,
+        Method factory,
+        Method newThreadPerTaskExecutor
+    ) {
+        private static VirtualThreads loadIfEnabled() {
+            if (!Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY)) {
+                return null;
+            }
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                VirtualThreads virtualThreads = new VirtualThreads(
+                    Thread.class.getMethod("ofVirtual"),
+                    builderClass.getMethod("name", String.class, long.class),
+                    builderClass.getMethod("factory"),
+                    Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                );
+                log.info("Using virtual threads");
+                return virtualThreads;
+            } catch (ReflectiveOperationException e) {
+                log.warn(
+                    "Virtual threads are not supported by Java " + Runtime.version().feature()
+                    + " (21+ required), using platform threads"
+                );
+                return null;
+            }
+        }
+
+        private ThreadFactory threadFactory(String namePrefix) {
+            try {
+                Object builder = ofVirtual.invoke(null);
+                builder = name.invoke(builder, namePrefix + "-", 1L);
+                return (ThreadFactory) factory.invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create virtual thread factory", e);
+            }
+        }
+
+        private ExecutorService newPerTaskExecutor(String namePrefix) {
+            try {
+                return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory(namePrefix));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create virtual thread executor", e);
+            }
+        }
+    }
+}
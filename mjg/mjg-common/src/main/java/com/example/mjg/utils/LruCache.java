@@ -0,0 +1,68 @@
+package com.example.mjg.utils;
+
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe cache holding at most maxEntries entries,
+ * evicting the least recently used one when full.
+ * Also counts hits and misses.
+ */
+public class LruCache<K, V> {
+    @Getter
+    private final int maxEntries;
+
+    private final LinkedHashMap<K, V> map;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    public LruCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        // accessOrder = true => iteration order is from least to most recently accessed
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the cached value, or null if absent
+     */
+    public synchronized V get(K key) {
+        V value = map.get(key);
+        if (value == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        map.put(key, value);
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.mjg.utils;
+
+import lombok.Getter;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Permits for queries in flight against a store, shared by all
+ * migrations matching with it. There is one per store, see
+ * DataStoreRegistry.getQueryPermits().
+ */
+public class QueryPermits extends Semaphore {
+    @Getter
+    private int maxConcurrentQueries;
+
+    public QueryPermits(int maxConcurrentQueries) {
+        super(maxConcurrentQueries);
+        this.maxConcurrentQueries = maxConcurrentQueries;
+    }
+
+    /**
+     * Several annotations may set a limit for the same
+     * store: the smallest one applies. Queries already in
+     * flight are not interrupted, new ones wait for them.
+     */
+    public synchronized void lowerTo(int maxConcurrentQueries) {
+        if (maxConcurrentQueries < this.maxConcurrentQueries) {
+            reducePermits(this.maxConcurrentQueries - maxConcurrentQueries);
+            this.maxConcurrentQueries = maxConcurrentQueries;
+        }
+    }
+}
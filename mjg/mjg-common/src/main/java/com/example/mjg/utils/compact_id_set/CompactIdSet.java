@@ -0,0 +1,300 @@
+package com.example.mjg.utils.compact_id_set;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A thread-safe set of record IDs, for sets of millions of them.
+ *
+ * Integer, Long, MongoDB ObjectId and 24-char lower-case hex
+ * string IDs are packed into primitive open-addressing tables
+ * (4, 8 or 12 bytes per slot, plus a state byte, at most half
+ * full) instead of a boxed object plus a HashMap entry. Other
+ * IDs are kept in a plain HashSet. As with HashSet, Integer 1 and Long 1 are different
+ * IDs. The set is striped by ID hash, so that threads adding
+ * different IDs rarely contend.
+ *
+ * encode() gives a compact Base64 representation: sorted integer
+ * IDs are delta-encoded as varints, so that monotonic IDs take
+ * about one byte each.
+ */
+public class CompactIdSet {
+    private static final int NUM_STRIPES = 16;
+
+    private static final byte VERSION = 1;
+
+    private static final byte TAG_END = 0;
+    private static final byte TAG_STRINGS = 0x10;
+    // Tags of packed IDs: 1 + PackedIdType.ordinal()
+
+    private final Stripe[] stripes = new Stripe[NUM_STRIPES];
+
+    private static class Stripe {
+        private final PackedIdTable[] tables = new PackedIdTable[PackedIdType.values().length];
+
+        private final Set<Serializable> others = new HashSet<>();
+    }
+
+    public CompactIdSet() {
+        for (int i = 0; i < NUM_STRIPES; ++i) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public boolean add(Serializable id) {
+        Stripe stripe = stripeOf(id);
+        PackedIdType type = PackedIdType.of(id);
+        synchronized (stripe) {
+            if (type == null) {
+                return stripe.others.add(id);
+            }
+            PackedIdTable table = stripe.tables[type.ordinal()];
+            if (table == null) {
+                table = stripe.tables[type.ordinal()] = new PackedIdTable(type);
+            }
+            return table.add(pack(type, id), 0);
+        }
+    }
+
+    public void addAll(Collection<? extends Serializable> ids) {
+        ids.forEach(this::add);
+    }
+
+    public boolean remove(Serializable id) {
+        Stripe stripe = stripeOf(id);
+        PackedIdType type = PackedIdType.of(id);
+        synchronized (stripe) {
+            if (type == null) {
+                return stripe.others.remove(id);
+            }
+            PackedIdTable table = stripe.tables[type.ordinal()];
+            return table != null && table.remove(pack(type, id), 0);
+        }
+    }
+
+    public boolean contains(Serializable id) {
+        Stripe stripe = stripeOf(id);
+        PackedIdType type = PackedIdType.of(id);
+        synchronized (stripe) {
+            if (type == null) {
+                return stripe.others.contains(id);
+            }
+            PackedIdTable table = stripe.tables[type.ordinal()];
+            return table != null && table.contains(pack(type, id), 0);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (PackedIdTable table : stripe.tables) {
+                    if (table != null) {
+                        size += table.size();
+                    }
+                }
+                size += stripe.others.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Stripe by stripe, so not a consistent view
+     * if IDs are concurrently added or removed.
+     */
+    public void forEach(Consumer<Serializable> consumer) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (PackedIdTable table : stripe.tables) {
+                    if (table != null) {
+                        table.forEach(id -> consumer.accept((Serializable) id));
+                    }
+                }
+                stripe.others.forEach(consumer);
+            }
+        }
+    }
+
+    public CompactIdSet copy() {
+        CompactIdSet copy = new CompactIdSet();
+        for (int i = 0; i < NUM_STRIPES; ++i) {
+            synchronized (stripes[i]) {
+                for (int t = 0; t < stripes[i].tables.length; ++t) {
+                    if (stripes[i].tables[t] != null) {
+                        copy.stripes[i].tables[t] = stripes[i].tables[t].copy();
+                    }
+                }
+                copy.stripes[i].others.addAll(stripes[i].others);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @param unencodableIdConsumer gets IDs which are neither
+     * packed nor strings, which are then not encoded
+     */
+    public String encode(Consumer<Serializable> unencodableIdConsumer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+
+            for (PackedIdType type : PackedIdType.values()) {
+                // All IDs of this type, packed
+                long[] packed = new long[0];
+                int numLongs = 0;
+                for (Stripe stripe : stripes) {
+                    synchronized (stripe) {
+                        PackedIdTable table = stripe.tables[type.ordinal()];
+                        if (table == null || table.size() == 0) continue;
+                        packed = Arrays.copyOf(packed, numLongs + table.size() * type.width);
+                        final long[] dst = packed;
+                        final int[] cursor = { numLongs };
+                        table.forEachPacked((src, offset) -> {
+                            System.arraycopy(src, offset, dst, cursor[0], type.width);
+                            cursor[0] += type.width;
+                        });
+                        numLongs = cursor[0];
+                    }
+                }
+                if (numLongs == 0) continue;
+
+                out.writeByte(1 + type.ordinal());
+                writeVarLong(out, numLongs / type.width);
+                if (type.width == 1) {
+                    // Monotonic IDs => small deltas
+                    Arrays.sort(packed, 0, numLongs);
+                    long previous = 0;
+                    for (int i = 0; i < numLongs; ++i) {
+                        long delta = packed[i] - previous;
+                        writeVarLong(out, (delta << 1) ^ (delta >> 63));
+                        previous = packed[i];
+                    }
+                } else {
+                    for (int i = 0; i < numLongs; i += type.width) {
+                        // 12 bytes per ObjectId
+                        out.writeLong(packed[i]);
+                        out.writeInt((int) packed[i + 1]);
+                    }
+                }
+            }
+
+            Set<String> strings = new HashSet<>();
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    for (Serializable id : stripe.others) {
+                        if (id instanceof String s) {
+                            strings.add(s);
+                        } else {
+                            unencodableIdConsumer.accept(id);
+                        }
+                    }
+                }
+            }
+            if (!strings.isEmpty()) {
+                out.writeByte(TAG_STRINGS);
+                writeVarLong(out, strings.size());
+                for (String s : strings) {
+                    byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                    writeVarLong(out, utf8.length);
+                    out.write(utf8);
+                }
+            }
+
+            out.writeByte(TAG_END);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * @param encoded as returned by encode()
+     */
+    public static CompactIdSet decode(String encoded) {
+        CompactIdSet set = new CompactIdSet();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(encoded)))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported encoded ID set version: " + version);
+            }
+
+            byte tag;
+            while ((tag = in.readByte()) != TAG_END) {
+                long count = readVarLong(in);
+                if (tag == TAG_STRINGS) {
+                    for (long i = 0; i < count; ++i) {
+                        byte[] utf8 = new byte[(int) readVarLong(in)];
+                        in.readFully(utf8);
+                        set.add(new String(utf8, StandardCharsets.UTF_8));
+                    }
+                } else if (tag >= 1 && tag <= PackedIdType.values().length) {
+                    PackedIdType type = PackedIdType.values()[tag - 1];
+                    long[] key = new long[type.width];
+                    long previous = 0;
+                    for (long i = 0; i < count; ++i) {
+                        if (type.width == 1) {
+                            long zigzag = readVarLong(in);
+                            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                            key[0] = previous;
+                        } else {
+                            key[0] = in.readLong();
+                            key[1] = in.readInt() & 0xffffffffL;
+                        }
+                        set.add(type.unpack(key, 0));
+                    }
+                } else {
+                    throw new IllegalArgumentException("Malformed encoded ID set: unknown tag " + tag);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed encoded ID set", e);
+        }
+        return set;
+    }
+
+    private Stripe stripeOf(Serializable id) {
+        int h = id.hashCode();
+        h ^= h >>> 16;
+        return stripes[h & (NUM_STRIPES - 1)];
+    }
+
+    private static long[] pack(PackedIdType type, Serializable id) {
+        long[] key = new long[type.width];
+        type.pack(id, key, 0);
+        return key;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.mjg.utils.compact_id_set;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing (linear probing) hash set of packed IDs,
+ * stored in a single int[] of capacity * type.intWidth ints
+ * (e.g. 12 bytes per ObjectId), plus a state byte per slot.
+ * Not thread-safe.
+ */
+class PackedIdTable {
+    private static final byte EMPTY = 0;
+    private static final byte FULL = 1;
+    private static final byte REMOVED = 2;
+
+    final PackedIdType type;
+
+    private int[] keys;
+
+    private byte[] states;
+
+    private int size = 0;
+
+    /**
+     * FULL or REMOVED slots
+     */
+    private int used = 0;
+
+    /**
+     * The key being looked up, as ints
+     */
+    private final int[] intKey;
+
+    /**
+     * Keys passed to forEachPacked() consumers
+     */
+    private final long[] longKey;
+
+    PackedIdTable(PackedIdType type) {
+        this(type, 16);
+    }
+
+    private PackedIdTable(PackedIdType type, int capacity) {
+        this.type = type;
+        this.keys = new int[capacity * type.intWidth];
+        this.states = new byte[capacity];
+        this.intKey = new int[type.intWidth];
+        this.longKey = new long[type.width];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param key type.width longs from offset
+     */
+    boolean add(long[] key, int offset) {
+        type.toInts(key, offset, intKey, 0);
+        int slot = find(intKey, 0);
+        if (states[slot] == FULL) {
+            return false;
+        }
+        if (states[slot] == EMPTY) {
+            ++used;
+        }
+        System.arraycopy(intKey, 0, keys, slot * type.intWidth, type.intWidth);
+        states[slot] = FULL;
+        ++size;
+        // Max load factor: 1/2
+        if (used * 2 > states.length) {
+            // Same capacity if there are mostly removed slots
+            rehash(size * 4 > states.length ? states.length * 2 : states.length);
+        }
+        return true;
+    }
+
+    boolean remove(long[] key, int offset) {
+        type.toInts(key, offset, intKey, 0);
+        int slot = find(intKey, 0);
+        if (states[slot] != FULL) {
+            return false;
+        }
+        states[slot] = REMOVED;
+        --size;
+        return true;
+    }
+
+    boolean contains(long[] key, int offset) {
+        type.toInts(key, offset, intKey, 0);
+        return states[find(intKey, 0)] == FULL;
+    }
+
+    /**
+     * @param consumer gets each ID as type.width longs, in an
+     * array reused for all IDs, which must not be modified
+     */
+    void forEachPacked(PackedKeyConsumer consumer) {
+        for (int slot = 0; slot < states.length; ++slot) {
+            if (states[slot] == FULL) {
+                type.fromInts(keys, slot * type.intWidth, longKey, 0);
+                consumer.accept(longKey, 0);
+            }
+        }
+    }
+
+    void forEach(Consumer<Object> consumer) {
+        forEachPacked((src, offset) -> consumer.accept(type.unpack(src, offset)));
+    }
+
+    PackedIdTable copy() {
+        PackedIdTable copy = new PackedIdTable(type, 0);
+        copy.keys = keys.clone();
+        copy.states = states.clone();
+        copy.size = size;
+        copy.used = used;
+        return copy;
+    }
+
+    @FunctionalInterface
+    interface PackedKeyConsumer {
+        void accept(long[] src, int offset);
+    }
+
+    /**
+     * @return the slot holding the key, or else the first
+     * empty slot (where it would be added)
+     */
+    private int find(int[] key, int offset) {
+        final int width = type.intWidth;
+        final int mask = states.length - 1;
+        int slot = hash(key, offset) & mask;
+        int firstRemovedSlot = -1;
+        while (true) {
+            byte state = states[slot];
+            if (state == EMPTY) {
+                return firstRemovedSlot >= 0 ? firstRemovedSlot : slot;
+            }
+            if (state == REMOVED) {
+                if (firstRemovedSlot < 0) {
+                    firstRemovedSlot = slot;
+                }
+            } else if (Arrays.equals(keys, slot * width, slot * width + width, key, offset, offset + width)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int hash(int[] key, int offset) {
+        long h = 0;
+        for (int i = 0; i < type.intWidth; ++i) {
+            h = h * 31 + key[offset + i];
+        }
+        // murmur3 finalizer
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        byte[] oldStates = states;
+
+        keys = new int[newCapacity * type.intWidth];
+        states = new byte[newCapacity];
+        size = 0;
+        used = 0;
+
+        for (int slot = 0; slot < oldStates.length; ++slot) {
+            if (oldStates[slot] == FULL) {
+                int newSlot = find(oldKeys, slot * type.intWidth);
+                System.arraycopy(oldKeys, slot * type.intWidth, keys, newSlot * type.intWidth, type.intWidth);
+                states[newSlot] = FULL;
+                ++size;
+                ++used;
+            }
+        }
+    }
+}
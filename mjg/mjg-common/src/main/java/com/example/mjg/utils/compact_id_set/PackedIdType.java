@@ -0,0 +1,194 @@
+package com.example.mjg.utils.compact_id_set;
+
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.util.HexFormat;
+
+/**
+ * Record ID types that can be packed into longs,
+ * instead of being kept as boxed objects.
+ *
+ * Tables store them as ints, only as many as the
+ * packed value needs (see toInts()).
+ */
+enum PackedIdType {
+    INT(1, 1) {
+        @Override
+        boolean accepts(Serializable id) {
+            return id instanceof Integer;
+        }
+
+        @Override
+        void pack(Serializable id, long[] dst, int offset) {
+            dst[offset] = (Integer) id;
+        }
+
+        @Override
+        Serializable unpack(long[] src, int offset) {
+            return (int) src[offset];
+        }
+    },
+
+    LONG(1, 2) {
+        @Override
+        boolean accepts(Serializable id) {
+            return id instanceof Long;
+        }
+
+        @Override
+        void pack(Serializable id, long[] dst, int offset) {
+            dst[offset] = (Long) id;
+        }
+
+        @Override
+        Serializable unpack(long[] src, int offset) {
+            return src[offset];
+        }
+    },
+
+    /**
+     * 24-char lower-case hex strings (e.g. MongoDB ObjectIds),
+     * packed into 12 bytes.
+     */
+    OBJECT_ID_HEX(2, 3) {
+        @Override
+        boolean accepts(Serializable id) {
+            if (!(id instanceof String s) || s.length() != 24) {
+                return false;
+            }
+            for (int i = 0; i < 24; ++i) {
+                char c = s.charAt(i);
+                // Upper-case digits would not round-trip
+                if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        void pack(Serializable id, long[] dst, int offset) {
+            packHex((String) id, dst, offset);
+        }
+
+        @Override
+        Serializable unpack(long[] src, int offset) {
+            return unpackHex(src, offset);
+        }
+    },
+
+    /**
+     * MongoDB ObjectIds, without depending on the driver:
+     * packed from their hex strings, and rebuilt reflectively
+     * (like resume cursors).
+     */
+    OBJECT_ID(2, 3) {
+        @Override
+        boolean accepts(Serializable id) {
+            return id != null && id.getClass().getName().equals(OBJECT_ID_CLASS_NAME);
+        }
+
+        @Override
+        void pack(Serializable id, long[] dst, int offset) {
+            // ObjectId.toString() is its hex string
+            packHex(id.toString(), dst, offset);
+        }
+
+        @Override
+        Serializable unpack(long[] src, int offset) {
+            String hexString = unpackHex(src, offset);
+            try {
+                return (Serializable) objectIdConstructor().newInstance(hexString);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not restore ObjectId: " + hexString, e);
+            }
+        }
+    };
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private static final String OBJECT_ID_CLASS_NAME = "org.bson.types.ObjectId";
+
+    /**
+     * Number of longs per ID
+     */
+    final int width;
+
+    /**
+     * Number of ints per ID, in tables: 4, 8 or 12 bytes
+     */
+    final int intWidth;
+
+    PackedIdType(int width, int intWidth) {
+        this.width = width;
+        this.intWidth = intWidth;
+    }
+
+    /**
+     * Each of the width longs takes two ints, high bits first,
+     * except the last one if intWidth is odd, which only keeps
+     * its low 32 bits (enough for INT and ObjectIds).
+     */
+    void toInts(long[] src, int srcOffset, int[] dst, int dstOffset) {
+        for (int i = 0; i < width; ++i) {
+            long value = src[srcOffset + i];
+            if (takesTwoInts(i)) {
+                dst[dstOffset++] = (int) (value >>> 32);
+            }
+            dst[dstOffset++] = (int) value;
+        }
+    }
+
+    void fromInts(int[] src, int srcOffset, long[] dst, int dstOffset) {
+        for (int i = 0; i < width; ++i) {
+            if (takesTwoInts(i)) {
+                long high = src[srcOffset++];
+                dst[dstOffset + i] = (high << 32) | (src[srcOffset++] & 0xffffffffL);
+            } else {
+                dst[dstOffset + i] = src[srcOffset++];
+            }
+        }
+    }
+
+    private boolean takesTwoInts(int longIndex) {
+        return longIndex < width - 1 || intWidth == 2 * width;
+    }
+
+    /**
+     * Looked up once, since decoding and forEach() rebuild
+     * every ObjectId
+     */
+    private static volatile Constructor<?> objectIdConstructor;
+
+    private static Constructor<?> objectIdConstructor() throws ReflectiveOperationException {
+        Constructor<?> constructor = objectIdConstructor;
+        if (constructor == null) {
+            constructor = objectIdConstructor = Class.forName(OBJECT_ID_CLASS_NAME).getConstructor(String.class);
+        }
+        return constructor;
+    }
+
+    private static void packHex(String s, long[] dst, int offset) {
+        dst[offset] = Long.parseUnsignedLong(s, 0, 16, 16);
+        dst[offset + 1] = Long.parseLong(s, 16, 24, 16);
+    }
+
+    private static String unpackHex(long[] src, int offset) {
+        return HEX.toHexDigits(src[offset]) + HEX.toHexDigits((int) src[offset + 1]);
+    }
+
+    abstract boolean accepts(Serializable id);
+
+    abstract void pack(Serializable id, long[] dst, int offset);
+
+    abstract Serializable unpack(long[] src, int offset);
+
+    static PackedIdType of(Serializable id) {
+        for (PackedIdType type : values()) {
+            if (type.accepts(id)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.mjg.algorithms.retrying;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.mjg.config.ErrorResolution;
+import com.example.mjg.exceptions.RetriesExhaustedException;
+import com.example.mjg.storage.DataStoreRegistry;
+
+public class RetryLogicTest {
+    @ErrorResolution(retryTimes = 5, retryDelayInSeconds = 1, backoffMultiplier = 2, maxRetryDelayInSeconds = 5)
+    private static class WithBackoff {}
+
+    @ErrorResolution(retryTimes = 1, retryDelayInSeconds = 1, nonBlocking = true)
+    private static class NonBlocking {}
+
+    @ErrorResolution(retryTimes = 3, retryDelayInSeconds = 0, retryBudgetPerMinute = 2)
+    private static class WithRetryBudget {}
+
+    private static RetryLogic retryLogic(Class<?> annotatedClass, String storeFQCN) {
+        return RetryLogic
+            .fromErrorResolution(annotatedClass.getAnnotation(ErrorResolution.class), storeFQCN, new DataStoreRegistry())
+            .exceptionReporter((exception, arg) -> {})
+            .noDebugContext();
+    }
+
+    @Test
+    public void testBackoff() {
+        RetryLogic retryLogic = retryLogic(WithBackoff.class, "WithBackoffStore");
+
+        assertEquals(1000, retryLogic.computeRetryDelayInMilliseconds(0));
+        assertEquals(2000, retryLogic.computeRetryDelayInMilliseconds(1));
+        assertEquals(4000, retryLogic.computeRetryDelayInMilliseconds(2));
+        assertEquals(5000, retryLogic.computeRetryDelayInMilliseconds(3));
+    }
+
+    @Test
+    public void testNonBlockingRetry() {
+        AtomicInteger numAttempts = new AtomicInteger(0);
+        var flaky = retryLogic(NonBlocking.class, "NonBlockingStore")
+            .withCallback((Integer arg) -> {
+                if (numAttempts.incrementAndGet() == 1) {
+                    throw new Exception("Flaky");
+                }
+                return arg * 2;
+            });
+
+        CompletableFuture<Integer> result = flaky.applyAsync(21);
+        // Parked for a second, not sleeping in this thread
+        assertFalse(result.isDone());
+        assertEquals(42, result.join());
+        assertEquals(2, numAttempts.get());
+    }
+
+    @Test
+    public void testRetryBudget() {
+        AtomicInteger numAttempts = new AtomicInteger(0);
+        var failing = retryLogic(WithRetryBudget.class, "WithRetryBudgetStore")
+            .withCallback((Object arg) -> {
+                numAttempts.incrementAndGet();
+                throw new Exception("Down");
+            });
+
+        assertThrows(RetriesExhaustedException.class, () -> failing.apply(null));
+        // 1 attempt, 2 retries: the budget is exhausted
+        assertEquals(3, numAttempts.get());
+
+        // No more retries, without blocking either
+        CompletionException e = assertThrows(CompletionException.class, () -> failing.applyAsync(null).join());
+        assertInstanceOf(RetriesExhaustedException.class, e.getCause());
+        assertEquals(4, numAttempts.get());
+    }
+
+    @Test
+    public void testRetryBudgetByStore() {
+        DataStoreRegistry storeRegistry = new DataStoreRegistry();
+        RetryBudget retryBudget = storeRegistry.getRetryBudget("SharedStore", 10);
+        // Not another budget summing up with the first one
+        assertSame(retryBudget, storeRegistry.getRetryBudget("SharedStore", 2));
+        // The smallest one applies
+        assertTrue(retryBudget.tryAcquire());
+        assertTrue(retryBudget.tryAcquire());
+        assertFalse(retryBudget.tryAcquire());
+
+        assertNotSame(retryBudget, new DataStoreRegistry().getRetryBudget("SharedStore", 2));
+        assertNull(storeRegistry.getRetryBudget("SharedStore", 0));
+    }
+}
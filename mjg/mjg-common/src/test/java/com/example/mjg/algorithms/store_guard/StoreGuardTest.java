@@ -0,0 +1,99 @@
+package com.example.mjg.algorithms.store_guard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.mjg.exceptions.DuplicateDataException;
+
+public class StoreGuardTest {
+    @Test
+    public void testCircuitPausesCallsWhileOpen() throws Exception {
+        StoreGuardConfig config = new StoreGuardConfig();
+        config.setFailureThreshold(2);
+        config.setOpenMillis(300);
+        StoreGuard guard = new StoreGuard("SomeStore", config);
+
+        // Not failures of the store
+        for (int i = 0; i < 3; ++i) {
+            assertThrows(DuplicateDataException.class, () -> guard.call(() -> {
+                throw new DuplicateDataException("duplicate");
+            }));
+        }
+        assertEquals(StoreGuard.State.CLOSED, guard.getState());
+
+        for (int i = 0; i < 2; ++i) {
+            assertThrows(Exception.class, () -> guard.call(() -> {
+                throw new Exception("timeout");
+            }));
+        }
+        assertEquals(StoreGuard.State.OPEN, guard.getState());
+
+        long start = System.currentTimeMillis();
+        assertEquals(42, guard.call(() -> 42));
+        assertTrue(System.currentTimeMillis() - start >= 250);
+        assertEquals(StoreGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        StoreGuardConfig config = new StoreGuardConfig();
+        config.setInitialConcurrencyLimit(2);
+        config.setMaxConcurrencyLimit(2);
+        StoreGuard guard = new StoreGuard("OtherStore", config);
+
+        AtomicInteger inFlight = new AtomicInteger(0);
+        AtomicInteger maxInFlight = new AtomicInteger(0);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            Thread thread = new Thread(() -> {
+                try {
+                    guard.call(() -> {
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        Thread.sleep(20);
+                        return inFlight.decrementAndGet();
+                    });
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(maxInFlight.get() <= 2);
+        assertEquals(0, guard.getInFlight());
+    }
+
+    @Test
+    public void testLatencyBaselinePerOperation() throws Exception {
+        StoreGuardConfig config = new StoreGuardConfig();
+        config.setInitialConcurrencyLimit(4);
+        StoreGuard guard = new StoreGuard("SlowWritesStore", config);
+
+        for (int i = 0; i < 5; ++i) {
+            guard.call(StoreGuard.Operation.READ, 1, () -> null);
+        }
+        // Much slower than reads, and than one another,
+        // but not per record
+        guard.call(StoreGuard.Operation.WRITE, 1, () -> {
+            Thread.sleep(5);
+            return null;
+        });
+        guard.call(StoreGuard.Operation.WRITE, 10, () -> {
+            Thread.sleep(20);
+            return null;
+        });
+
+        assertEquals(4, guard.getConcurrencyLimit());
+    }
+}
@@ -19,6 +19,22 @@ public class SuperTopoSortTest {
         testWithType(i -> new Object());
     }
 
+    @Test
+    public void testLevels() {
+        SuperEdge<Integer> e1 = new SuperEdge<>(Set.of(3, 4, 5), Set.of(6));
+        SuperEdge<Integer> e2 = new SuperEdge<>(Set.of(2), Set.of(4));
+        SuperEdge<Integer> e3 = new SuperEdge<>(Set.of(1, 2), Set.of(3));
+        SuperEdge<Integer> e4 = new SuperEdge<>(Set.of(2), Set.of(5));
+        SuperEdge<Integer> e5 = new SuperEdge<>(Set.of(6), Set.of(7));
+
+        List<List<SuperEdge<Integer>>> levels = new SuperTopoSort<>(List.of(e5, e1, e2, e3, e4)).toLevels();
+
+        assertEquals(3, levels.size());
+        assertEquals(Set.of(e2, e3, e4), new HashSet<>(levels.get(0)));
+        assertEquals(List.of(e1), levels.get(1));
+        assertEquals(List.of(e5), levels.get(2));
+    }
+
     public <T> void testWithType(Function<Integer, T> typeMapper) {
         final Map<Integer, T> mappedValues = new HashMap<>();
         final Function<Integer, T> t = (Integer i) -> mappedValues.computeIfAbsent(
@@ -101,6 +117,28 @@ public class SuperTopoSortTest {
         validateSolution(
             sorter.toSorted()
         );
+        validateLevels(
+            sorter.toLevels()
+        );
+    }
+
+    /**
+     * Edges of a level must only depend on edges of previous levels.
+     */
+    private <T> void validateLevels(List<List<SuperEdge<T>>> levels) {
+        List<SuperEdge<T>> allEdges = levels.stream().flatMap(List::stream).toList();
+        HashSet<T> resolvedValues = getAllRootValuesFromEdges(collectAllValuesFromEdges(allEdges), allEdges);
+
+        for (List<SuperEdge<T>> level : levels) {
+            for (SuperEdge<T> edge : level) {
+                assertTrue(
+                    resolvedValues.containsAll(edge.getSourceNodeValues())
+                );
+            }
+            for (SuperEdge<T> edge : level) {
+                resolvedValues.addAll(edge.getTargetNodeValues());
+            }
+        }
     }
 
     private <T> void validateSolution(List<SuperEdge<T>> sortedSuperEdges) {
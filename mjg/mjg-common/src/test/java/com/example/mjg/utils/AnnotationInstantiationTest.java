@@ -23,5 +23,10 @@ public class AnnotationInstantiationTest {
             35,
             r.retryDelayInSeconds()
         );
+
+        assertEquals(
+            false,
+            r.nonBlocking()
+        );
     }
 }
@@ -0,0 +1,51 @@
+package com.example.mjg.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+public class BoundedParallelProcessorTest {
+    @Test
+    public void testAwaitTerminationDrainsQueue() throws InterruptedException {
+        List<Integer> processed = new CopyOnWriteArrayList<>();
+
+        try (BoundedParallelProcessor<Integer> processor = new BoundedParallelProcessor<>(1, 2, processed::add)) {
+            for (int i = 0; i < 10; ++i) {
+                assertTrue(processor.submit(i));
+            }
+            assertTrue(processor.awaitTermination());
+            processor.throwIfFailed();
+        }
+
+        // one worker => FIFO
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), processed);
+    }
+
+    @Test
+    public void testFailureStopsAndIsRethrown() throws InterruptedException {
+        try (BoundedParallelProcessor<Integer> processor = new BoundedParallelProcessor<>(1, 1, item -> {
+            if (item == 3) {
+                throw new IllegalStateException("fatal");
+            }
+        })) {
+            boolean allAccepted = true;
+            for (int i = 0; i < 100; ++i) {
+                if (!processor.submit(i)) {
+                    allAccepted = false;
+                    break;
+                }
+            }
+            processor.awaitTermination();
+
+            assertFalse(allAccepted);
+            assertTrue(processor.isStopped());
+            assertThrows(IllegalStateException.class, processor::throwIfFailed);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.mjg.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+public class LruCacheTest {
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        // "a" is now more recently used than "b"
+        assertEquals(1, cache.get("a"));
+
+        cache.put("c", 3);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.get("a"));
+        assertEquals(3, cache.get("c"));
+
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.mjg.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.mjg.storage.DataStoreRegistry;
+
+public class QueryPermitsTest {
+    @Test
+    public void testQueryPermitsByStore() {
+        DataStoreRegistry storeRegistry = new DataStoreRegistry();
+        QueryPermits queryPermits = storeRegistry.getQueryPermits("SharedStore", 4);
+        assertTrue(queryPermits.tryAcquire(3));
+
+        // Not other permits summing up with the first ones
+        assertSame(queryPermits, storeRegistry.getQueryPermits("SharedStore", 2));
+        // The smallest limit applies, once queries in flight are done
+        assertEquals(2, queryPermits.getMaxConcurrentQueries());
+        assertFalse(queryPermits.tryAcquire());
+        queryPermits.release(3);
+        assertTrue(queryPermits.tryAcquire(2));
+        assertFalse(queryPermits.tryAcquire());
+
+        assertNotSame(queryPermits, new DataStoreRegistry().getQueryPermits("SharedStore", 2));
+        assertNull(storeRegistry.getQueryPermits("SharedStore", 1));
+    }
+}
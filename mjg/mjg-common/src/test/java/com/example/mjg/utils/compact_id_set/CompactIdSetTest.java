@@ -0,0 +1,87 @@
+package com.example.mjg.utils.compact_id_set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+public class CompactIdSetTest {
+    @Test
+    public void testBehavesLikeHashSet() {
+        CompactIdSet set = new CompactIdSet();
+        Set<Serializable> expected = new HashSet<>();
+
+        for (int i = 0; i < 10_000; ++i) {
+            List<Serializable> ids = List.of(
+                i,
+                (long) i * 1_000_003L,
+                String.format("65f1a2b3c4d5e6f7%08x", i),
+                "station-" + i
+            );
+            for (Serializable id : ids) {
+                assertEquals(expected.add(id), set.add(id));
+            }
+            if (i % 3 == 0) {
+                assertEquals(expected.remove(ids.get(i % 4)), set.remove(ids.get(i % 4)));
+            }
+        }
+
+        // Integer 1 and Long 1 are different IDs
+        assertTrue(set.contains(1));
+        assertFalse(set.contains(1L));
+        // Sign bits of every packed int
+        for (Serializable id : List.<Serializable>of(
+            Integer.MIN_VALUE, -1, Long.MIN_VALUE, -1L, 1L << 32,
+            "ffffffffffffffffffffffff", "00000000000000000000000f", "0000000080000000ffffffff"
+        )) {
+            assertEquals(expected.add(id), set.add(id));
+            assertTrue(set.contains(id));
+        }
+        assertFalse(set.contains("0000000080000000fffffffe"));
+
+        // Upper-case hex is not packed, but kept as is
+        assertTrue(set.add("65F1A2B3C4D5E6F700000001"));
+        expected.add("65F1A2B3C4D5E6F700000001");
+
+        assertEquals(expected.size(), set.size());
+        Set<Serializable> actual = new HashSet<>();
+        set.forEach(actual::add);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        CompactIdSet set = new CompactIdSet();
+        for (int i = 0; i < 100_000; ++i) {
+            set.add(i);
+        }
+        set.add(Long.MIN_VALUE);
+        set.add(Long.MAX_VALUE);
+        set.add("65f1a2b3c4d5e6f7a8b9c0d1");
+        set.add("some id");
+        UUID uuid = UUID.randomUUID();
+        set.add(uuid);
+
+        Set<Serializable> unencodable = new HashSet<>();
+        String encoded = set.encode(unencodable::add);
+
+        // Monotonic integer IDs: about 1 byte each
+        assertTrue(encoded.length() < 100_000 * 2);
+        assertEquals(Set.of(uuid), unencodable);
+
+        CompactIdSet decoded = CompactIdSet.decode(encoded);
+        Set<Serializable> expected = new HashSet<>();
+        set.forEach(expected::add);
+        expected.remove(uuid);
+        Set<Serializable> actual = new HashSet<>();
+        decoded.forEach(actual::add);
+        assertEquals(expected, actual);
+    }
+}
@@ -5,17 +5,25 @@ import com.example.mjg.processors.Migration.RuntimeMigration;
 import com.example.mjg.processors.Migration.RuntimeMigrationDataLocation;
 import com.example.mjg.services.migration.internal.migration_runner.MigrationRunner;
 import com.example.mjg.services.migration.internal.fault_tolerance.MigrationProgressManager;
+import com.example.mjg.services.migration.internal.fault_tolerance.ProgressJournal;
 import com.example.mjg.services.migration.internal.fault_tolerance.schemas.MigrationProgress;
 import com.example.mjg.storage.DataStoreRegistry;
 import com.example.mjg.storage.MigrationRegistry;
+import com.example.mjg.utils.EngineExecutors;
 
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
@@ -30,6 +38,15 @@ public class MigrationService {
     @Getter
     private final MigrationProgressManager migrationProgressManager = new MigrationProgressManager();
 
+    /**
+     * Maximum number of migrations running at the same time. Only
+     * migrations of the same dependency level (i.e. not depending
+     * on each other) may run concurrently.
+     */
+    @Getter
+    @Setter
+    private int maxConcurrentMigrations = 1;
+
     public MigrationService(DataStoreRegistry dataStoreRegistry) {
         this.dataStoreRegistry = dataStoreRegistry;
     }
@@ -39,6 +56,19 @@ public class MigrationService {
         _run();
     }
 
+    /**
+     * Restores progress from the journal, and keeps it journaled
+     * while running, in addition to persistence callbacks.
+     */
+    public void run(ProgressJournal progressJournal) throws IOException {
+        progressJournal.open(migrationProgressManager);
+        try {
+            _run();
+        } finally {
+            progressJournal.close();
+        }
+    }
+
     public void runWithPreviousProgress() {
         _run();
     }
@@ -49,44 +79,106 @@ public class MigrationService {
     }
 
     private void _run() {
-        List<RuntimeMigration> sortedMigrations = getSortedMigrations();
+        List<List<RuntimeMigration>> migrationLevels = getMigrationLevels();
 
-        System.out.println("Loading compiled migration ordering: " + sortedMigrations);
+        System.out.println("Loading compiled migration ordering: " + migrationLevels);
 
-        List<MigrationRunner> migrationRunners = sortedMigrations
+        List<List<MigrationRunner>> migrationRunnerLevels = migrationLevels
             .stream()
-            .map(runtimeMigration -> new MigrationRunner(
-                dataStoreRegistry,
-                migrationRegistry,
-                migrationProgressManager,
-                runtimeMigration.getMigrationFQCN()
-            ))
+            .map(level -> level
+                .stream()
+                .map(runtimeMigration -> new MigrationRunner(
+                    dataStoreRegistry,
+                    migrationRegistry,
+                    migrationProgressManager,
+                    runtimeMigration.getMigrationFQCN()
+                ))
+                .toList()
+            )
             .toList();
 
         try {
-            for (MigrationRunner runner : migrationRunners) {
-                log.info("Starting migration: " + runner.getMigrationFQCN());
-                migrationProgressManager.startMigration(runner.getMigrationFQCN());
-
-                try {
-                    runner.run();
-                } catch (RetriesExhaustedException propagatedException) {
-                    log.info("Error while running migration: " + runner.getMigrationFQCN() + " (number of failures: "
-                        + runner.getMigrationErrorInvestigator().getNumFailures()
-                        + ") ; propagated exception = " + propagatedException
-                    );
+            for (List<MigrationRunner> level : migrationRunnerLevels) {
+                // Even when running concurrently, the next level
+                // is never started after a failure
+                if (!runLevel(level)) {
                     log.info("Stopping migration process altogether");
                     break;
                 }
-
-                migrationProgressManager.finishMigration(runner.getMigrationFQCN());
-                log.info("Finished migration: " + runner.getMigrationFQCN());
             }
         } finally {
             migrationProgressManager.flush();
         }
     }
-    
+
+    /**
+     * @return false if at least one migration failed
+     */
+    private boolean runLevel(List<MigrationRunner> level) {
+        final int numThreads = Math.min(maxConcurrentMigrations, level.size());
+        if (numThreads <= 1) {
+            for (MigrationRunner runner : level) {
+                if (!runMigration(runner)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        AtomicBoolean failed = new AtomicBoolean(false);
+        ExecutorService executor = EngineExecutors.newFixedThreadPool(numThreads, "mjg-migration");
+        try {
+            List<Future<?>> futures = level.stream()
+                .<Future<?>>map(runner -> executor.submit(() -> {
+                    // Migrations of this level not started yet are skipped
+                    if (!failed.get() && !runMigration(runner)) {
+                        failed.set(true);
+                    }
+                }))
+                .toList();
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new RuntimeException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        return !failed.get();
+    }
+
+    /**
+     * @return false if the migration failed
+     */
+    private boolean runMigration(MigrationRunner runner) {
+        log.info("Starting migration: " + runner.getMigrationFQCN());
+        migrationProgressManager.startMigration(runner.getMigrationFQCN());
+
+        try {
+            runner.run();
+        } catch (RetriesExhaustedException propagatedException) {
+            log.info("Error while running migration: " + runner.getMigrationFQCN() + " (number of failures: "
+                + runner.getMigrationErrorInvestigator().getNumFailures()
+                + ") ; propagated exception = " + propagatedException
+            );
+            return false;
+        }
+
+        migrationProgressManager.finishMigration(runner.getMigrationFQCN());
+        log.info("Finished migration: " + runner.getMigrationFQCN());
+        return true;
+    }
+
     public void addProgressPersistenceCallback(
         Consumer<MigrationProgress> callback
     ) {
@@ -98,11 +190,20 @@ public class MigrationService {
     }
 
     @SuppressWarnings("unchecked")
-    private List<RuntimeMigration> getSortedMigrations() {
+    private List<List<RuntimeMigration>> getMigrationLevels() {
         try {
             Class<?> clazz = Class.forName(RuntimeMigrationDataLocation.FQCN);
-            Field field = clazz.getField("sortedMigrations");
-            return (List<RuntimeMigration>) field.get(null);
+            try {
+                Field field = clazz.getField("migrationLevels");
+                return (List<List<RuntimeMigration>>) field.get(null);
+            } catch (NoSuchFieldException e) {
+                // Compiled by an older processor: one migration per level
+                Field field = clazz.getField("sortedMigrations");
+                return ((List<RuntimeMigration>) field.get(null))
+                    .stream()
+                    .map(List::of)
+                    .toList();
+            }
         } catch (ClassNotFoundException | NoSuchFieldException | IllegalAccessException e) {
             throw new RuntimeException("mjg: cannot get compiled migration data. Try: mvn clean compile test-compile", e);
         }
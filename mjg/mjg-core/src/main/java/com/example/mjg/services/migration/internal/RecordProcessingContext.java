@@ -2,6 +2,7 @@ package com.example.mjg.services.migration.internal;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.example.mjg.data.MigratableEntity;
 
@@ -13,6 +14,13 @@ public class RecordProcessingContext {
 
     private final Map<String, Object> aggregates;
 
+    /**
+     * Held while a migration method uses the aggregates, when
+     * matchings of the same order run concurrently. Not a monitor,
+     * so that virtual threads blocking inside do not pin their carrier.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
     public RecordProcessingContext(MigratableEntity record) {
         this.record = record;
 
@@ -2,6 +2,7 @@ package com.example.mjg.services.migration.internal.fault_tolerance;
 
 import com.example.mjg.config.ErrorResolution;
 import com.example.mjg.data.MigratableEntity;
+import com.example.mjg.services.migration.internal.RecordProcessingContext;
 import com.example.mjg.services.migration.internal.migration_runner.MigrationRunner;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -18,4 +19,34 @@ public class FailedRecordGroup implements RecordGroup {
     private ErrorResolution errorResolution;
 
     private Exception exception;
+
+    /**
+     * If not null, records can be retried from this
+     * checkpoint (contexts are in the same order as records)
+     */
+    private ReductionCheckpoint checkpoint;
+
+    public FailedRecordGroup(
+        List<MigratableEntity> records,
+        MigrationRunner migrationRunner,
+        ErrorResolution errorResolution,
+        Exception exception
+    ) {
+        this(records, migrationRunner, errorResolution, exception, null);
+    }
+
+    public static FailedRecordGroup fromCheckpoint(
+        ReductionCheckpoint checkpoint,
+        MigrationRunner migrationRunner,
+        ErrorResolution errorResolution,
+        Exception exception
+    ) {
+        return new FailedRecordGroup(
+            checkpoint.contexts().stream().map(RecordProcessingContext::getRecord).toList(),
+            migrationRunner,
+            errorResolution,
+            exception,
+            checkpoint
+        );
+    }
 }
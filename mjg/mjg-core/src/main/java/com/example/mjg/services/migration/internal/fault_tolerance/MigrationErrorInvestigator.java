@@ -6,11 +6,15 @@ import com.example.mjg.services.migration.internal.migration_runner.MigrationRun
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -38,22 +42,28 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 public class MigrationErrorInvestigator {
-    private final LinkedBlockingQueue<FailedRecordGroup>
-        failedRecordGroupQueue;
-
     private final MigrationProgressManager migrationProgressManager;
 
     private final MigrationRunner migrationRunner;
 
-    private final int numThreads;
-    private final ExecutorService pool;
+    /**
+     * Work-stealing: investigations of failures reported from a
+     * worker (i.e. while rerunning a half) are pushed onto that
+     * worker's own deque, which it pops LIFO, so that the bisection
+     * tree is explored depth-first and single culprits are identified
+     * quickly, while idle workers steal the oldest (largest) halves.
+     */
+    private final ForkJoinPool pool;
 
     private final AtomicBoolean stopped;
 
-    private final AtomicBoolean noMoreExternalTasks;
-
     private final AtomicBoolean hasFatalError;
 
+    /**
+     * Failed record groups reported, but not yet investigated
+     */
+    private final AtomicInteger pendingFailedRecordGroups;
+
     /**
      * Failures that, even when retried, still did not resolve,
      * and have been submitted to migrationProgressManager
@@ -62,58 +72,53 @@ public class MigrationErrorInvestigator {
 
     private final Set<Serializable> ignoredRecordIds;
 
+    /**
+     * Records in checkpoints of failed record groups kept
+     * (in memory) for investigation, at most maxCheckpointedRecords.
+     * Beyond that, checkpoints are dropped, and records are
+     * read, matched and reduced all over again instead.
+     */
+    private final AtomicInteger checkpointedRecords;
+
+    private final int maxCheckpointedRecords;
+
     /**
      * Only calls when join() is done.
      */
     public int getNumFailures() {
-        return failedRecordGroupQueue.size() + unresolvableFailures.get() + (hasFatalError.get() ? 1 : 0);
+        return pendingFailedRecordGroups.get() + unresolvableFailures.get() + (hasFatalError.get() ? 1 : 0);
     }
 
     public MigrationErrorInvestigator(
         MigrationProgressManager migrationProgressManager,
         MigrationRunner migrationRunner
     ) {
-        this.failedRecordGroupQueue = new LinkedBlockingQueue<>();
         this.migrationProgressManager = migrationProgressManager;
         this.migrationRunner = migrationRunner;
-        this.numThreads = Runtime.getRuntime().availableProcessors();
-        this.pool = Executors.newFixedThreadPool(numThreads);
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
         this.stopped = new AtomicBoolean(false);
-        this.unresolvableFailures = new AtomicInteger(0);
-        this.noMoreExternalTasks = new AtomicBoolean(false);
         this.hasFatalError = new AtomicBoolean(false);
+        this.pendingFailedRecordGroups = new AtomicInteger(0);
+        this.unresolvableFailures = new AtomicInteger(0);
+        this.checkpointedRecords = new AtomicInteger(0);
+        this.maxCheckpointedRecords = 4 * pool.getParallelism() * Math.max(1, migrationRunner.getForEachRecordFrom().batchSize());
 
         this.ignoredRecordIds = migrationProgressManager.getIgnoredRecordIds(
             migrationRunner.getMigrationFQCN()
         );
     }
 
-    public void startInBackground() {
-        Runnable workerRunnable = this::backgroundProcessingThreadRunnable;
-
-        for (int i = 0; i < numThreads; ++i) {
-            pool.submit(workerRunnable);
-        }
-
-        // tell the pool: "no more new tasks will be submitted"
-        pool.shutdown();
-    }
-
     /**
      * When the main thread is done running
      * this particular @Migration, call this
      * to finish all leftover error handling
      */
     public void join() {
-        this.noMoreExternalTasks.set(true);
-
         try {
-            // wait until all tasks are done
+            // wait until all investigations, including
+            // those spawned by other ones, are done
             @SuppressWarnings("unused")
-            boolean ignored = pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
-        } catch (InterruptedException e) {
-            // if this thread is interrupted, handle appropriately
-            Thread.currentThread().interrupt();
+            boolean ignored = pool.awaitQuiescence(Long.MAX_VALUE, TimeUnit.DAYS);
         } finally {
             this.stopped.set(true);
             pool.shutdownNow();
@@ -124,86 +129,182 @@ public class MigrationErrorInvestigator {
      * Stop with best effort
      */
     public void stop() {
-        this.noMoreExternalTasks.set(true);
         this.stopped.set(true);
         pool.shutdownNow();
 
+        if (isPoolThread()) {
+            // Waiting for ourselves would never end
+            return;
+        }
+
         try {
             @SuppressWarnings("unused")
             boolean ignored = pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-        } finally {
-            pool.shutdownNow();
         }
     }
-    
-    private void backgroundProcessingThreadRunnable() {
-        FailedRecordGroup failedRecordGroup;
-        while (true) {
-            if (stopped.get()) break;
+
+    private boolean isPoolThread() {
+        return Thread.currentThread() instanceof ForkJoinWorkerThread workerThread
+            && workerThread.getPool() == pool;
+    }
+
+    private void investigate(FailedRecordGroup failedRecordGroup) {
+        pendingFailedRecordGroups.incrementAndGet();
+
+        // Single records are not run again anyway
+        ReductionCheckpoint checkpoint = failedRecordGroup.getRecords().size() > 1
+            ? failedRecordGroup.getCheckpoint()
+            : null;
+        final int numCheckpointedRecords = checkpoint == null ? 0 : checkpoint.contexts().size();
+        if (checkpoint != null && checkpointedRecords.addAndGet(numCheckpointedRecords) > maxCheckpointedRecords) {
+            checkpointedRecords.addAndGet(-numCheckpointedRecords);
+            checkpoint = null;
+        }
+        final ReductionCheckpoint keptCheckpoint = checkpoint;
+
+        ForkJoinTask<?> task = ForkJoinTask.adapt(() -> {
             try {
-                failedRecordGroup = failedRecordGroupQueue.poll(500, TimeUnit.MILLISECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
-            if (failedRecordGroup == null) {
-                if (noMoreExternalTasks.get() && failedRecordGroupQueue.isEmpty()) {
-                    break;
-                } else {
-                    continue;
+                if (stopped.get()) return;
+                investigateNow(failedRecordGroup.getRecords(), keptCheckpoint);
+                pendingFailedRecordGroups.decrementAndGet();
+            } finally {
+                if (keptCheckpoint != null) {
+                    checkpointedRecords.addAndGet(-numCheckpointedRecords);
                 }
             }
-            if (stopped.get()) break;
-
-            List<MigratableEntity> records = failedRecordGroup.getRecords();
-            int N = records.size();
-
-            if (N > 1) {
-                // Identify the culprit of failure among several records:
-                // Divide the list by two, retry each.
-                // For each one that fails, we could narrow down the search scope
-                // by half!
-                // (It is possible that both halves fail, or just one.)
-                int mid = N / 2;
-                List<MigratableEntity> firstHalfRecords = records.subList(0, mid);
-                List<MigratableEntity> secondHalfRecords = records.subList(mid, N);
-                // TODO: Submit to a pool
-                migrationRunner.runWithRecordIdIn(firstHalfRecords.stream().map(MigratableEntity::getMigratableId).collect(Collectors.toSet()));
-                if (stopped.get()) break;
-                // TODO: Submit to a pool
-                migrationRunner.runWithRecordIdIn(secondHalfRecords.stream().map(MigratableEntity::getMigratableId).collect(Collectors.toSet()));
-            } else if (N == 0) {
-                continue;
+        });
+
+        try {
+            if (isPoolThread()) {
+                task.fork();
             } else {
-                // N == 1
-                // This record group got sent here because records
-                // in it failed to migrate. Here the group consists
-                // of just ONE record.
-                // So we IDENTIFIED the culprit.
-                this.unresolvableFailures.incrementAndGet();
-                // (We already reported it to migrationProgressManager.
-                // Along the way, all records that successfully migrated
-                // on retry also got reported, so no need to:
-                //      migrationProgressManager.reportFailedRecords...
-                // here.)
+                pool.execute(task);
+            }
+        } catch (RejectedExecutionException e) {
+            // Stopped: left pending, i.e. counted as failures
+            if (keptCheckpoint != null) {
+                checkpointedRecords.addAndGet(-numCheckpointedRecords);
             }
         }
     }
-    
+
+    private void investigateNow(List<MigratableEntity> records, ReductionCheckpoint checkpoint) {
+        int N = records.size();
+
+        if (N > 1) {
+            // Identify the culprit of failure among several records:
+            // Divide the list by two, retry each.
+            // For each one that fails, we could narrow down the search scope
+            // by half!
+            // (It is possible that both halves fail, or just one.)
+            // The second half may be stolen by another worker meanwhile.
+            // With a checkpoint, only the failed matching (and
+            // what comes after it) is run again.
+            int mid = N / 2;
+            if (checkpoint != null) {
+                ForkJoinTask.invokeAll(
+                    rerun(checkpoint.subList(0, mid)),
+                    rerun(checkpoint.subList(mid, N))
+                );
+            } else {
+                ForkJoinTask.invokeAll(
+                    rerun(records.subList(0, mid)),
+                    rerun(records.subList(mid, N))
+                );
+            }
+        } else if (N == 1) {
+            // This record group got sent here because records
+            // in it failed to migrate. Here the group consists
+            // of just ONE record.
+            // So we IDENTIFIED the culprit.
+            this.unresolvableFailures.incrementAndGet();
+            // (We already reported it to migrationProgressManager.
+            // Along the way, all records that successfully migrated
+            // on retry also got reported, so no need to:
+            //      migrationProgressManager.reportFailedRecords...
+            // here.)
+        }
+    }
+
+    private ForkJoinTask<?> rerun(ReductionCheckpoint checkpoint) {
+        return ForkJoinTask.adapt(() -> {
+            if (stopped.get()) return;
+            runBlocking(() -> migrationRunner.runFromCheckpoint(checkpoint));
+        });
+    }
+
+    private ForkJoinTask<?> rerun(List<MigratableEntity> records) {
+        Set<Serializable> recordIds = records.stream()
+            .map(MigratableEntity::getMigratableId)
+            .collect(Collectors.toSet());
+        return ForkJoinTask.adapt(() -> {
+            if (stopped.get()) return;
+            runBlocking(() -> migrationRunner.runWithRecordIdIn(recordIds));
+        });
+    }
+
+    /**
+     * Reruns block on stores (and on retry delays), so the pool
+     * is told about it, and may add a spare worker meanwhile,
+     * rather than leaving other halves and chunks waiting.
+     */
+    private void runBlocking(Runnable rerun) {
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                private boolean done = false;
+
+                @Override
+                public boolean block() {
+                    try {
+                        rerun.run();
+                    } finally {
+                        done = true;
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return done;
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
-     * Load from migrationProgressManager
+     * Load from migrationProgressManager, and retry in
+     * chunks of the input batch size, in parallel.
+     * Returns once all chunks have been retried.
      */
     public void retryPreviouslyFailedRecords() {
         Set<Serializable> failedRecordIds = migrationProgressManager.getFailedRecordIds(
             migrationRunner.getMigrationFQCN()
         );
-        if (!failedRecordIds.isEmpty()) {
-            log.info("Retrying " + failedRecordIds.size() + " previously failed records from migration: " + migrationRunner.getMigrationFQCN());
+        if (failedRecordIds.isEmpty()) {
+            return;
+        }
+        log.info("Retrying " + failedRecordIds.size() + " previously failed records from migration: " + migrationRunner.getMigrationFQCN());
 
-            // TODO: Submit to a pool
-            migrationRunner.runWithRecordIdIn(failedRecordIds);
+        final int chunkSize = Math.max(1, migrationRunner.getForEachRecordFrom().batchSize());
+        List<Serializable> ids = new ArrayList<>(failedRecordIds);
+        List<ForkJoinTask<?>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            Set<Serializable> chunkIds = new HashSet<>(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+            chunks.add(pool.submit(() -> {
+                if (stopped.get()) return;
+                runBlocking(() -> migrationRunner.runWithRecordIdIn(chunkIds));
+            }));
+        }
+        for (ForkJoinTask<?> chunk : chunks) {
+            try {
+                chunk.join();
+            } catch (CancellationException e) {
+                // Stopped
+            }
         }
     }
 
@@ -226,6 +327,20 @@ public class MigrationErrorInvestigator {
         );
     }
 
+    public void checkRecordIdsJournalable(
+        Set<Serializable> inputRecordIds
+    ) {
+        migrationProgressManager.checkRecordIdsJournalable(inputRecordIds);
+    }
+
+    public Serializable getResumeCursor() {
+        return migrationProgressManager.getResumeCursor(migrationRunner.getMigrationFQCN());
+    }
+
+    public void advanceResumeCursor(Serializable lastRecordId) {
+        migrationProgressManager.advanceResumeCursor(migrationRunner.getMigrationFQCN(), lastRecordId);
+    }
+
     public void excludeIgnoredRecordIds(
         Set<Serializable> inputRecordIds
     ) {
@@ -238,11 +353,7 @@ public class MigrationErrorInvestigator {
             return;
         }
         migrationProgressManager.reportFailedRecords(failedRecordGroup);
-        try {
-            failedRecordGroupQueue.put(failedRecordGroup);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        investigate(failedRecordGroup);
     }
 
     public void reportFatalError(Exception e) {
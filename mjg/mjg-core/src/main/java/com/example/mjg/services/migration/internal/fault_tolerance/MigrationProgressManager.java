@@ -4,8 +4,11 @@ import com.example.mjg.data.MigratableEntity;
 import com.example.mjg.services.migration.internal.fault_tolerance.schemas.FailedRecord;
 import com.example.mjg.services.migration.internal.fault_tolerance.schemas.FailedRecordAction;
 import com.example.mjg.services.migration.internal.fault_tolerance.schemas.MigrationProgress;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.MigrationProgressMetadata;
 import com.example.mjg.services.migration.internal.fault_tolerance.schemas.MigrationProgressPerMigrationClass;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.ResumeCursor;
 import com.example.mjg.utils.ConcurrentContainer;
+import com.example.mjg.utils.compact_id_set.CompactIdSet;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -14,22 +17,71 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
+/**
+ * Progress is kept per migration class in concurrent collections
+ * (failed records indexed by ID, succeeded record IDs in a
+ * CompactIdSet, also persisted encoded), so that records can be reported
+ * by several threads at once. Reporting threads share snapshotLock;
+ * only snapshot() and restorePreviousProgress() hold it exclusively,
+ * so that persisted progress is always consistent.
+ *
+ * If a ProgressJournal is attached, every change is also appended
+ * to it, while holding snapshotLock (shared), so that a snapshot
+ * taken while rotating the journal covers exactly the entries
+ * of the segments before. When the journal is behind, reporting
+ * threads wait for it before taking snapshotLock (see
+ * ProgressJournal.awaitCapacity()).
+ */
 @Slf4j
 public class MigrationProgressManager {
-    ConcurrentContainer<MigrationProgress> migrationProgressContainer;
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+    private final Map<String, LiveMigrationProgress> progressByMigrationFQCN = new ConcurrentHashMap<>();
+
+    private final Set<String> completedMigrationFQCNs = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> inProgressMigrationFQCNs = ConcurrentHashMap.newKeySet();
+
+    private final Queue<String> fatalErrors = new ConcurrentLinkedQueue<>();
+
+    private volatile LocalDateTime timestamp = LocalDateTime.now();
 
     ConcurrentContainer<List<Consumer<MigrationProgress>>> onProgressPersistenceCallbacksContainer;
 
+    private volatile ProgressJournal journal = null;
+
+    private static class LiveMigrationProgress {
+        private final CompactIdSet succeededRecordIds;
+
+        private LiveMigrationProgress(CompactIdSet succeededRecordIds) {
+            this.succeededRecordIds = succeededRecordIds;
+        }
+
+        /**
+         * Also guards moving a record between succeeded and failed
+         * ones, by computing on its ID.
+         */
+        private final Map<Serializable, FailedRecord> failedRecordsById = new ConcurrentHashMap<>();
+
+        private volatile Serializable resumeCursor = null;
+    }
+
     public MigrationProgressManager() {
-        this.migrationProgressContainer = new ConcurrentContainer<>(new MigrationProgress());
         this.onProgressPersistenceCallbacksContainer = new ConcurrentContainer<>(
                 new ArrayList<>());
         Runtime.getRuntime().addShutdownHook(
@@ -48,51 +100,44 @@ public class MigrationProgressManager {
             }));
     }
 
+    private LiveMigrationProgress getLiveProgress(String migrationFQCN) {
+        return progressByMigrationFQCN.computeIfAbsent(migrationFQCN, k -> new LiveMigrationProgress(new CompactIdSet()));
+    }
+
+    private void withSharedLock(Runnable callback) {
+        ProgressJournal journal = this.journal;
+        if (journal != null) {
+            journal.awaitCapacity();
+        }
+        snapshotLock.readLock().lock();
+        try {
+            callback.run();
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
     /**
-     * Get and remove.
+     * IDs of failed records to retry.
      */
     public Set<Serializable> getFailedRecordIds(String migrationFQCN) {
-        Set<Serializable> failedRecordIds = new HashSet<>();
-        migrationProgressContainer.read(migrationProgress -> {
-            MigrationProgressPerMigrationClass migrationProgressOfThisMigrationClass = migrationProgress
-                .getMigrationProgress().get(
-                    migrationFQCN
-                );
-
-            if (migrationProgressOfThisMigrationClass != null) {
-                List<FailedRecord> failedRecordsInMigrationProgress = migrationProgressOfThisMigrationClass.getFailedRecords();
-                Set<Serializable> failedRecordIds1 = failedRecordsInMigrationProgress
-                    .stream()
-                    .filter(failedRecord -> FailedRecordAction.Type.RETRY.equals(failedRecord.getAction().getActionType()))
-                    .map(FailedRecord::getId)
-                    .collect(Collectors.toSet());
-
-                failedRecordIds.addAll(failedRecordIds1);
-            }
-        });
-
-        return failedRecordIds;
+        return getFailedRecordIds(migrationFQCN, FailedRecordAction.Type.RETRY);
     }
 
     public Set<Serializable> getIgnoredRecordIds(String migrationFQCN) {
-        Set<Serializable> ignoredRecordIds = new HashSet<>();
-        migrationProgressContainer.read(migrationProgress -> {
-            MigrationProgressPerMigrationClass migrationProgressOfThisMigrationClass = migrationProgress
-                .getMigrationProgress().getOrDefault(
-                    migrationFQCN,
-                    new MigrationProgressPerMigrationClass(migrationFQCN)
-                );
-            
-            Set<Serializable> ignoredRecordIds1 = migrationProgressOfThisMigrationClass.getFailedRecords()
-                .stream()
-                .filter(failedRecord -> failedRecord.getAction().getActionType() == FailedRecordAction.Type.IGNORE)
-                .map(FailedRecord::getId)
-                .collect(Collectors.toSet());
-            
-            ignoredRecordIds.addAll(ignoredRecordIds1);
-        });
+        return getFailedRecordIds(migrationFQCN, FailedRecordAction.Type.IGNORE);
+    }
 
-        return ignoredRecordIds;
+    private Set<Serializable> getFailedRecordIds(String migrationFQCN, FailedRecordAction.Type actionType) {
+        LiveMigrationProgress progress = progressByMigrationFQCN.get(migrationFQCN);
+        if (progress == null) {
+            return new HashSet<>();
+        }
+        return progress.failedRecordsById.values()
+            .stream()
+            .filter(failedRecord -> failedRecord.getAction().getActionType() == actionType)
+            .map(FailedRecord::getId)
+            .collect(Collectors.toSet());
     }
 
     @Getter
@@ -108,30 +153,89 @@ public class MigrationProgressManager {
      * and call persistence callbacks
      */
     public void flush() {
-        migrationProgressContainer.read(migrationProgress -> {
-            if (migrationProgress == null) {
-                log.warn("Migration progress is null, ignoring persistence callbacks");
-                return;
+        ProgressJournal journal = this.journal;
+        if (journal != null) {
+            journal.sync();
+        }
+
+        MigrationProgress migrationProgress = snapshot();
+        onProgressPersistenceCallbacksContainer.read(callbacks -> {
+            if (callbacks.isEmpty()) {
+                log.warn("No callback to save migration progress. You are at risk of losing progress.");
+                // TODO: Write directly into a temp file here for backup in case of catastrophic failure
             }
-            onProgressPersistenceCallbacksContainer.read(callbacks -> {
-                if (callbacks.isEmpty()) {
-                    log.warn("No callback to save migration progress. You are at risk of losing progress.");
-                    // TODO: Write directly into a temp file here for backup in case of catastrophic failure
+            callbacks.forEach(callback -> {
+                try {
+                    callback.accept(migrationProgress);
+                } catch (Exception e) {
+                    log.error(
+                        "Error while running progress persistence callback, but will be ignored",
+                        e
+                    );
                 }
-                callbacks.forEach(callback -> {
-                    try {
-                        callback.accept(migrationProgress);
-                    } catch (Exception e) {
-                        log.error(
-                            "Error while running progress persistence callback, but will be ignored",
-                            e
-                        );
-                    }
-                });
             });
         });
     }
 
+    /**
+     * @return a consistent copy of the current progress,
+     * not affected by records reported afterwards
+     */
+    public MigrationProgress snapshot() {
+        return snapshot(null);
+    }
+
+    /**
+     * @param underExclusiveLock if not null, run while no
+     * progress can be reported (e.g. to rotate the journal)
+     */
+    MigrationProgress snapshot(Runnable underExclusiveLock) {
+        MigrationProgressMetadata metadata;
+        Map<String, LiveMigrationProgress> progressCopies = new HashMap<>();
+        ArrayList<String> fatalErrorsCopy;
+
+        snapshotLock.writeLock().lock();
+        try {
+            metadata = new MigrationProgressMetadata(
+                timestamp,
+                new HashSet<>(completedMigrationFQCNs),
+                new HashSet<>(inProgressMigrationFQCNs)
+            );
+
+            progressByMigrationFQCN.forEach((migrationFQCN, progress) -> {
+                LiveMigrationProgress progressCopy = new LiveMigrationProgress(progress.succeededRecordIds.copy());
+                progressCopy.failedRecordsById.putAll(progress.failedRecordsById);
+                progressCopy.resumeCursor = progress.resumeCursor;
+                progressCopies.put(migrationFQCN, progressCopy);
+            });
+
+            fatalErrorsCopy = new ArrayList<>(fatalErrors);
+
+            if (underExclusiveLock != null) {
+                underExclusiveLock.run();
+            }
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+
+        // Encoding takes a while with millions of IDs,
+        // so done without blocking reporting threads
+        HashMap<String, MigrationProgressPerMigrationClass> progressPerMigrationClass = new HashMap<>();
+        progressCopies.forEach((migrationFQCN, progress) -> {
+            Set<Serializable> unencodableSucceededRecordIds = new HashSet<>();
+            String encodedSucceededRecordIds = progress.succeededRecordIds.encode(unencodableSucceededRecordIds::add);
+            progressPerMigrationClass.put(migrationFQCN, new MigrationProgressPerMigrationClass(
+                migrationFQCN,
+                unencodableSucceededRecordIds,
+                encodedSucceededRecordIds,
+                new ArrayList<>(progress.failedRecordsById.values()),
+                progress.resumeCursor == null ? null : ResumeCursor.of(progress.resumeCursor)
+            ));
+        });
+
+        return new MigrationProgress(metadata, progressPerMigrationClass, fatalErrorsCopy);
+    }
+
     public void addProgressPersistenceCallback(Consumer<MigrationProgress> onProgressPersistenceCallback) {
         onProgressPersistenceCallbacksContainer.update(callbacks -> {
             callbacks.add(onProgressPersistenceCallback);
@@ -147,48 +251,133 @@ public class MigrationProgressManager {
     }
 
     public void restorePreviousProgress(MigrationProgress previousProgress) {
-        migrationProgressContainer.update(_oldMigrationProgress -> previousProgress);
+        if (previousProgress == null) {
+            previousProgress = new MigrationProgress();
+        }
+
+        snapshotLock.writeLock().lock();
+        try {
+            progressByMigrationFQCN.clear();
+            completedMigrationFQCNs.clear();
+            inProgressMigrationFQCNs.clear();
+            fatalErrors.clear();
+
+            MigrationProgressMetadata metadata = previousProgress.getMetadata();
+            if (metadata != null) {
+                timestamp = metadata.getTimestamp();
+                completedMigrationFQCNs.addAll(metadata.getCompletedMigrationFQCNs());
+                inProgressMigrationFQCNs.addAll(metadata.getInProgressMigrationFQCNs());
+            }
+
+            previousProgress.getMigrationProgress().forEach((migrationFQCN, previousProgressOfThisMigrationClass) -> {
+                String encodedSucceededRecordIds = previousProgressOfThisMigrationClass.getEncodedSucceededRecordIds();
+                LiveMigrationProgress progress = new LiveMigrationProgress(
+                    encodedSucceededRecordIds == null
+                        ? new CompactIdSet()
+                        : CompactIdSet.decode(encodedSucceededRecordIds)
+                );
+                progressByMigrationFQCN.put(migrationFQCN, progress);
+                ResumeCursor resumeCursor = previousProgressOfThisMigrationClass.getResumeCursor();
+                progress.resumeCursor = resumeCursor == null ? null : resumeCursor.toId();
+                // Also progress persisted before IDs were encoded
+                progress.succeededRecordIds.addAll(previousProgressOfThisMigrationClass.getSucceededRecordIds());
+                for (FailedRecord failedRecord : previousProgressOfThisMigrationClass.getFailedRecords()) {
+                    if (failedRecord.getId() != null) {
+                        progress.failedRecordsById.put(failedRecord.getId(), failedRecord);
+                    }
+                }
+            });
+
+            fatalErrors.addAll(previousProgress.getFatalErrors());
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    void attachJournal(ProgressJournal journal) {
+        this.journal = journal;
+    }
+
+    void detachJournal() {
+        this.journal = null;
     }
 
     public void reportSuccessfulRecords(
             SuccessfulRecordGroup successfulRecordGroup
     ) {
-        migrationProgressContainer.update(migrationProgress -> {
-            MigrationProgressPerMigrationClass progressInThisMigrationClass = migrationProgress
-                    .getMigrationProgress()
-                    .computeIfAbsent(
-                            successfulRecordGroup.getMigrationRunner().getMigrationFQCN(),
-                            MigrationProgressPerMigrationClass::new
-                    );
+        recordSucceeded(
+            successfulRecordGroup.getMigrationRunner().getMigrationFQCN(),
+            successfulRecordGroup.getRecordIds()
+        );
+    }
 
-            progressInThisMigrationClass.getSucceededRecordIds().addAll(
-                    successfulRecordGroup.getRecordIds()
-            );
+    /**
+     * Throws IllegalArgumentException if a journal is attached
+     * and cannot encode some of recordIds, so that the migration
+     * fails before saving them, rather than while reporting.
+     */
+    public void checkRecordIdsJournalable(Collection<Serializable> recordIds) {
+        if (journal == null) {
+            return;
+        }
+        for (Serializable id : recordIds) {
+            if (!ProgressJournal.isIdSupported(id)) {
+                throw ProgressJournal.unsupportedIdException(id);
+            }
+        }
+    }
 
-            progressInThisMigrationClass.getFailedRecords()
-                .removeIf(failedRecord -> {
-                    return progressInThisMigrationClass.getSucceededRecordIds().contains(
-                        failedRecord.getId()
-                    );
-                });
+    void recordSucceeded(String migrationFQCN, Collection<Serializable> recordIds) {
+        withSharedLock(() -> {
+            // Journaled first, since it rejects unsupported ID types
+            ProgressJournal journal = this.journal;
+            if (journal != null) {
+                journal.appendSucceeded(migrationFQCN, recordIds);
+            }
+            applySucceeded(migrationFQCN, recordIds);
+        });
+    }
 
-            return migrationProgress;
+    /**
+     * @return null if there is no committed prefix yet
+     */
+    public Serializable getResumeCursor(String migrationFQCN) {
+        LiveMigrationProgress progress = progressByMigrationFQCN.get(migrationFQCN);
+        return progress == null ? null : progress.resumeCursor;
+    }
+
+    /**
+     * Must only be called once all input records up to lastRecordId
+     * (in key order) have been reported as succeeded or failed.
+     * IDs of unsupported types (see ResumeCursor) are not persisted.
+     */
+    public void advanceResumeCursor(String migrationFQCN, Serializable lastRecordId) {
+        withSharedLock(() -> {
+            applyResumeCursor(migrationFQCN, lastRecordId);
+            ProgressJournal journal = this.journal;
+            if (journal != null) {
+                journal.appendResumeCursor(migrationFQCN, lastRecordId);
+            }
         });
     }
 
     public void startMigration(String migrationFQCN) {
-        migrationProgressContainer.update(migrationProgress -> {
-            migrationProgress.getMetadata().getCompletedMigrationFQCNs().remove(migrationFQCN);
-            migrationProgress.getMetadata().getInProgressMigrationFQCNs().add(migrationFQCN);
-            return migrationProgress;
+        withSharedLock(() -> {
+            applyMigrationStarted(migrationFQCN);
+            ProgressJournal journal = this.journal;
+            if (journal != null) {
+                journal.appendMigrationStarted(migrationFQCN);
+            }
         });
     }
 
     public void finishMigration(String migrationFQCN) {
-        migrationProgressContainer.update(migrationProgress -> {
-            migrationProgress.getMetadata().getInProgressMigrationFQCNs().remove(migrationFQCN);
-            migrationProgress.getMetadata().getCompletedMigrationFQCNs().add(migrationFQCN);
-            return migrationProgress;
+        withSharedLock(() -> {
+            applyMigrationFinished(migrationFQCN);
+            ProgressJournal journal = this.journal;
+            if (journal != null) {
+                journal.appendMigrationFinished(migrationFQCN);
+            }
         });
     }
 
@@ -197,69 +386,94 @@ public class MigrationProgressManager {
     ) {
         String cause = ExceptionUtils.getStackTrace(failedRecordGroup.getException());
 
-        migrationProgressContainer.update(migrationProgress -> {
-            MigrationProgressPerMigrationClass progressInThisMigrationClass = migrationProgress
-                    .getMigrationProgress()
-                    .computeIfAbsent(
-                            failedRecordGroup.getMigrationRunner().getMigrationFQCN(),
-                            MigrationProgressPerMigrationClass::new);
+        List<FailedRecord> failedRecords = failedRecordGroup.getRecords()
+            .stream()
+            .map(record -> new FailedRecord(
+                record.getMigratableId(),
+                record.getMigratableDescription(),
+                cause,
+                new FailedRecordAction(FailedRecordAction.Type.RETRY),
+                LocalDateTime.now()
+            ))
+            .toList();
 
-            List<FailedRecord> reportedFailedRecords = progressInThisMigrationClass.getFailedRecords();
-
-            // Overwriting records with same IDs
-            Set<Serializable> oldIds = reportedFailedRecords.stream().map(FailedRecord::getId).collect(Collectors.toSet());
-            Set<Serializable> newIds = failedRecordGroup.getRecords().stream().map(MigratableEntity::getMigratableId).collect(Collectors.toSet());
-            Set<Serializable> idsToRemove = new HashSet<>(oldIds);
-            idsToRemove.retainAll(newIds);
-            reportedFailedRecords.removeIf(failedRecord -> idsToRemove.contains(failedRecord.getId()));
-
-            reportedFailedRecords.addAll(
-                failedRecordGroup.getRecords().stream()
-                    .map(failedRecord -> {
-                        return new FailedRecord(
-                            failedRecord.getMigratableId(),
-                            failedRecord.getMigratableDescription(),
-                            cause,
-                            new FailedRecordAction(FailedRecordAction.Type.RETRY),
-                            LocalDateTime.now());
-                        })
-                    .toList()
-            );
+        recordFailed(failedRecordGroup.getMigrationRunner().getMigrationFQCN(), failedRecords);
 
-            // Remove failed records from successful record set
-            progressInThisMigrationClass.getSucceededRecordIds()
-                .removeAll(newIds);
+        log.error("Some records failed to migrate: " + failedRecordGroup.getException());
+    }
 
-            return migrationProgress;
+    void recordFailed(String migrationFQCN, List<FailedRecord> failedRecords) {
+        withSharedLock(() -> {
+            ProgressJournal journal = this.journal;
+            if (journal != null) {
+                journal.appendFailed(migrationFQCN, failedRecords);
+            }
+            applyFailed(migrationFQCN, failedRecords);
         });
-
-        log.error("Some records failed to migrate: " + failedRecordGroup.getException());
     }
 
     public void excludeSuccessfullyMigratedRecordIds(
             String migrationFQCN,
             Set<Serializable> recordIds
     ) {
-        migrationProgressContainer.read(migrationProgress -> {
-            MigrationProgressPerMigrationClass progressInThisMigrationClass = migrationProgress
-                    .getMigrationProgress()
-                    .get(migrationFQCN);
-
-            if (progressInThisMigrationClass != null) {
-                Set<Serializable> migratedRecordIds = progressInThisMigrationClass
-                    .getSucceededRecordIds();
+        LiveMigrationProgress progress = progressByMigrationFQCN.get(migrationFQCN);
+        if (progress != null) {
+            recordIds.removeIf(progress.succeededRecordIds::contains);
+        }
+    }
 
-                recordIds.removeAll(migratedRecordIds);
+    public void reportFatalError(Exception exception) {
+        String stackTrace = ExceptionUtils.getStackTrace(exception);
+        withSharedLock(() -> {
+            applyFatalError(stackTrace);
+            ProgressJournal journal = this.journal;
+            if (journal != null) {
+                journal.appendFatalError(stackTrace);
             }
         });
     }
 
-    public void reportFatalError(Exception exception) {
-        migrationProgressContainer.update(migrationProgress -> {
-            migrationProgress.getFatalErrors().add(
-                ExceptionUtils.getStackTrace(exception)
-            );
-            return migrationProgress;
-        });
+    //////////////////////////////////////////////////
+    /// CHANGES, ALSO REPLAYED FROM THE JOURNAL    ///
+    //////////////////////////////////////////////////
+
+    void applySucceeded(String migrationFQCN, Collection<Serializable> recordIds) {
+        LiveMigrationProgress progress = getLiveProgress(migrationFQCN);
+        for (Serializable id : recordIds) {
+            progress.failedRecordsById.compute(id, (k, oldFailedRecord) -> {
+                progress.succeededRecordIds.add(id);
+                return null;
+            });
+        }
+    }
+
+    void applyFailed(String migrationFQCN, Collection<FailedRecord> failedRecords) {
+        LiveMigrationProgress progress = getLiveProgress(migrationFQCN);
+        for (FailedRecord failedRecord : failedRecords) {
+            Serializable id = failedRecord.getId();
+            // Overwriting records with same IDs
+            progress.failedRecordsById.compute(id, (k, oldFailedRecord) -> {
+                progress.succeededRecordIds.remove(id);
+                return failedRecord;
+            });
+        }
+    }
+
+    void applyResumeCursor(String migrationFQCN, Serializable lastRecordId) {
+        getLiveProgress(migrationFQCN).resumeCursor = lastRecordId;
+    }
+
+    void applyMigrationStarted(String migrationFQCN) {
+        completedMigrationFQCNs.remove(migrationFQCN);
+        inProgressMigrationFQCNs.add(migrationFQCN);
+    }
+
+    void applyMigrationFinished(String migrationFQCN) {
+        inProgressMigrationFQCNs.remove(migrationFQCN);
+        completedMigrationFQCNs.add(migrationFQCN);
+    }
+
+    void applyFatalError(String stackTrace) {
+        fatalErrors.add(stackTrace);
     }
 }
@@ -0,0 +1,702 @@
+package com.example.mjg.services.migration.internal.fault_tolerance;
+
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.FailedRecord;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.FailedRecordAction;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.MigrationProgress;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.ResumeCursor;
+import com.example.mjg.utils.ObjectMapperFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, checksummed log of progress changes, so that
+ * persisting progress costs a few bytes per record instead of
+ * rewriting the whole progress JSON.
+ *
+ * Entries are appended to journal-N.bin files (segments) by a
+ * background thread, which fsyncs once per group commit interval
+ * for all entries written meanwhile. Once enough has been written,
+ * the journal is compacted: a new segment is started, and progress
+ * at that point is written to snapshot-N.json (same format as
+ * the usual progress JSON), after which older segments and
+ * snapshots are deleted.
+ *
+ * On open(), the latest snapshot is loaded, then newer segments are
+ * replayed, up to the first truncated or corrupted entry (e.g. the
+ * last one being written when the process was killed).
+ *
+ * Entry format: int length, payload, long CRC32 of payload.
+ *
+ * Record IDs may be ints, longs, strings or MongoDB ObjectIds
+ * (12 bytes, rebuilt reflectively like resume cursors). Other
+ * IDs fail the migration as soon as a page of them is read,
+ * before anything is saved.
+ *
+ * At most maxPendingBytes of entries wait for the writer: beyond
+ * that, reporting threads wait for it to catch up.
+ */
+@Slf4j
+public class ProgressJournal {
+    public static final long DEFAULT_GROUP_COMMIT_INTERVAL_MILLIS = 200;
+
+    public static final long DEFAULT_COMPACT_AFTER_BYTES = 64L * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_PENDING_BYTES = 16L * 1024 * 1024;
+
+    private static final Pattern SEGMENT_FILE_NAME = Pattern.compile("journal-(\\d+)\\.bin");
+
+    private static final Pattern SNAPSHOT_FILE_NAME = Pattern.compile("snapshot-(\\d+)\\.json");
+
+    private static final int MAX_ENTRY_LENGTH = 256 * 1024 * 1024;
+
+    private static final byte SUCCEEDED = 1;
+    private static final byte FAILED = 2;
+    private static final byte RESUME_CURSOR = 3;
+    private static final byte MIGRATION_STARTED = 4;
+    private static final byte MIGRATION_FINISHED = 5;
+    private static final byte FATAL_ERROR = 6;
+
+    private static final byte ID_INT = 1;
+    private static final byte ID_LONG = 2;
+    private static final byte ID_STRING = 3;
+    // 4 was Java-serialized IDs, no longer read
+    private static final byte ID_OBJECT_ID = 5;
+
+    private static final String OBJECT_ID_CLASS_NAME = "org.bson.types.ObjectId";
+
+    private static final int OBJECT_ID_LENGTH = 12;
+
+    private final Path directory;
+
+    private final long groupCommitIntervalMillis;
+
+    private final long compactAfterBytes;
+
+    private final long maxPendingBytes;
+
+    private final Queue<Entry> pendingEntries = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong pendingBytes = new AtomicLong(0);
+
+    private final AtomicLong lastEnqueuedSequence = new AtomicLong(0);
+
+    /**
+     * Guards durableSequence. Not a monitor, so that virtual
+     * threads waiting in sync() do not pin their carrier.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled to wake the writer up, and when entries are durable
+     * (which is also when pendingEntries have room again)
+     */
+    private final Condition changed = lock.newCondition();
+
+    private long durableSequence = 0;
+
+    private volatile boolean closing = false;
+
+    private volatile boolean syncRequested = false;
+
+    private volatile IOException writeError = null;
+
+    /**
+     * Segment new entries go to; only changed while reporting
+     * is blocked (see MigrationProgressManager.snapshot())
+     */
+    private volatile long appendSegment;
+
+    /**
+     * Segments up to this one are covered by the latest snapshot
+     */
+    private long compactedSegment;
+
+    // Writer thread state
+
+    private FileChannel channel = null;
+
+    private long channelSegment = -1;
+
+    private long bytesSinceCompaction = 0;
+
+    private MigrationProgressManager manager = null;
+
+    private Thread writerThread = null;
+
+    private record Entry(long sequence, long segment, byte[] framed) {}
+
+    public ProgressJournal(Path directory) {
+        this(directory, DEFAULT_GROUP_COMMIT_INTERVAL_MILLIS, DEFAULT_COMPACT_AFTER_BYTES);
+    }
+
+    public ProgressJournal(Path directory, long groupCommitIntervalMillis, long compactAfterBytes) {
+        this(directory, groupCommitIntervalMillis, compactAfterBytes, DEFAULT_MAX_PENDING_BYTES);
+    }
+
+    public ProgressJournal(Path directory, long groupCommitIntervalMillis, long compactAfterBytes, long maxPendingBytes) {
+        this.directory = directory;
+        this.groupCommitIntervalMillis = groupCommitIntervalMillis;
+        this.compactAfterBytes = compactAfterBytes;
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    /**
+     * Restores the manager's progress from the journal,
+     * then journals the manager's changes until close().
+     */
+    public void open(MigrationProgressManager manager) throws IOException {
+        Files.createDirectories(directory);
+
+        TreeMap<Long, Path> snapshots = listFiles(SNAPSHOT_FILE_NAME);
+        TreeMap<Long, Path> segments = listFiles(SEGMENT_FILE_NAME);
+
+        MigrationProgress snapshot = null;
+        compactedSegment = 0;
+        if (!snapshots.isEmpty()) {
+            compactedSegment = snapshots.lastKey();
+            snapshot = ObjectMapperFactory.get().readValue(
+                snapshots.lastEntry().getValue().toFile(),
+                MigrationProgress.class
+            );
+        }
+        manager.restorePreviousProgress(snapshot);
+
+        long numReplayedEntries = 0;
+        for (var segment : segments.tailMap(compactedSegment, false).entrySet()) {
+            numReplayedEntries += replay(segment.getValue(), manager);
+        }
+        log.info(
+            "Restored migration progress from journal at {}: {} entries replayed after snapshot {}",
+            directory, numReplayedEntries, compactedSegment
+        );
+
+        // Never append after a possibly torn entry
+        long lastSegment = segments.isEmpty() ? 0 : segments.lastKey();
+        appendSegment = Math.max(lastSegment, compactedSegment) + 1;
+        bytesSinceCompaction = segments.tailMap(compactedSegment, false)
+            .values()
+            .stream()
+            .mapToLong(path -> path.toFile().length())
+            .sum();
+
+        this.manager = manager;
+        manager.attachJournal(this);
+
+        writerThread = new Thread(this::writeLoop, "mjg-progress-journal");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Blocks until all entries appended so far are on disk.
+     */
+    public void sync() {
+        long target = lastEnqueuedSequence.get();
+        lock.lock();
+        try {
+            syncRequested = true;
+            changed.signalAll();
+            while (durableSequence < target && writeError == null && writerThread != null && writerThread.isAlive()) {
+                try {
+                    changed.await(groupCommitIntervalMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (writeError != null) {
+            log.error("Progress journal could not be written, progress may be lost", writeError);
+        }
+    }
+
+    /**
+     * Blocks while maxPendingBytes of entries wait for the writer.
+     * Called by the manager before reporting, not while holding
+     * its snapshotLock, which the writer needs to compact.
+     */
+    void awaitCapacity() {
+        if (pendingBytes.get() < maxPendingBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            syncRequested = true;
+            changed.signalAll();
+            while (pendingBytes.get() >= maxPendingBytes
+                && writeError == null && !closing && writerThread != null && writerThread.isAlive()) {
+                try {
+                    changed.await(groupCommitIntervalMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Syncs, stops journaling, then compacts the journal
+     * into a single snapshot.
+     */
+    public void close() throws IOException {
+        if (manager == null) {
+            return;
+        }
+        sync();
+        closing = true;
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        compact();
+        closeChannel();
+        manager.detachJournal();
+        manager = null;
+    }
+
+    //////////////////////////////////////////////////
+    /// APPENDING (called by the manager)          ///
+    //////////////////////////////////////////////////
+
+    void appendSucceeded(String migrationFQCN, Collection<Serializable> recordIds) {
+        append(SUCCEEDED, migrationFQCN, out -> {
+            out.writeInt(recordIds.size());
+            for (Serializable id : recordIds) {
+                writeId(out, id);
+            }
+        });
+    }
+
+    void appendFailed(String migrationFQCN, Collection<FailedRecord> failedRecords) {
+        append(FAILED, migrationFQCN, out -> {
+            out.writeInt(failedRecords.size());
+            for (FailedRecord failedRecord : failedRecords) {
+                writeId(out, failedRecord.getId());
+                writeString(out, failedRecord.getDescription());
+                writeString(out, failedRecord.getCause());
+                writeString(out, failedRecord.getAction().toValue());
+                writeString(out, failedRecord.getTimestamp() == null ? null : failedRecord.getTimestamp().toString());
+            }
+        });
+    }
+
+    void appendResumeCursor(String migrationFQCN, Serializable lastRecordId) {
+        if (ResumeCursor.of(lastRecordId) == null) {
+            // Not persisted, as in the progress JSON
+            return;
+        }
+        append(RESUME_CURSOR, migrationFQCN, out -> writeId(out, lastRecordId));
+    }
+
+    void appendMigrationStarted(String migrationFQCN) {
+        append(MIGRATION_STARTED, migrationFQCN, out -> {});
+    }
+
+    void appendMigrationFinished(String migrationFQCN) {
+        append(MIGRATION_FINISHED, migrationFQCN, out -> {});
+    }
+
+    void appendFatalError(String stackTrace) {
+        append(FATAL_ERROR, null, out -> writeString(out, stackTrace));
+    }
+
+    @FunctionalInterface
+    private interface EntryWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, String migrationFQCN, EntryWriter entryWriter) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            // Room for the length
+            out.writeInt(0);
+            out.writeByte(type);
+            writeString(out, migrationFQCN);
+            entryWriter.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] framed = bytes.toByteArray();
+        int length = framed.length - Integer.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(framed, Integer.BYTES, length);
+        framed = Arrays.copyOf(framed, framed.length + Long.BYTES);
+        ByteBuffer.wrap(framed)
+            .putInt(0, length)
+            .putLong(Integer.BYTES + length, crc.getValue());
+
+        // Sequence and enqueueing together, so that the
+        // queue is ordered by sequence
+        synchronized (pendingEntries) {
+            pendingEntries.add(new Entry(lastEnqueuedSequence.incrementAndGet(), appendSegment, framed));
+        }
+        pendingBytes.addAndGet(framed.length);
+    }
+
+    //////////////////////////////////////////////////
+    /// WRITER THREAD                              ///
+    //////////////////////////////////////////////////
+
+    private void writeLoop() {
+        while (true) {
+            boolean stopping = closing;
+            syncRequested = false;
+            try {
+                long lastWrittenSequence = writePendingEntries();
+                if (lastWrittenSequence > 0) {
+                    channel.force(false);
+                }
+                if (bytesSinceCompaction >= compactAfterBytes) {
+                    compact();
+                }
+                if (lastWrittenSequence > 0) {
+                    markDurable(lastWrittenSequence);
+                }
+            } catch (IOException e) {
+                writeError = e;
+                log.error("Error while writing progress journal", e);
+            }
+
+            if (stopping) {
+                return;
+            }
+            // Entries appended meanwhile are committed together
+            lock.lock();
+            try {
+                if (!closing && !syncRequested) {
+                    changed.await(groupCommitIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return sequence of the last written entry, 0 if none
+     */
+    private long writePendingEntries() throws IOException {
+        long lastWrittenSequence = 0;
+        Entry entry;
+        while ((entry = pendingEntries.poll()) != null) {
+            lastWrittenSequence = entry.sequence();
+            pendingBytes.addAndGet(-entry.framed().length);
+            if (entry.segment() <= compactedSegment) {
+                // Already in the snapshot
+                continue;
+            }
+            if (entry.segment() != channelSegment) {
+                if (channel != null) {
+                    channel.force(false);
+                }
+                closeChannel();
+                channel = FileChannel.open(
+                    segmentPath(entry.segment()),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND
+                );
+                channelSegment = entry.segment();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(entry.framed());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            bytesSinceCompaction += entry.framed().length;
+        }
+        if (lastWrittenSequence > 0 && channel == null) {
+            // Nothing actually written
+            markDurable(lastWrittenSequence);
+            return 0;
+        }
+        return lastWrittenSequence;
+    }
+
+    private void markDurable(long sequence) {
+        lock.lock();
+        try {
+            durableSequence = sequence;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void compact() throws IOException {
+        long[] covered = { 0 };
+        MigrationProgress snapshot = manager.snapshot(() -> {
+            covered[0] = appendSegment;
+            appendSegment = covered[0] + 1;
+        });
+
+        // Entries of covered segments still in the queue
+        // are in the snapshot, so skipped from now on
+        Path tmp = directory.resolve("snapshot-" + covered[0] + ".json.tmp");
+        ObjectMapper objectMapper = ObjectMapperFactory.get();
+        try (FileChannel tmpChannel = FileChannel.open(
+            tmp,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            ByteBuffer buffer = ByteBuffer.wrap(objectMapper.writeValueAsBytes(snapshot));
+            while (buffer.hasRemaining()) {
+                tmpChannel.write(buffer);
+            }
+            tmpChannel.force(true);
+        }
+        Files.move(
+            tmp,
+            directory.resolve("snapshot-" + covered[0] + ".json"),
+            StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING
+        );
+        compactedSegment = covered[0];
+
+        if (channelSegment <= compactedSegment) {
+            closeChannel();
+        }
+        for (var segment : listFiles(SEGMENT_FILE_NAME).headMap(compactedSegment, true).values()) {
+            Files.deleteIfExists(segment);
+        }
+        for (var olderSnapshot : listFiles(SNAPSHOT_FILE_NAME).headMap(compactedSegment, false).values()) {
+            Files.deleteIfExists(olderSnapshot);
+        }
+        bytesSinceCompaction = 0;
+
+        log.info("Compacted progress journal into snapshot {}", compactedSegment);
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            channelSegment = -1;
+        }
+    }
+
+    //////////////////////////////////////////////////
+    /// REPLAY                                     ///
+    //////////////////////////////////////////////////
+
+    /**
+     * @return number of replayed entries
+     */
+    private static long replay(Path segment, MigrationProgressManager manager) throws IOException {
+        long numEntries = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > MAX_ENTRY_LENGTH) {
+                        log.warn("Corrupted entry in progress journal {}, ignoring the rest of it", segment);
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    long expectedCrc = in.readLong();
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if (crc.getValue() != expectedCrc) {
+                        log.warn("Checksum mismatch in progress journal {}, ignoring the rest of it", segment);
+                        break;
+                    }
+                } catch (EOFException e) {
+                    // End of segment, or truncated entry
+                    break;
+                }
+
+                replayEntry(payload, manager);
+                ++numEntries;
+            }
+        }
+        return numEntries;
+    }
+
+    private static void replayEntry(byte[] payload, MigrationProgressManager manager) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        String migrationFQCN = readString(in);
+        switch (type) {
+            case SUCCEEDED -> {
+                int count = in.readInt();
+                List<Serializable> recordIds = new ArrayList<>(count);
+                for (int i = 0; i < count; ++i) {
+                    recordIds.add(readId(in));
+                }
+                manager.applySucceeded(migrationFQCN, recordIds);
+            }
+            case FAILED -> {
+                int count = in.readInt();
+                List<FailedRecord> failedRecords = new ArrayList<>(count);
+                for (int i = 0; i < count; ++i) {
+                    Serializable id = readId(in);
+                    String description = readString(in);
+                    String cause = readString(in);
+                    FailedRecordAction action = new FailedRecordAction(
+                        FailedRecordAction.Type.valueOf(readString(in))
+                    );
+                    String timestamp = readString(in);
+                    failedRecords.add(new FailedRecord(
+                        id, description, cause, action,
+                        timestamp == null ? null : LocalDateTime.parse(timestamp)
+                    ));
+                }
+                manager.applyFailed(migrationFQCN, failedRecords);
+            }
+            case RESUME_CURSOR -> manager.applyResumeCursor(migrationFQCN, readId(in));
+            case MIGRATION_STARTED -> manager.applyMigrationStarted(migrationFQCN);
+            case MIGRATION_FINISHED -> manager.applyMigrationFinished(migrationFQCN);
+            case FATAL_ERROR -> manager.applyFatalError(readString(in));
+            default -> throw new IOException("Unknown progress journal entry type: " + type);
+        }
+    }
+
+    //////////////////////////////////////////////////
+    /// ENCODING                                   ///
+    //////////////////////////////////////////////////
+
+    /**
+     * Not writeUTF(), which is limited to 64KB
+     * (stack traces can be longer)
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeId(DataOutputStream out, Serializable id) throws IOException {
+        if (id instanceof Integer i) {
+            out.writeByte(ID_INT);
+            out.writeInt(i);
+        } else if (id instanceof Long l) {
+            out.writeByte(ID_LONG);
+            out.writeLong(l);
+        } else if (id instanceof String s) {
+            out.writeByte(ID_STRING);
+            writeString(out, s);
+        } else if (isObjectId(id)) {
+            // ObjectId.toString() is its hex string
+            out.writeByte(ID_OBJECT_ID);
+            out.write(HexFormat.of().parseHex(id.toString()));
+        } else {
+            throw unsupportedIdException(id);
+        }
+    }
+
+    static boolean isIdSupported(Serializable id) {
+        return id instanceof Integer || id instanceof Long || id instanceof String || isObjectId(id);
+    }
+
+    static IllegalArgumentException unsupportedIdException(Serializable id) {
+        return new IllegalArgumentException(
+            "Record IDs of type " + (id == null ? null : id.getClass().getCanonicalName())
+            + " are not supported by the progress journal (int, long, String or ObjectId)"
+        );
+    }
+
+    private static boolean isObjectId(Serializable id) {
+        return id != null && id.getClass().getName().equals(OBJECT_ID_CLASS_NAME);
+    }
+
+    private static Serializable readId(DataInputStream in) throws IOException {
+        byte idType = in.readByte();
+        switch (idType) {
+            case ID_INT:
+                return in.readInt();
+            case ID_LONG:
+                return in.readLong();
+            case ID_STRING:
+                return readString(in);
+            case ID_OBJECT_ID:
+                byte[] bytes = new byte[OBJECT_ID_LENGTH];
+                in.readFully(bytes);
+                try {
+                    return new ResumeCursor(ResumeCursor.IdType.OBJECT_ID, HexFormat.of().formatHex(bytes)).toId();
+                } catch (IllegalStateException e) {
+                    throw new IOException("Could not restore ObjectId from progress journal", e);
+                }
+            default:
+                throw new IOException("Unknown record ID type in progress journal: " + idType);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve("journal-" + segment + ".bin");
+    }
+
+    private TreeMap<Long, Path> listFiles(Pattern fileNamePattern) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(path -> {
+                Matcher matcher = fileNamePattern.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Long.parseLong(matcher.group(1)), path);
+                }
+            });
+        }
+        return files;
+    }
+}
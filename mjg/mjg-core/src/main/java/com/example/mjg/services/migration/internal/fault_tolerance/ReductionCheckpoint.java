@@ -0,0 +1,21 @@
+package com.example.mjg.services.migration.internal.fault_tolerance;
+
+import com.example.mjg.services.migration.internal.RecordProcessingContext;
+
+import java.util.List;
+
+/**
+ * Record contexts as they were right before the matching
+ * at matchingIndex (in the matching plan) was attempted,
+ * i.e. started and reduced on all matchings before it, but
+ * not (even partially) on that one.
+ *
+ * Investigating failed records can resume from there
+ * instead of reading, matching and reducing them all
+ * over again.
+ */
+public record ReductionCheckpoint(int matchingIndex, List<RecordProcessingContext> contexts) {
+    public ReductionCheckpoint subList(int fromIndex, int toIndex) {
+        return new ReductionCheckpoint(matchingIndex, List.copyOf(contexts.subList(fromIndex, toIndex)));
+    }
+}
@@ -16,11 +16,26 @@ import java.util.Set;
 public class MigrationProgressPerMigrationClass implements Serializable {
     private String fqcn = "";
 
+    /**
+     * Only succeeded record IDs that could not be
+     * put into encodedSucceededRecordIds.
+     */
     private Set<Serializable> succeededRecordIds = new HashSet<>();
 
+    /**
+     * See CompactIdSet.encode(). Null if none.
+     */
+    private String encodedSucceededRecordIds = null;
+
     private List<FailedRecord> failedRecords = new ArrayList<>();
 
+    /**
+     * Where to resume reading input records, if the
+     * input store supports keyset pagination. Null if none.
+     */
+    private ResumeCursor resumeCursor = null;
+
     public MigrationProgressPerMigrationClass(String fqcn) {
-        this(fqcn, new HashSet<Serializable>(), new ArrayList<FailedRecord>());
+        this(fqcn, new HashSet<Serializable>(), null, new ArrayList<FailedRecord>(), null);
     }
 }
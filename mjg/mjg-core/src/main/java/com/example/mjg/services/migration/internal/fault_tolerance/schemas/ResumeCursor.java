@@ -0,0 +1,90 @@
+package com.example.mjg.services.migration.internal.fault_tolerance.schemas;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Serializable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ID of the last input record of the committed prefix of a
+ * key-ordered scan: all records up to it have either succeeded
+ * or been reported as failed.
+ *
+ * The ID is kept as a string along with its type, since
+ * numbers in JSON don't tell an int from a long.
+ *
+ * MongoDB ObjectIds are supported without depending on the
+ * driver: they are kept as hex strings and rebuilt reflectively.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+@Slf4j
+public class ResumeCursor implements Serializable {
+    public static enum IdType {
+        INT,
+        LONG,
+        STRING,
+        OBJECT_ID
+    }
+
+    private static final String OBJECT_ID_CLASS_NAME = "org.bson.types.ObjectId";
+
+    /**
+     * Unsupported ID types already warned about
+     */
+    private static final Set<Class<?>> unsupportedIdClasses = ConcurrentHashMap.newKeySet();
+
+    private IdType idType;
+
+    private String id;
+
+    /**
+     * @return null if the ID type is not supported
+     */
+    public static ResumeCursor of(Serializable id) {
+        if (id instanceof Integer) {
+            return new ResumeCursor(IdType.INT, id.toString());
+        }
+        if (id instanceof Long) {
+            return new ResumeCursor(IdType.LONG, id.toString());
+        }
+        if (id instanceof String s) {
+            return new ResumeCursor(IdType.STRING, s);
+        }
+        if (id.getClass().getName().equals(OBJECT_ID_CLASS_NAME)) {
+            // ObjectId.toString() is its hex string
+            return new ResumeCursor(IdType.OBJECT_ID, id.toString());
+        }
+        if (unsupportedIdClasses.add(id.getClass())) {
+            log.warn(
+                "Resume cursors of IDs of type " + id.getClass().getCanonicalName()
+                + " are not persisted: an interrupted scan will restart from the first record"
+            );
+        }
+        return null;
+    }
+
+    public Serializable toId() {
+        return switch (idType) {
+            case INT -> Integer.valueOf(id);
+            case LONG -> Long.valueOf(id);
+            case STRING -> id;
+            case OBJECT_ID -> toObjectId(id);
+        };
+    }
+
+    private static Serializable toObjectId(String hexString) {
+        try {
+            return (Serializable) Class.forName(OBJECT_ID_CLASS_NAME)
+                .getConstructor(String.class)
+                .newInstance(hexString);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not restore ObjectId resume cursor: " + hexString, e);
+        }
+    }
+}
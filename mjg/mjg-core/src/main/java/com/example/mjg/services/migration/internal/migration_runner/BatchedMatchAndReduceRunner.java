@@ -0,0 +1,432 @@
+package com.example.mjg.services.migration.internal.migration_runner;
+
+import com.example.mjg.algorithms.cardinality_check.CardinalityCheck;
+import com.example.mjg.algorithms.retrying.RetryLogic;
+import com.example.mjg.config.Cardinality;
+import com.example.mjg.data.DataFilterSet;
+import com.example.mjg.data.DataPage;
+import com.example.mjg.data.DataStore;
+import com.example.mjg.data.MigratableEntity;
+import com.example.mjg.exceptions.CardinalityViolationException;
+import com.example.mjg.exceptions.RetriesExhaustedException;
+import com.example.mjg.services.migration.internal.RecordProcessingContext;
+import com.example.mjg.services.migration.internal.fault_tolerance.FailedRecordGroup;
+import com.example.mjg.services.migration.internal.reflective.RMatchWith;
+import com.example.mjg.services.migration.internal.reflective.RMigrationUtils;
+import com.example.mjg.utils.LruCache;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Matching for @MatchWith(lookup = LookupMode.BATCHED).
+ *
+ * Instead of one query per distinct filter set, distinct matching
+ * keys of the whole page are collected, and one query is issued
+ * per chunk of (at most batchSize) keys. Matched records are then
+ * routed back to input records by matchedKeyFrom...().
+ *
+ * With @MatchWith(lookup = LookupMode.BROADCAST), keys are resolved
+ * against a preloaded index of the whole store instead (see
+ * loadBroadcastIndex()), without any I/O.
+ */
+@Getter
+@AllArgsConstructor
+@Slf4j
+public class BatchedMatchAndReduceRunner {
+    /**
+     * Retries are made by the caller, e.g. of a whole chunk
+     */
+    private static final RetryLogic.ExceptionReporterStep NO_RETRIES = RetryLogic
+        .maxRetries(0)
+        .retryDelayInSeconds(0)
+        .exceptionReporter((exception, arg) -> {});
+
+    private final MigrationRunner migrationRunner;
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public List<RecordProcessingContext> matchAndReduceRecordsPerMatching(
+        RMatchWith rMatchWith,
+        List<RecordProcessingContext> recordContexts,
+        List<MigratableEntity> inputRecords,
+        LruCache<Object, List<MigratableEntity>> lookupCache,
+        Map<Object, List<MigratableEntity>> broadcastIndex
+    ) {
+        RMigrationUtils rMigrationUtils = migrationRunner.getRMigrationUtils();
+        String migrationFQCN = migrationRunner.getMigrationFQCN();
+
+        DataStore<MigratableEntity, Serializable, DataFilterSet> store = (DataStore<MigratableEntity, Serializable, DataFilterSet>) migrationRunner
+            .getStoreRegistry()
+            .get(rMatchWith.getDataStoreReflection().getStoreClass().getCanonicalName());
+        final int BATCH_SIZE = rMatchWith.getMatchWith().batchSize();
+
+        final Cardinality cardinality = rMatchWith.getMatchWith().cardinality();
+
+        var retryLogic = RetryLogic
+            .fromErrorResolution(
+                rMatchWith.getMatchWith().inCaseOfError(),
+                rMatchWith.getDataStoreReflection().getStoreClass().getCanonicalName(),
+                migrationRunner.getStoreRegistry()
+            );
+
+        BiConsumer<Exception, List<MigratableEntity>> reportProblematicRecords = (exception, problematicRecords) -> {
+            FailedRecordGroup failedRecordGroup = new FailedRecordGroup(
+                problematicRecords,
+                migrationRunner,
+                rMatchWith.getMatchWith().inCaseOfError(),
+                exception
+            );
+            migrationRunner.getMigrationErrorInvestigator()
+                .reportFailedRecords(failedRecordGroup);
+        };
+
+        Function<String, String> buildDebugContext = (String methodName) -> {
+            return "While matching (batched) with store: " + rMatchWith.getDataStoreReflection().getStoreClass().getCanonicalName() + "\nand calling method: "
+                + methodName + "()";
+        };
+
+        var callMatchingKeyMethod = retryLogic
+            .exceptionReporter((exception, arg) -> {
+                RecordProcessingContext ctx = (RecordProcessingContext) arg;
+                reportProblematicRecords.accept(exception, List.of(ctx.getRecord()));
+            })
+            .debugContext(buildDebugContext.apply("callMatchingKeyMethod"))
+            .withCallback((RecordProcessingContext ctx) -> {
+                // Other matchings of the same order may reduce ctx meanwhile
+                ctx.getLock().lock();
+                try {
+                    return rMigrationUtils.callMatchingKeyMethod(rMatchWith, ctx.getRecord(), ctx.getAggregates());
+                } finally {
+                    ctx.getLock().unlock();
+                }
+            });
+
+        var callReduceMethod = retryLogic
+            .exceptionReporter((exception, arg) -> {
+                RecordProcessingContext ctx = (RecordProcessingContext) ((Object[]) arg)[0];
+                reportProblematicRecords.accept(exception, List.of(ctx.getRecord()));
+            })
+            .debugContext(buildDebugContext.apply("callReduceMethod"))
+            .withCallback((Object[] args) -> {
+                RecordProcessingContext ctx = (RecordProcessingContext) args[0];
+                List<MigratableEntity> matchingRecords = (List<MigratableEntity>) args[1];
+                ctx.getLock().lock();
+                try {
+                    rMigrationUtils.callReduceMethod(
+                        rMatchWith,
+                        ctx.getAggregates(),
+                        matchingRecords
+                    );
+                } finally {
+                    ctx.getLock().unlock();
+                }
+                return null;
+            });
+
+        // Group records by matching keys
+        // (keys may be computed in parallel, if thread-safe)
+        record KeyedContext(RecordProcessingContext context, Object key) {}
+
+        List<KeyedContext> keyedContexts = migrationRunner.mapPerRecord(recordContexts, recordContext -> {
+            try {
+                return new KeyedContext(recordContext, callMatchingKeyMethod.apply(recordContext));
+            } catch (RetriesExhaustedException ignored) {
+                return null;
+            }
+        });
+
+        List<RecordProcessingContext> legitRecordContexts = new ArrayList<>();
+        Map<Object, List<RecordProcessingContext>> recordContextsByKeyMap = new LinkedHashMap<>();
+        for (KeyedContext keyedContext : keyedContexts) {
+            if (keyedContext.key() == null) {
+                // Unmatched, not reduced, but still legit record context
+                legitRecordContexts.add(keyedContext.context());
+            } else {
+                recordContextsByKeyMap
+                    .computeIfAbsent(keyedContext.key(), k -> new ArrayList<>())
+                    .add(keyedContext.context());
+            }
+        }
+
+        // Matching records per key, from the broadcast index, the cache
+        // or fetched. Keys of chunks that failed to be fetched are absent.
+        Map<Object, List<MigratableEntity>> matchingRecordsByKey = new HashMap<>();
+
+        List<Object> keysToFetch = new ArrayList<>();
+        for (Object key : recordContextsByKeyMap.keySet()) {
+            if (broadcastIndex != null) {
+                matchingRecordsByKey.put(key, broadcastIndex.getOrDefault(key, List.of()));
+                continue;
+            }
+            List<MigratableEntity> cachedMatchingRecords = lookupCache == null ? null : lookupCache.get(key);
+            if (cachedMatchingRecords != null) {
+                matchingRecordsByKey.put(key, cachedMatchingRecords);
+            } else {
+                keysToFetch.add(key);
+            }
+        }
+
+        // With non-blocking retries, chunks being retried are fetched
+        // again (as a whole) in other threads, while the next ones go on
+        final boolean nonBlocking = rMatchWith.getMatchWith().inCaseOfError().nonBlocking();
+        Map<Set<Object>, CompletableFuture<Map<Object, List<MigratableEntity>>>> fetchesByChunkKeys = new LinkedHashMap<>();
+        for (int from = 0; from < keysToFetch.size(); from += BATCH_SIZE) {
+            Set<Object> chunkKeys = new LinkedHashSet<>(
+                keysToFetch.subList(from, Math.min(from + BATCH_SIZE, keysToFetch.size()))
+            );
+
+            List<RecordProcessingContext> chunkInputContexts = new ArrayList<>();
+            for (Object key : chunkKeys) {
+                chunkInputContexts.addAll(recordContextsByKeyMap.get(key));
+            }
+
+            // Every failure below affects the whole chunk,
+            // before anything is reduced for it
+            var chunkRetryLogic = retryLogic
+                .exceptionReporter((exception, arg) -> migrationRunner.getMatchAndReduceRunner()
+                    .reportFailedBeforeReduction(rMatchWith, chunkInputContexts, exception));
+
+            if (nonBlocking) {
+                fetchesByChunkKeys.put(chunkKeys, chunkRetryLogic
+                    .debugContext(buildDebugContext.apply("fetchMatchingRecordsByKey"))
+                    .withCallback((Set<Object> keys) -> fetchMatchingRecordsByKey(
+                        rMatchWith, store, keys, BATCH_SIZE,
+                        NO_RETRIES, buildDebugContext
+                    ))
+                    .applyAsync(chunkKeys));
+                continue;
+            }
+
+            try {
+                fetchesByChunkKeys.put(chunkKeys, CompletableFuture.completedFuture(fetchMatchingRecordsByKey(
+                    rMatchWith, store, chunkKeys, BATCH_SIZE,
+                    chunkRetryLogic, buildDebugContext
+                )));
+            } catch (RetriesExhaustedException ignored) {
+            }
+        }
+
+        for (var fetch : fetchesByChunkKeys.entrySet()) {
+            final Map<Object, List<MigratableEntity>> fetchedMatchingRecordsByKey;
+            try {
+                fetchedMatchingRecordsByKey = fetch.getValue().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RetriesExhaustedException) {
+                    // Already reported
+                    continue;
+                }
+                throw e;
+            }
+
+            for (Object key : fetch.getKey()) {
+                List<MigratableEntity> matchingRecords = fetchedMatchingRecordsByKey.getOrDefault(key, List.of());
+                matchingRecordsByKey.put(key, matchingRecords);
+                if (lookupCache != null && matchingRecords.size() <= BATCH_SIZE) {
+                    lookupCache.put(key, List.copyOf(matchingRecords));
+                }
+            }
+        }
+
+        // Cardinality requirement is guaranteed per key.
+        // Reductions of all keys may then run in parallel (if thread-safe).
+        List<Object[]> reductions = new ArrayList<>();
+        for (var entry : recordContextsByKeyMap.entrySet()) {
+            List<RecordProcessingContext> inputRecordContexts = entry.getValue();
+            List<MigratableEntity> matchingRecords = matchingRecordsByKey.get(entry.getKey());
+            if (matchingRecords == null) {
+                // Already reported
+                continue;
+            }
+
+            try {
+                CardinalityCheck.checkConformant(
+                    migrationFQCN, rMatchWith.getMatchWith().toString(), cardinality, matchingRecords.size()
+                );
+            } catch (CardinalityViolationException exception) {
+                // Cardinality violation is no excuse, so not retried!
+                reportProblematicRecords.accept(
+                    exception,
+                    inputRecordContexts.stream().map(RecordProcessingContext::getRecord).toList()
+                );
+                continue;
+            }
+
+            for (RecordProcessingContext ctx : inputRecordContexts) {
+                reductions.add(new Object[]{ ctx, matchingRecords });
+            }
+        }
+
+        legitRecordContexts.addAll(migrationRunner.mapPerRecord(reductions, args -> {
+            if (!((List<?>) args[1]).isEmpty()) {
+                try {
+                    callReduceMethod.apply(args);
+                } catch (RetriesExhaustedException ignored) {
+                    return null;
+                }
+            }
+            return (RecordProcessingContext) args[0];
+        }));
+
+        return legitRecordContexts;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Map<Object, List<MigratableEntity>> fetchMatchingRecordsByKey(
+        RMatchWith rMatchWith,
+        DataStore<MigratableEntity, Serializable, DataFilterSet> store,
+        Set<Object> keys,
+        int batchSize,
+        RetryLogic.ExceptionReporterStep retryLogic,
+        Function<String, String> buildDebugContext
+    ) throws RetriesExhaustedException {
+        RMigrationUtils rMigrationUtils = migrationRunner.getRMigrationUtils();
+
+        var callMatchingByKeysMethod = retryLogic
+            .debugContext(buildDebugContext.apply("callMatchingByKeysMethod"))
+            .withCallback((Set<Object> arg) -> rMigrationUtils.callMatchingByKeysMethod(rMatchWith, arg));
+
+        var getFirstPageOfRecords = retryLogic
+            .debugContext(buildDebugContext.apply("getFirstPageOfRecords"))
+            .withCallback((DataFilterSet filterSet) -> store.getFirstPageOfRecords(
+                migrationRunner.getMatchAndReduceRunner().project(rMatchWith, store, filterSet),
+                batchSize
+            ));
+
+        var getNextPageOfRecords = retryLogic
+            .debugContext(buildDebugContext.apply("getNextPageOfRecords"))
+            .withCallback(store::getNextPageOfRecords);
+
+        var callMatchedKeyMethod = retryLogic
+            .debugContext(buildDebugContext.apply("callMatchedKeyMethod"))
+            .withCallback((MigratableEntity matchedRecord) -> rMigrationUtils.callMatchedKeyMethod(rMatchWith, matchedRecord));
+
+        DataFilterSet filterSet = callMatchingByKeysMethod.apply(keys);
+
+        Map<Object, List<MigratableEntity>> matchingRecordsByKey = new HashMap<>();
+        DataPage<MigratableEntity, Serializable, DataFilterSet> matchingPage = getFirstPageOfRecords.apply(filterSet);
+        try {
+            while (matchingPage.getSize() > 0) {
+                for (MigratableEntity matchedRecord : matchingPage.getRecords()) {
+                    Object key = callMatchedKeyMethod.apply(matchedRecord);
+                    // The query may return a superset (e.g. with composite keys)
+                    if (key != null && keys.contains(key)) {
+                        matchingRecordsByKey
+                            .computeIfAbsent(key, k -> new ArrayList<>())
+                            .add(matchedRecord);
+                    }
+                }
+                if (!matchingPage.hasNext()) break;
+                matchingPage = getNextPageOfRecords.apply((DataPage) matchingPage);
+            }
+        } finally {
+            matchingPage.close();
+        }
+
+        return matchingRecordsByKey;
+    }
+
+    /**
+     * For @MatchWith(lookup = LookupMode.BROADCAST): reads the whole store
+     * (through matchAll()) into an index on matchedKeyFrom...(). Records
+     * without a key are left out.
+     *
+     * @return null if the store holds more than broadcastMaxRecords
+     * records or could not be read, in which case BATCHED lookups
+     * should be used instead
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public Map<Object, List<MigratableEntity>> loadBroadcastIndex(RMatchWith rMatchWith) {
+        RMigrationUtils rMigrationUtils = migrationRunner.getRMigrationUtils();
+        String storeFQCN = rMatchWith.getDataStoreReflection().getStoreClass().getCanonicalName();
+
+        DataStore<MigratableEntity, Serializable, DataFilterSet> store = (DataStore<MigratableEntity, Serializable, DataFilterSet>) migrationRunner
+            .getStoreRegistry()
+            .get(storeFQCN);
+        final int BATCH_SIZE = rMatchWith.getMatchWith().batchSize();
+        final int MAX_RECORDS = rMatchWith.getMatchWith().broadcastMaxRecords();
+
+        var retryLogic = RetryLogic
+            .fromErrorResolution(
+                rMatchWith.getMatchWith().inCaseOfError(),
+                rMatchWith.getDataStoreReflection().getStoreClass().getCanonicalName(),
+                migrationRunner.getStoreRegistry()
+            )
+            // Nothing to report, input records are then matched in BATCHED mode
+            .exceptionReporter((exception, arg) -> log.warn(
+                "Could not preload " + storeFQCN + " for " + migrationRunner.getMigrationFQCN(), exception
+            ));
+
+        Function<String, String> buildDebugContext = (String methodName) -> {
+            return "While preloading (broadcast) store: " + storeFQCN + "\nand calling method: "
+                + methodName + "()";
+        };
+
+        var getFirstPageOfRecords = retryLogic
+            .debugContext(buildDebugContext.apply("getFirstPageOfRecords"))
+            .withCallback((DataFilterSet filterSet) -> store.getFirstPageOfRecords(
+                migrationRunner.getMatchAndReduceRunner().project(rMatchWith, store, filterSet),
+                BATCH_SIZE
+            ));
+
+        var getNextPageOfRecords = retryLogic
+            .debugContext(buildDebugContext.apply("getNextPageOfRecords"))
+            .withCallback(store::getNextPageOfRecords);
+
+        var callMatchedKeyMethod = retryLogic
+            .debugContext(buildDebugContext.apply("callMatchedKeyMethod"))
+            .withCallback((MigratableEntity matchedRecord) -> rMigrationUtils.callMatchedKeyMethod(rMatchWith, matchedRecord));
+
+        Map<Object, List<MigratableEntity>> index = new HashMap<>();
+        int numRecords = 0;
+        try {
+            DataPage<MigratableEntity, Serializable, DataFilterSet> page = getFirstPageOfRecords.apply(store.matchAll());
+            try {
+                while (page.getSize() > 0) {
+                    numRecords += page.getSize();
+                    if (numRecords > MAX_RECORDS) {
+                        log.warn(
+                            storeFQCN + " holds more than " + MAX_RECORDS + " records, not preloaded for "
+                            + migrationRunner.getMigrationFQCN() + ", falling back to batched lookups"
+                        );
+                        return null;
+                    }
+                    for (MigratableEntity record : page.getRecords()) {
+                        Object key = callMatchedKeyMethod.apply(record);
+                        if (key != null) {
+                            index.computeIfAbsent(key, k -> new ArrayList<>()).add(record);
+                        }
+                    }
+                    if (!page.hasNext()) break;
+                    page = getNextPageOfRecords.apply((DataPage) page);
+                }
+            } finally {
+                page.close();
+            }
+        } catch (RetriesExhaustedException ignored) {
+            return null;
+        }
+
+        // Shared by all pages (and threads), so read-only
+        index.replaceAll((key, records) -> List.copyOf(records));
+
+        log.info(
+            "Preloaded " + numRecords + " records (" + index.size() + " keys) of "
+            + storeFQCN + " for " + migrationRunner.getMigrationFQCN()
+        );
+        return Collections.unmodifiableMap(index);
+    }
+}
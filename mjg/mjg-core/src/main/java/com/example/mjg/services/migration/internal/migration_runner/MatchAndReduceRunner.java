@@ -2,7 +2,9 @@ package com.example.mjg.services.migration.internal.migration_runner;
 
 import com.example.mjg.algorithms.cardinality_check.CardinalityCheck;
 import com.example.mjg.algorithms.retrying.RetryLogic;
+import com.example.mjg.algorithms.retrying.RetryLogicExecutor;
 import com.example.mjg.config.Cardinality;
+import com.example.mjg.config.LookupMode;
 import com.example.mjg.data.DataFilterSet;
 import com.example.mjg.data.DataPage;
 import com.example.mjg.data.DataStore;
@@ -11,50 +13,312 @@ import com.example.mjg.exceptions.CardinalityViolationException;
 import com.example.mjg.exceptions.RetriesExhaustedException;
 import com.example.mjg.services.migration.internal.RecordProcessingContext;
 import com.example.mjg.services.migration.internal.fault_tolerance.FailedRecordGroup;
+import com.example.mjg.services.migration.internal.fault_tolerance.ReductionCheckpoint;
 import com.example.mjg.services.migration.internal.reflective.RMatchWith;
 import com.example.mjg.services.migration.internal.reflective.RMigrationUtils;
 import com.example.mjg.storage.DataStoreRegistry;
-import lombok.AllArgsConstructor;
+import com.example.mjg.utils.EngineExecutors;
+import com.example.mjg.utils.LruCache;
+import com.example.mjg.utils.QueryPermits;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 @Getter
-@AllArgsConstructor
 @Slf4j
 public class MatchAndReduceRunner {
+    /**
+     * Runs matchings of the same order (but the first one,
+     * which is run by the calling thread), and concurrent
+     * queries of filter sets
+     */
+    private static final ExecutorService concurrentLookups = EngineExecutors.newPerTaskExecutor("mjg-lookup");
+
     private final MigrationRunner migrationRunner;
 
+    private final BatchedMatchAndReduceRunner batchedMatchAndReduceRunner;
+
+    /**
+     * For @MatchWith(cacheMaxEntries > 0): matching records by filter
+     * set (or by key, in batched mode). Empty lists are cached too.
+     */
+    private final Map<RMatchWith, LruCache<Object, List<MigratableEntity>>> lookupCaches = new ConcurrentHashMap<>();
+
+    /**
+     * For @MatchWith(lookup = LookupMode.BROADCAST): preloaded index of
+     * the whole store by key. Absent if not (yet) preloaded, or if the
+     * store is too large, in which case BATCHED lookups are used.
+     */
+    private final Map<RMatchWith, Map<Object, List<MigratableEntity>>> broadcastIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * Matchings whose fields are not projected by their store,
+     * already warned about
+     */
+    private final Set<RMatchWith> unprojectedMatchings = ConcurrentHashMap.newKeySet();
+
+    public MatchAndReduceRunner(MigrationRunner migrationRunner) {
+        this.migrationRunner = migrationRunner;
+        this.batchedMatchAndReduceRunner = new BatchedMatchAndReduceRunner(migrationRunner);
+    }
+
+    /**
+     * @return null if caching is disabled for rMatchWith
+     */
+    public LruCache<Object, List<MigratableEntity>> getLookupCache(RMatchWith rMatchWith) {
+        final int maxEntries = rMatchWith.getMatchWith().cacheMaxEntries();
+        if (maxEntries <= 0) {
+            return null;
+        }
+        return lookupCaches.computeIfAbsent(rMatchWith, k -> new LruCache<>(maxEntries));
+    }
+
+    /**
+     * Must be called before any record is matched, since
+     * preloading is not synchronized with matching.
+     */
+    public void preloadBroadcastIndexes() {
+        for (RMatchWith rMatchWith : migrationRunner.getRMatchWiths()) {
+            if (
+                rMatchWith.getMatchWith().lookup() == LookupMode.BROADCAST
+                && !broadcastIndexes.containsKey(rMatchWith)
+            ) {
+                var index = batchedMatchAndReduceRunner.loadBroadcastIndex(rMatchWith);
+                if (index != null) {
+                    broadcastIndexes.put(rMatchWith, index);
+                }
+            }
+        }
+    }
+
+    /**
+     * store.project(), warning once per matching if its
+     * fields are ignored, i.e. whole records are read
+     */
+    DataFilterSet project(
+        RMatchWith rMatchWith,
+        DataStore<MigratableEntity, Serializable, DataFilterSet> store,
+        DataFilterSet filterSet
+    ) {
+        List<String> fields = List.of(rMatchWith.getMatchWith().fields());
+        DataFilterSet projected = store.project(filterSet, fields);
+        if (!fields.isEmpty() && projected == filterSet && unprojectedMatchings.add(rMatchWith)) {
+            log.warn(
+                "@MatchWith(" + rMatchWith.getDataStoreReflection().getStoreClass().getSimpleName()
+                + ".class, fields = " + fields + ") of " + migrationRunner.getMigrationFQCN()
+                + ": fields not projected by the store for " + filterSet.getClass().getSimpleName()
+                + ", whole records are read"
+            );
+        }
+        return projected;
+    }
+
+    public void logLookupCacheStats() {
+        lookupCaches.forEach((rMatchWith, cache) -> {
+            log.info(
+                "Lookup cache of " + migrationRunner.getMigrationFQCN()
+                + " for " + rMatchWith.getDataStoreReflection().getStoreClass().getSimpleName()
+                + ": " + cache.getHits() + " hits, " + cache.getMisses() + " misses, "
+                + cache.size() + "/" + cache.getMaxEntries() + " entries"
+            );
+        });
+    }
+
     public List<RecordProcessingContext> run(List<MigratableEntity> inputRecords) {
         List<RecordProcessingContext> inputContexts = startReduction(inputRecords);
+        return runFrom(new ReductionCheckpoint(0, inputContexts));
+    }
+
+    /**
+     * Resume matching and reducing from a checkpoint
+     * (of records that failed at some matching before)
+     */
+    public List<RecordProcessingContext> runFrom(ReductionCheckpoint checkpoint) {
+        List<RecordProcessingContext> inputContexts = checkpoint.contexts();
+        List<MigratableEntity> inputRecords = inputContexts.stream()
+            .map(RecordProcessingContext::getRecord)
+            .toList();
 
         List<RMatchWith> rMatchWiths = migrationRunner.getRMatchWiths();
-        // TODO: Probably should not use parallelStream() here,
-        // TODO: since several simultaneous matching operations
-        // TODO: could eat up too much memory.
-        // TODO: Second, ordering is important!
-        for (RMatchWith rMatchWith : rMatchWiths) {
-            inputContexts = matchAndReduceRecordsPerMatching(rMatchWith, inputContexts, inputRecords);
-            if (inputContexts.isEmpty()) break;
+        // Ordering is important: matchings of one order may depend
+        // on what was reduced by matchings of lower orders.
+        // Matchings of the same order are independent though,
+        // so they are run concurrently if the migration is thread-safe.
+        int from = checkpoint.matchingIndex();
+        while (from < rMatchWiths.size() && !inputContexts.isEmpty()) {
+            if (!migrationRunner.isThreadSafe()) {
+                inputContexts = matchAndReduce(rMatchWiths.get(from), inputContexts, inputRecords);
+                ++from;
+                continue;
+            }
+
+            int to = from + 1;
+            while (to < rMatchWiths.size() && rMatchWiths.get(to).getMatchWith().order() == rMatchWiths.get(from).getMatchWith().order()) {
+                ++to;
+            }
+
+            inputContexts = to - from == 1
+                ? matchAndReduce(rMatchWiths.get(from), inputContexts, inputRecords)
+                : matchAndReduceConcurrently(rMatchWiths.subList(from, to), inputContexts, inputRecords);
+            from = to;
         }
 
         return inputContexts;
     }
 
+    private List<RecordProcessingContext> matchAndReduce(
+        RMatchWith rMatchWith,
+        List<RecordProcessingContext> inputContexts,
+        List<MigratableEntity> inputRecords
+    ) {
+        if (rMatchWith.getMatchWith().lookup() != LookupMode.PER_FILTER_SET) {
+            return batchedMatchAndReduceRunner.matchAndReduceRecordsPerMatching(
+                rMatchWith, inputContexts, inputRecords,
+                getLookupCache(rMatchWith), broadcastIndexes.get(rMatchWith)
+            );
+        }
+        return matchAndReduceRecordsPerMatching(rMatchWith, inputContexts, inputRecords);
+    }
+
+    /**
+     * Matchings of the same order, all on the same input contexts.
+     * Calls for one context hold its lock, so its aggregates
+     * are never reduced by two matchings at the same time.
+     *
+     * @return contexts that are legit after all the matchings
+     */
+    private List<RecordProcessingContext> matchAndReduceConcurrently(
+        List<RMatchWith> sameOrderRMatchWiths,
+        List<RecordProcessingContext> inputContexts,
+        List<MigratableEntity> inputRecords
+    ) {
+        List<CompletableFuture<List<RecordProcessingContext>>> matchings = new ArrayList<>();
+        for (RMatchWith rMatchWith : sameOrderRMatchWiths.subList(1, sameOrderRMatchWiths.size())) {
+            matchings.add(CompletableFuture.supplyAsync(
+                () -> matchAndReduce(rMatchWith, inputContexts, inputRecords),
+                concurrentLookups
+            ));
+        }
+        try {
+            matchings.add(0, CompletableFuture.completedFuture(
+                matchAndReduce(sameOrderRMatchWiths.get(0), inputContexts, inputRecords)
+            ));
+        } finally {
+            // Even on failure, never leave matchings running behind
+            CompletableFuture.allOf(matchings.toArray(CompletableFuture[]::new))
+                .exceptionally(throwable -> null)
+                .join();
+        }
+
+        List<Set<RecordProcessingContext>> legitContextsPerMatching = new ArrayList<>();
+        for (CompletableFuture<List<RecordProcessingContext>> matching : matchings) {
+            final List<RecordProcessingContext> legitContexts;
+            try {
+                legitContexts = matching.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+            Set<RecordProcessingContext> set = Collections.newSetFromMap(new IdentityHashMap<>());
+            set.addAll(legitContexts);
+            legitContextsPerMatching.add(set);
+        }
+
+        return inputContexts.stream()
+            .filter(ctx -> legitContextsPerMatching.stream().allMatch(set -> set.contains(ctx)))
+            .toList();
+    }
+
+    private List<RecordProcessingContext> reduceOnMatchingRecordsNow(
+        List<RecordProcessingContext> contexts,
+        List<MigratableEntity> moreMatchingRecords,
+        RetryLogicExecutor<Object[], Object> callReduceMethod
+    ) {
+        // Each context has its own aggregates, so they
+        // may be reduced in parallel (if thread-safe)
+        return migrationRunner.mapPerRecord(contexts, ctx -> {
+            try {
+                callReduceMethod.apply(
+                    new Object[]{ctx, moreMatchingRecords}
+                );
+                return ctx;
+            } catch (RetriesExhaustedException ignored) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Whether rMatchWith shares its order with other matchings,
+     * and is run concurrently with them (thread-safe migrations only)
+     */
+    boolean isRunConcurrently(RMatchWith rMatchWith) {
+        if (!migrationRunner.isThreadSafe()) {
+            return false;
+        }
+        int order = rMatchWith.getMatchWith().order();
+        return migrationRunner.getRMatchWiths()
+            .stream()
+            .filter(other -> other.getMatchWith().order() == order)
+            .count() > 1;
+    }
+
+    /**
+     * Reports contexts that failed at rMatchWith, before being reduced on
+     * it, so that they are resumed from rMatchWith. But if it is run
+     * concurrently, other matchings of the same order may have reduced
+     * them already, so they are migrated again from the start instead.
+     */
+    void reportFailedBeforeReduction(
+        RMatchWith rMatchWith,
+        List<RecordProcessingContext> contexts,
+        Exception exception
+    ) {
+        if (isRunConcurrently(rMatchWith)) {
+            migrationRunner.getMigrationErrorInvestigator()
+                .reportFailedRecords(new FailedRecordGroup(
+                    contexts.stream().map(RecordProcessingContext::getRecord).toList(),
+                    migrationRunner,
+                    rMatchWith.getMatchWith().inCaseOfError(),
+                    exception
+                ));
+            return;
+        }
+
+        migrationRunner.getMigrationErrorInvestigator()
+            .reportFailedRecords(FailedRecordGroup.fromCheckpoint(
+                new ReductionCheckpoint(migrationRunner.getRMatchWiths().indexOf(rMatchWith), contexts),
+                migrationRunner,
+                rMatchWith.getMatchWith().inCaseOfError(),
+                exception
+            ));
+    }
+
     private List<RecordProcessingContext> startReduction(
             List<MigratableEntity> inputRecords) {
         RetryLogic retryLogic = RetryLogic
-                .maxRetries(migrationRunner.getRForEachRecordFrom().getForEachRecordFrom().inCaseOfError().retryTimes())
-                .retryDelayInSeconds(migrationRunner.getRForEachRecordFrom().getForEachRecordFrom().inCaseOfError()
-                        .retryDelayInSeconds())
+                .fromErrorResolution(
+                        migrationRunner.getRForEachRecordFrom().getForEachRecordFrom().inCaseOfError(),
+                        migrationRunner.getRForEachRecordFrom().getDataStoreReflection().getStoreClass().getCanonicalName(),
+                        migrationRunner.getStoreRegistry())
                 .exceptionReporter((exception, arg) -> {
                     migrationRunner.getMigrationErrorInvestigator()
                             .reportFailedRecords(
@@ -76,21 +340,15 @@ public class MatchAndReduceRunner {
                     return null;
                 });
 
-        List<RecordProcessingContext> inputContexts = inputRecords
-                .stream()
-                .map(record -> {
-                    RecordProcessingContext ctx = new RecordProcessingContext(record);
-                    try {
-                        callStartReduction.apply(ctx);
-                    } catch (RetriesExhaustedException e) {
-                        return null;
-                    }
-                    return ctx;
-                })
-                .filter(Objects::nonNull)
-                .toList();
-
-        return inputContexts;
+        return migrationRunner.mapPerRecord(inputRecords, record -> {
+            RecordProcessingContext ctx = new RecordProcessingContext(record);
+            try {
+                callStartReduction.apply(ctx);
+            } catch (RetriesExhaustedException e) {
+                return null;
+            }
+            return ctx;
+        });
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -110,8 +368,11 @@ public class MatchAndReduceRunner {
         final Cardinality cardinality = rMatchWith.getMatchWith().cardinality();
 
         var retryLogic = RetryLogic
-            .maxRetries(rMatchWith.getMatchWith().inCaseOfError().retryTimes())
-            .retryDelayInSeconds(rMatchWith.getMatchWith().inCaseOfError().retryDelayInSeconds());
+            .fromErrorResolution(
+                rMatchWith.getMatchWith().inCaseOfError(),
+                rMatchWith.getDataStoreReflection().getStoreClass().getCanonicalName(),
+                migrationRunner.getStoreRegistry()
+            );
 
         BiConsumer<Exception, List<MigratableEntity>> reportProblematicRecords = (exception, problematicRecords) -> {
             FailedRecordGroup failedRecordGroup = new FailedRecordGroup(
@@ -129,10 +390,27 @@ public class MatchAndReduceRunner {
                 + methodName + "()";
         };
 
+        // Group records by matching filter sets
+        Map<DataFilterSet, List<RecordProcessingContext>> recordContextsByFiltersMap = new ConcurrentHashMap<>();
+
         var getFirstPageOfRecords = retryLogic
-            .exceptionReporter((exception, arg) -> reportProblematicRecords.accept(exception, inputRecords))
+            .exceptionReporter((exception, arg) -> {
+                // Nothing reduced for this filter set yet
+                List<RecordProcessingContext> contexts = recordContextsByFiltersMap.get(arg);
+                if (contexts == null) {
+                    reportProblematicRecords.accept(exception, inputRecords);
+                    return;
+                }
+                reportFailedBeforeReduction(rMatchWith, List.copyOf(contexts), exception);
+            })
             .debugContext(buildDebugContext.apply("getFirstPageOfRecords"))
-            .withCallback((DataFilterSet filterSet) -> ((DataStore<MigratableEntity, Serializable, DataFilterSet>) store).getFirstPageOfRecords(filterSet, BATCH_SIZE));
+            .withCallback((DataFilterSet filterSet) -> {
+                var typedStore = (DataStore<MigratableEntity, Serializable, DataFilterSet>) store;
+                return typedStore.getFirstPageOfRecords(
+                    project(rMatchWith, typedStore, filterSet),
+                    BATCH_SIZE
+                );
+            });
 
         var getNextPageOfRecords = retryLogic
             .exceptionReporter((exception, arg) -> reportProblematicRecords.accept(exception, inputRecords))
@@ -150,7 +428,12 @@ public class MatchAndReduceRunner {
             })
             .debugContext(buildDebugContext.apply("callMatchingMethod"))
             .withCallback((RecordProcessingContext ctx) -> {
-                return rMigrationUtils.callMatchingMethod(rMatchWith, ctx.getRecord(), ctx.getAggregates());
+                ctx.getLock().lock();
+                try {
+                    return rMigrationUtils.callMatchingMethod(rMatchWith, ctx.getRecord(), ctx.getAggregates());
+                } finally {
+                    ctx.getLock().unlock();
+                }
             });
 
         var callReduceMethod = retryLogic
@@ -170,101 +453,235 @@ public class MatchAndReduceRunner {
             .withCallback((Object[] args) -> {
                 RecordProcessingContext ctx = (RecordProcessingContext) args[0];
                 List<MigratableEntity> moreMatchingRecords = (List<MigratableEntity>) args[1];
-                rMigrationUtils.callReduceMethod(
-                    rMatchWith,
-                    ctx.getAggregates(),
-                    moreMatchingRecords
-                );
+                ctx.getLock().lock();
+                try {
+                    rMigrationUtils.callReduceMethod(
+                        rMatchWith,
+                        ctx.getAggregates(),
+                        moreMatchingRecords
+                    );
+                } finally {
+                    ctx.getLock().unlock();
+                }
                 return null;
             });
 
-        // Group records by matching filter sets
-        Map<DataFilterSet, List<RecordProcessingContext>> recordContextsByFiltersMap = new ConcurrentHashMap<>();
-        // TODO: parallelStream here could improve speed.
-        // TODO: But aggregates are being mutated...
-
-        List<RecordProcessingContext> legitRecordContexts = new ArrayList<>();
-        recordContexts = recordContexts.stream()
-            .filter(Objects::nonNull)
-            .map(recordContext -> {
+        final int maxConcurrentQueries = rMatchWith.getMatchWith().maxConcurrentQueries();
+        // Filter sets queried concurrently, or retried without blocking,
+        // are reduced as their pages arrive, on other threads than this
+        // one, but one at a time unless the migration is thread-safe
+        final boolean lookupsMayCompleteOnOtherThreads = maxConcurrentQueries > 1
+            || rMatchWith.getMatchWith().inCaseOfError().nonBlocking();
+        final ReentrantLock reductionLock = migrationRunner.isThreadSafe() || !lookupsMayCompleteOnOtherThreads
+            ? null
+            : new ReentrantLock();
+
+        BiFunction<List<RecordProcessingContext>, List<MigratableEntity>, List<RecordProcessingContext>> reduceOnMatchingRecords = (contexts, moreMatchingRecords) -> {
+            if (reductionLock != null) {
+                reductionLock.lock();
                 try {
-                    DataFilterSet filterSet = callMatchingMethod.apply(recordContext);
-                    if (filterSet == null) {
-                        // Unmatched, not reduced, but still legit record context
-                        legitRecordContexts.add(recordContext);
-                    } else {
-                        List<RecordProcessingContext> contextsOfSameFilterSet = recordContextsByFiltersMap.computeIfAbsent(
-                            filterSet,
-                            k -> new ArrayList<>()
-                        );
+                    return reduceOnMatchingRecordsNow(contexts, moreMatchingRecords, callReduceMethod);
+                } finally {
+                    reductionLock.unlock();
+                }
+            }
+            return reduceOnMatchingRecordsNow(contexts, moreMatchingRecords, callReduceMethod);
+        };
 
-                        contextsOfSameFilterSet.add(recordContext);
-                    }
-                    return recordContext;
+        final LruCache<Object, List<MigratableEntity>> lookupCache = getLookupCache(rMatchWith);
+
+        // Matching methods may be called in parallel (if thread-safe),
+        // then records are grouped by filter set, in order
+        record MatchedContext(RecordProcessingContext context, DataFilterSet filterSet) {}
+
+        List<MatchedContext> matchedContexts = migrationRunner.mapPerRecord(
+            recordContexts.stream().filter(Objects::nonNull).toList(),
+            recordContext -> {
+                try {
+                    return new MatchedContext(recordContext, callMatchingMethod.apply(recordContext));
                 } catch (RetriesExhaustedException ignored) {
                     return null;
                 }
-            })
-            .filter(Objects::nonNull)
-            .toList();
+            }
+        );
+
+        List<RecordProcessingContext> legitRecordContexts = new ArrayList<>();
+        for (MatchedContext matchedContext : matchedContexts) {
+            if (matchedContext.filterSet() == null) {
+                // Unmatched, not reduced, but still legit record context
+                legitRecordContexts.add(matchedContext.context());
+            } else {
+                recordContextsByFiltersMap
+                    .computeIfAbsent(matchedContext.filterSet(), k -> new ArrayList<>())
+                    .add(matchedContext.context());
+            }
+        }
 
         // For each filter set, query the datastore, get matching records,
         // and reduce each input record on those matching records.
         // Cardinality requirement is guaranteed per filter set.
-        for (var entry : recordContextsByFiltersMap.entrySet()) {
-            final DataFilterSet filterSet = entry.getKey();
-            List<RecordProcessingContext> inputRecordContexts = entry.getValue();
-            if (inputRecordContexts.isEmpty()) continue;
+        // With non-blocking retries, lookups being retried are
+        // completed in other threads, while the next ones go on.
+        class FilterSetLookup {
+            private final Map.Entry<DataFilterSet, List<RecordProcessingContext>> entry;
 
-            try {
-                DataPage<MigratableEntity, Serializable, DataFilterSet> matchingPage = getFirstPageOfRecords
-                    .apply(filterSet);
+            private long numMatchingRecords = 0;
 
-                long numMatchingRecords = 0;
-                while (matchingPage.getSize() > 0) {
-                    List<MigratableEntity> moreMatchingRecords = matchingPage.getRecords();
-                    numMatchingRecords += moreMatchingRecords.size();
+            // Only results of at most BATCH_SIZE records are cached
+            private List<MigratableEntity> matchingRecordsToCache = lookupCache == null ? null : new ArrayList<>();
 
-                    CardinalityCheck.checkConformantInProgress(
-                        migrationFQCN, rMatchWith.getMatchWith().toString(), cardinality,
-                        numMatchingRecords, moreMatchingRecords
-                    );
+            private FilterSetLookup(Map.Entry<DataFilterSet, List<RecordProcessingContext>> entry) {
+                this.entry = entry;
+            }
 
-                    // TODO: parallelStream() here might improve speed,
-                    // TODO: but ctx.getAggregates() is being mutated, so...
-                    inputRecordContexts = inputRecordContexts.stream()
-                        .map(ctx -> {
-                            try {
-                                callReduceMethod.apply(
-                                    new Object[]{ctx, moreMatchingRecords}
-                                );
-                                return ctx;
-                            } catch (RetriesExhaustedException ignored) {
-                                return null;
+            private CompletableFuture<Void> run() {
+                final DataFilterSet filterSet = entry.getKey();
+                try {
+                    List<MigratableEntity> cachedMatchingRecords = lookupCache == null ? null : lookupCache.get(filterSet);
+                    if (cachedMatchingRecords != null) {
+                        CardinalityCheck.checkConformant(migrationFQCN, rMatchWith.getMatchWith().toString(), cardinality, cachedMatchingRecords.size());
+                        if (!cachedMatchingRecords.isEmpty()) {
+                            entry.setValue(reduceOnMatchingRecords.apply(entry.getValue(), cachedMatchingRecords));
+                        }
+                        return CompletableFuture.completedFuture(null);
+                    }
+                } catch (CardinalityViolationException exception) {
+                    onFailure(exception);
+                    return CompletableFuture.completedFuture(null);
+                }
+
+                return getFirstPageOfRecords.applyAsync(filterSet)
+                    .thenCompose(this::onPages)
+                    .exceptionally(throwable -> {
+                        onFailure(throwable);
+                        return null;
+                    });
+            }
+
+            /**
+             * Loops as long as pages are fetched without
+             * waiting for a retry.
+             */
+            private CompletableFuture<Void> onPages(DataPage<MigratableEntity, Serializable, DataFilterSet> matchingPage) {
+                try {
+                    while (true) {
+                        if (matchingPage.getSize() == 0) {
+                            finish(true);
+                            return CompletableFuture.completedFuture(null);
+                        }
+
+                        List<MigratableEntity> moreMatchingRecords = matchingPage.getRecords();
+                        numMatchingRecords += moreMatchingRecords.size();
+
+                        CardinalityCheck.checkConformantInProgress(
+                            migrationFQCN, rMatchWith.getMatchWith().toString(), cardinality,
+                            numMatchingRecords, moreMatchingRecords
+                        );
+
+                        if (matchingRecordsToCache != null) {
+                            if (numMatchingRecords <= BATCH_SIZE) {
+                                matchingRecordsToCache.addAll(moreMatchingRecords);
+                            } else {
+                                matchingRecordsToCache = null;
                             }
-                        })
-                        .toList();
-                    
-                    entry.setValue(inputRecordContexts);
-                    if (inputRecordContexts.isEmpty()) break;
-                    matchingPage = getNextPageOfRecords.apply((DataPage) matchingPage);
+                        }
+
+                        List<RecordProcessingContext> inputRecordContexts = reduceOnMatchingRecords.apply(entry.getValue(), moreMatchingRecords);
+                        entry.setValue(inputRecordContexts);
+                        if (inputRecordContexts.isEmpty()) {
+                            // Next pages are not read
+                            matchingPage.close();
+                            finish(false);
+                            return CompletableFuture.completedFuture(null);
+                        }
+                        if (!matchingPage.hasNext()) {
+                            finish(true);
+                            return CompletableFuture.completedFuture(null);
+                        }
+
+                        CompletableFuture<DataPage<MigratableEntity, Serializable, DataFilterSet>> nextPage = getNextPageOfRecords
+                            .applyAsync((DataPage) matchingPage);
+                        if (!nextPage.isDone() || nextPage.isCompletedExceptionally()) {
+                            return nextPage.thenCompose(this::onPages);
+                        }
+                        matchingPage = nextPage.join();
+                    }
+                } catch (CardinalityViolationException exception) {
+                    matchingPage.close();
+                    throw new CompletionException(exception);
                 }
+            }
 
+            private void finish(boolean allPagesRead) throws CardinalityViolationException {
                 CardinalityCheck.checkConformant(migrationFQCN, rMatchWith.getMatchWith().toString(), cardinality, numMatchingRecords);
-            } catch (CardinalityViolationException exception) {
-                // Cardinality violation is no excuse, so not retried!
-                final List<MigratableEntity> currentInputRecords = inputRecordContexts.stream()
-                    .map(RecordProcessingContext::getRecord)
-                    .toList();
 
-                reportProblematicRecords.accept(exception, currentInputRecords);
+                if (matchingRecordsToCache != null && allPagesRead) {
+                    lookupCache.put(entry.getKey(), List.copyOf(matchingRecordsToCache));
+                }
+            }
 
+            private void onFailure(Throwable throwable) {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause()
+                    : throwable;
+                if (cause instanceof CardinalityViolationException exception) {
+                    // Cardinality violation is no excuse, so not retried!
+                    final List<MigratableEntity> currentInputRecords = entry.getValue().stream()
+                        .map(RecordProcessingContext::getRecord)
+                        .toList();
+
+                    reportProblematicRecords.accept(exception, currentInputRecords);
+                } else if (!(cause instanceof RetriesExhaustedException)) {
+                    // Already reported
+                    throw throwable instanceof CompletionException completionException
+                        ? completionException
+                        : new CompletionException(throwable);
+                }
                 entry.setValue(List.of());
-            } catch (RetriesExhaustedException ignored) {
-                entry.setValue(List.of());
             }
         }
 
+        // With maxConcurrentQueries > 1, lookups are run on other
+        // threads, while this one waits for a permit to start the next.
+        // Permits are per store, shared by all migrations and pages.
+        final QueryPermits inFlightQueries = migrationRunner.getStoreRegistry().getQueryPermits(
+            rMatchWith.getDataStoreReflection().getStoreClass().getCanonicalName(),
+            maxConcurrentQueries
+        );
+
+        List<CompletableFuture<Void>> lookups = new ArrayList<>();
+        for (var entry : recordContextsByFiltersMap.entrySet()) {
+            if (entry.getValue().isEmpty()) continue;
+            if (inFlightQueries == null) {
+                lookups.add(new FilterSetLookup(entry).run());
+                continue;
+            }
+
+            try {
+                inFlightQueries.acquire();
+            } catch (InterruptedException e) {
+                // Lookups already started are not left running behind
+                CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new))
+                    .exceptionally(throwable -> null)
+                    .join();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting to query filter sets", e);
+            }
+            lookups.add(
+                CompletableFuture.supplyAsync(() -> new FilterSetLookup(entry).run(), concurrentLookups)
+                    .thenCompose(lookup -> lookup)
+                    .whenComplete((ignored, throwable) -> inFlightQueries.release())
+            );
+        }
+        try {
+            CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+
         legitRecordContexts.addAll(
             recordContextsByFiltersMap.values()
             .stream()
@@ -2,11 +2,16 @@ package com.example.mjg.services.migration.internal.migration_runner;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.example.mjg.algorithms.retrying.RetryLogic;
 import com.example.mjg.annotations.ForEachRecordFrom;
 import com.example.mjg.annotations.MatchWith;
+import com.example.mjg.annotations.Migration;
 import com.example.mjg.annotations.TransformAndSaveTo;
 import com.example.mjg.config.Cardinality;
 import com.example.mjg.data.DataFilterSet;
@@ -17,12 +22,14 @@ import com.example.mjg.exceptions.RetriesExhaustedException;
 import com.example.mjg.services.migration.internal.RecordProcessingContext;
 import com.example.mjg.services.migration.internal.fault_tolerance.MigrationErrorInvestigator;
 import com.example.mjg.services.migration.internal.fault_tolerance.MigrationProgressManager;
+import com.example.mjg.services.migration.internal.fault_tolerance.ReductionCheckpoint;
 import com.example.mjg.services.migration.internal.reflective.RForEachRecordFrom;
 import com.example.mjg.services.migration.internal.reflective.RMatchWith;
 import com.example.mjg.services.migration.internal.reflective.RMigrationUtils;
 import com.example.mjg.services.migration.internal.reflective.RTransformAndSaveTo;
 import com.example.mjg.storage.DataStoreRegistry;
 import com.example.mjg.storage.MigrationRegistry;
+import com.example.mjg.utils.BoundedParallelProcessor;
 import com.example.mjg.utils.DataStoreReflection;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -55,6 +62,12 @@ public class MigrationRunner {
     private final MatchAndReduceRunner matchAndReduceRunner;
     private final TransformAndSaveRunner transformAndSaveRunner;
 
+    /**
+     * For @Migration(threadSafe = true): calls migration methods
+     * for different input records in parallel. null otherwise.
+     */
+    private final ForkJoinPool recordPool;
+
     public MigrationRunner(
         DataStoreRegistry storeRegistry,
         MigrationRegistry migrationRegistry,
@@ -73,6 +86,15 @@ public class MigrationRunner {
         );
         this.transformAndSaveTo = migrationClass.getAnnotationsByType(TransformAndSaveTo.class)[0];
 
+        Migration migration = migrationClass.getAnnotation(Migration.class);
+        if (migration != null && migration.threadSafe()) {
+            this.recordPool = new ForkJoinPool(
+                migration.parallelism() > 0 ? migration.parallelism() : Runtime.getRuntime().availableProcessors()
+            );
+        } else {
+            this.recordPool = null;
+        }
+
         this.rForEachRecordFrom = new RForEachRecordFrom(
             migrationClass,
             forEachRecordFrom,
@@ -117,31 +139,214 @@ public class MigrationRunner {
 
     public void run()
     throws RetriesExhaustedException {
-        this.migrationErrorInvestigator.startInBackground();
+        try {
+            runAndJoin();
+        } finally {
+            if (recordPool != null) {
+                recordPool.shutdown();
+            }
+        }
+
+        matchAndReduceRunner.logLookupCacheStats();
+
+        final int numFailures = migrationErrorInvestigator.getNumFailures();
+        if (numFailures > 0) {
+            throw new RetriesExhaustedException(migrationFQCN + " experienced at least " + numFailures + " failures");
+        }
+    }
+
+    private void runAndJoin() {
+        // Before anything is matched, including previously failed records
+        this.matchAndReduceRunner.preloadBroadcastIndexes();
+
         this.migrationErrorInvestigator.retryPreviouslyFailedRecords();
         
         DataStore<MigratableEntity, Serializable, DataFilterSet> inputStore = getDataStore(
             rForEachRecordFrom.getDataStoreReflection().getStoreClass().getCanonicalName()
         );
-        runInternal(inputStore.matchAll());
+
+        DataFilterSet filterSet;
+        Consumer<Serializable> onPageMigrated;
+        if (inputStore.supportsKeysetPagination()) {
+            // Key-ordered scan: skip the committed prefix of a previous run
+            Serializable resumeCursor = migrationErrorInvestigator.getResumeCursor();
+            if (resumeCursor != null) {
+                log.info("Resuming " + migrationFQCN + " after input record ID: " + resumeCursor);
+            }
+            filterSet = inputStore.matchAllAfterId(resumeCursor);
+            onPageMigrated = migrationErrorInvestigator::advanceResumeCursor;
+        } else {
+            filterSet = inputStore.matchAll();
+            onPageMigrated = null;
+        }
+
+        final int pipelineCapacity = rForEachRecordFrom.getForEachRecordFrom().pipelineCapacity();
+        if (pipelineCapacity > 0) {
+            runInternalPipelined(filterSet, pipelineCapacity, onPageMigrated);
+        } else {
+            runInternal(filterSet, onPageMigrated);
+        }
 
         migrationErrorInvestigator.join();
-        final int numFailures = migrationErrorInvestigator.getNumFailures();
-        if (numFailures > 0) {
-            throw new RetriesExhaustedException(migrationFQCN + " experienced at least " + numFailures + " failures");
+    }
+
+    /**
+     * Maps items of different input records, in order, dropping
+     * null results. With @Migration(threadSafe = true), mapper
+     * is called in parallel.
+     */
+    public <T, R> List<R> mapPerRecord(List<T> items, Function<T, R> mapper) {
+        if (recordPool == null || items.size() <= 1) {
+            return items.stream()
+                .map(mapper)
+                .filter(Objects::nonNull)
+                .toList();
         }
+
+        // A parallel stream runs in the pool it is started from
+        return recordPool.submit(
+            () -> items.parallelStream()
+                .map(mapper)
+                .filter(Objects::nonNull)
+                .toList()
+        ).join();
+    }
+
+    public boolean isThreadSafe() {
+        return recordPool != null;
     }
 
     public void runWithRecordIdIn(Set<Serializable> recordIds) {
-        runInternal(inputStore.matchByIdIn(recordIds));
+        runInternal(inputStore.matchByIdIn(recordIds), null);
     }
 
-    private void runInternal(DataFilterSet filterSet) {
+    /**
+     * Like runWithRecordIdIn(), but without reading, matching and
+     * reducing records all over again up to the checkpoint.
+     */
+    public void runFromCheckpoint(ReductionCheckpoint checkpoint) {
+        Set<Serializable> recordIds = checkpoint.contexts()
+            .stream()
+            .map(ctx -> ctx.getRecord().getMigratableId())
+            .collect(Collectors.toCollection(HashSet::new));
+        migrationErrorInvestigator.excludeSuccessfullyMigratedRecordIds(recordIds);
+        migrationErrorInvestigator.excludeIgnoredRecordIds(recordIds);
+
+        List<RecordProcessingContext> contexts = checkpoint.contexts()
+            .stream()
+            .filter(ctx -> recordIds.contains(ctx.getRecord().getMigratableId()))
+            .toList();
+        if (contexts.isEmpty()) return;
+
+        List<RecordProcessingContext> inputContexts = matchAndReduceRunner.runFrom(
+            new ReductionCheckpoint(checkpoint.matchingIndex(), contexts)
+        );
+        transformAndSaveRunner.run(inputContexts);
+    }
+
+    /**
+     * @param onPageMigrated if not null, gets the ID of the last
+     * record of each page, once all its records are migrated
+     * (or reported as failed), in page order
+     */
+    private void runInternal(DataFilterSet filterSet, Consumer<Serializable> onPageMigrated) {
+        forEachPageOfRecordsToMigrate(filterSet, (recordsToMigrate, lastRecordId) -> {
+            if (!recordsToMigrate.isEmpty()) {
+                migrateRecords(recordsToMigrate);
+            }
+            if (onPageMigrated != null) {
+                onPageMigrated.accept(lastRecordId);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * A page handed over between pipeline stages
+     */
+    private record PipelinedPage<T>(List<T> items, Serializable lastRecordId) {}
+
+    /**
+     * Same as runInternal, but reading, matching/reducing
+     * and transforming/saving are run concurrently as a
+     * pipeline of stages, each on its own thread. Pages
+     * are handed over via bounded queues, so a slow stage
+     * blocks the stage before it (backpressure) instead of
+     * having pages piling up in memory.
+     */
+    private void runInternalPipelined(DataFilterSet filterSet, int pipelineCapacity, Consumer<Serializable> onPageMigrated) {
+        try (
+            BoundedParallelProcessor<PipelinedPage<RecordProcessingContext>> transformAndSaveStage = new BoundedParallelProcessor<>(
+                1, pipelineCapacity, page -> {
+                    if (!page.items().isEmpty()) {
+                        transformAndSaveRunner.run(page.items());
+                    }
+                    // One worker per stage => pages stay in order
+                    if (onPageMigrated != null) {
+                        onPageMigrated.accept(page.lastRecordId());
+                    }
+                }
+            );
+            BoundedParallelProcessor<PipelinedPage<MigratableEntity>> matchAndReduceStage = new BoundedParallelProcessor<>(
+                1, pipelineCapacity, page -> {
+                    List<RecordProcessingContext> inputContexts = page.items().isEmpty()
+                        ? List.of()
+                        : matchAndReduceRunner.run(page.items());
+                    if (inputContexts.isEmpty() && onPageMigrated == null) return;
+                    try {
+                        transformAndSaveStage.submit(new PipelinedPage<>(inputContexts, page.lastRecordId()));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException("Interrupted while handing over to the transform-and-save stage", e);
+                    }
+                }
+            )
+        ) {
+            try {
+                forEachPageOfRecordsToMigrate(filterSet, (recordsToMigrate, lastRecordId) -> {
+                    if (recordsToMigrate.isEmpty() && onPageMigrated == null) {
+                        return true;
+                    }
+                    try {
+                        return matchAndReduceStage.submit(new PipelinedPage<>(recordsToMigrate, lastRecordId))
+                            && !transformAndSaveStage.isStopped();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                });
+
+                // Drain the stages in order
+                matchAndReduceStage.awaitTermination();
+                transformAndSaveStage.awaitTermination();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            matchAndReduceStage.throwIfFailed();
+            transformAndSaveStage.throwIfFailed();
+        }
+    }
+
+    /**
+     * Read all pages of records matching filterSet, and for
+     * each page, hand the records that still need migrating
+     * (i.e. not yet migrated, and not ignored, possibly none)
+     * and the ID of the page's last record to pageHandler.
+     * Stops early if pageHandler returns false.
+     */
+    private void forEachPageOfRecordsToMigrate(
+        DataFilterSet filterSet,
+        BiPredicate<List<MigratableEntity>, Serializable> pageHandler
+    ) {
         final int INPUT_BATCH_SIZE = rForEachRecordFrom.getForEachRecordFrom().batchSize();
 
         RetryLogic retryLogic = RetryLogic
-            .maxRetries(rForEachRecordFrom.getForEachRecordFrom().inCaseOfError().retryTimes())
-            .retryDelayInSeconds(rForEachRecordFrom.getForEachRecordFrom().inCaseOfError().retryDelayInSeconds())
+            .fromErrorResolution(
+                rForEachRecordFrom.getForEachRecordFrom().inCaseOfError(),
+                rForEachRecordFrom.getDataStoreReflection().getStoreClass().getCanonicalName(),
+                storeRegistry
+            )
             .exceptionReporter(
                 (e, arg) -> migrationErrorInvestigator.reportFatalError(e)
             )
@@ -168,36 +373,54 @@ public class MigrationRunner {
             return;
         }
 
-        while (inputPage.getSize() > 0) {
-            List<MigratableEntity> originalRecords = inputPage.getRecords();
-
-            Set<Serializable> inputRecordIds = originalRecords
-                .stream()
-                .map(MigratableEntity::getMigratableId)
-                .collect(Collectors.toCollection(HashSet::new));
-
-            {
-                // Filter out those that are already migrated, and those that are ignored
-                migrationErrorInvestigator.excludeSuccessfullyMigratedRecordIds(inputRecordIds);
-                migrationErrorInvestigator.excludeIgnoredRecordIds(inputRecordIds);
-            }
-
-            List<MigratableEntity> recordsToMigrate = originalRecords
-                .stream()
-                .filter(record -> inputRecordIds.contains(record.getMigratableId()))
-                .toList();
+        // Closed even if the scan is abandoned (pageHandler
+        // returning false, failure, ...), e.g. a server-side cursor
+        try {
+            while (inputPage.getSize() > 0) {
+                List<MigratableEntity> originalRecords = inputPage.getRecords();
+
+                Set<Serializable> inputRecordIds = originalRecords
+                    .stream()
+                    .map(MigratableEntity::getMigratableId)
+                    .collect(Collectors.toCollection(HashSet::new));
+
+                try {
+                    migrationErrorInvestigator.checkRecordIdsJournalable(inputRecordIds);
+                } catch (IllegalArgumentException e) {
+                    // Before anything is saved, rather than duplicating on retry
+                    migrationErrorInvestigator.reportFatalError(e);
+                    return;
+                }
+
+                {
+                    // Filter out those that are already migrated, and those that are ignored
+                    migrationErrorInvestigator.excludeSuccessfullyMigratedRecordIds(inputRecordIds);
+                    migrationErrorInvestigator.excludeIgnoredRecordIds(inputRecordIds);
+                }
+
+                List<MigratableEntity> recordsToMigrate = originalRecords
+                    .stream()
+                    .filter(record -> inputRecordIds.contains(record.getMigratableId()))
+                    .toList();
             
-            // Process
-            if (!recordsToMigrate.isEmpty()) {
-                migrateRecords(recordsToMigrate);
-            }
+                // Process
+                Serializable lastRecordId = originalRecords.get(originalRecords.size() - 1).getMigratableId();
+                if (!pageHandler.test(recordsToMigrate, lastRecordId)) {
+                    return;
+                }
             
-            // Next page
-            try {
-                inputPage = getNextPageOfRecordsAfter.apply(inputPage);
-            } catch (RetriesExhaustedException e) {
-                return;
+                // Next page
+                if (!inputPage.hasNext()) {
+                    return;
+                }
+                try {
+                    inputPage = getNextPageOfRecordsAfter.apply(inputPage);
+                } catch (RetriesExhaustedException e) {
+                    return;
+                }
             }
+        } finally {
+            inputPage.close();
         }
     }
 
@@ -2,6 +2,7 @@ package com.example.mjg.services.migration.internal.migration_runner;
 
 import com.example.mjg.algorithms.cardinality_check.CardinalityCheck;
 import com.example.mjg.algorithms.retrying.RetryLogic;
+import com.example.mjg.algorithms.retrying.RetryLogicExecutor;
 import com.example.mjg.config.Cardinality;
 import com.example.mjg.data.MigratableEntity;
 import com.example.mjg.exceptions.CardinalityViolationException;
@@ -25,8 +26,26 @@ import java.util.stream.Stream;
 class TransformAndSaveRunner {
     private final MigrationRunner migrationRunner;
 
+    /**
+     * Whether output records of several input records
+     * are saved together (see saveCoalescedBatch())
+     */
+    private final boolean batchAcrossInputRecords;
+
     public TransformAndSaveRunner(MigrationRunner migrationRunner) {
         this.migrationRunner = migrationRunner;
+
+        boolean batchAcrossInputRecords = migrationRunner.getRTransformAndSaveTo()
+            .getTransformAndSaveTo()
+            .batchAcrossInputRecords();
+        if (batchAcrossInputRecords && !migrationRunner.getOutputStore().isSaveAllAtomicOrIdempotent()) {
+            log.warn(
+                "batchAcrossInputRecords ignored for " + migrationRunner.getMigrationFQCN()
+                + ": saveAll() of the output store is neither atomic nor idempotent"
+            );
+            batchAcrossInputRecords = false;
+        }
+        this.batchAcrossInputRecords = batchAcrossInputRecords;
     }
 
     public void run(
@@ -42,6 +61,18 @@ class TransformAndSaveRunner {
         private MigratableEntity inputRecord;
         @Setter
         private List<MigratableEntity> outputRecords;
+
+        /**
+         * Failure of the output records already reported by the store
+         * (see saveCoalescedBatch()), taken as the first save attempt
+         */
+        private Exception reportedFailure;
+
+        private Exception takeReportedFailure() {
+            Exception failure = reportedFailure;
+            reportedFailure = null;
+            return failure;
+        }
     }
 
     private Stream<RecordOutputContext> transform(
@@ -52,8 +83,11 @@ class TransformAndSaveRunner {
         Cardinality transformCardinality = rTransformAndSaveTo.getTransformAndSaveTo().cardinality();
 
         var retryLogic = RetryLogic
-            .maxRetries(rTransformAndSaveTo.getTransformAndSaveTo().inCaseOfError().retryTimes())
-            .retryDelayInSeconds(rTransformAndSaveTo.getTransformAndSaveTo().inCaseOfError().retryDelayInSeconds());
+            .fromErrorResolution(
+                rTransformAndSaveTo.getTransformAndSaveTo().inCaseOfError(),
+                rTransformAndSaveTo.getDataStoreReflection().getStoreClass().getCanonicalName(),
+                migrationRunner.getStoreRegistry()
+            );
 
         var handleRecordContext = retryLogic
             .exceptionReporter((exception, arg) -> {
@@ -78,7 +112,7 @@ class TransformAndSaveRunner {
                     );
 
                     return new RecordOutputContext(
-                        ctx.getRecord(), outputRecords
+                        ctx.getRecord(), outputRecords, null
                     );
                 } catch (CardinalityViolationException exception) {
                     // Cardinality violation is no excuse, so not retried!
@@ -87,7 +121,18 @@ class TransformAndSaveRunner {
                 }
             });
 
-        // TODO: Could use parallelStream here?
+        if (migrationRunner.isThreadSafe()) {
+            // All transformed up front, in parallel,
+            // instead of one by one while saving
+            return migrationRunner.mapPerRecord(inputContexts, ctx -> {
+                try {
+                    return handleRecordContext.apply(ctx);
+                } catch (RetriesExhaustedException e) {
+                    return null;
+                }
+            }).stream();
+        }
+
         return inputContexts
             .stream()
             .map(ctx -> {
@@ -106,8 +151,11 @@ class TransformAndSaveRunner {
         final RTransformAndSaveTo rTransformAndSaveTo = migrationRunner.getRTransformAndSaveTo();
 
         var retryLogic = RetryLogic
-            .maxRetries(rTransformAndSaveTo.getTransformAndSaveTo().inCaseOfError().retryTimes())
-            .retryDelayInSeconds(rTransformAndSaveTo.getTransformAndSaveTo().inCaseOfError().retryDelayInSeconds());
+            .fromErrorResolution(
+                rTransformAndSaveTo.getTransformAndSaveTo().inCaseOfError(),
+                rTransformAndSaveTo.getDataStoreReflection().getStoreClass().getCanonicalName(),
+                migrationRunner.getStoreRegistry()
+            );
 
         var fromOutputContext_SaveAndResolveDuplicatesIfAny = retryLogic
             .exceptionReporter((exception, arg) -> {
@@ -117,6 +165,10 @@ class TransformAndSaveRunner {
             .withCallback(
             (RecordOutputContext ctx) -> {
                 try {
+                    Exception reportedFailure = ctx.takeReportedFailure();
+                    if (reportedFailure != null) {
+                        throw reportedFailure;
+                    }
                     migrationRunner.getOutputStore()
                         .saveAll(ctx.getOutputRecords());
                 } catch (DuplicateDataException e) {
@@ -143,44 +195,62 @@ class TransformAndSaveRunner {
             }
         );
 
+        var saveBatch = retryLogic
+            .exceptionReporter((exception, arg) -> {
+                log.warn(
+                    "Saving a batch of " + ((List<?>) arg).size() + " output records failed, splitting it: "
+                    + exception.getMessage(),
+                    exception
+                );
+            })
+            .debugContext("While saving a batch of records")
+            .withCallback(
+            (List<MigratableEntity> outputRecords) -> migrationRunner.getOutputStore()
+                .saveAllReportingFailures(outputRecords)
+        );
+
         final int BATCH_SIZE = rTransformAndSaveTo.getTransformAndSaveTo().batchSize();
         Set<Serializable> successfullyMigratedInputRecordIds = new HashSet<>();
 
         try {
-            // Split into chunks/batches of output records that are transformed from one *same input record*.
-            // Reason? For error reporting.
-            // If one chunk is too large, split it further.
-
-            // NOTE: A parallelStream here won't do any good I guess
-            outputContextsStream.forEach(outputContext -> {
-                List<MigratableEntity> outputRecords = outputContext.getOutputRecords();
-
-                int beginPos = 0;
-                int endPos = Math.min(BATCH_SIZE, outputRecords.size());
-                boolean failed = false;
-
-                while (endPos <= outputRecords.size()) {
-                    if (beginPos >= endPos) break;
-                    final List<MigratableEntity> outputRecordsBatch = outputRecords.subList(beginPos, endPos);
-                    final RecordOutputContext subCtx = new RecordOutputContext(
-                        outputContext.getInputRecord(),
-                        outputRecordsBatch
-                    );
-                    try {
-                        fromOutputContext_SaveAndResolveDuplicatesIfAny.apply(subCtx);
-                    } catch (RetriesExhaustedException ignored) {
-                        failed = true;
+            if (batchAcrossInputRecords) {
+                // Coalesce output records of several input records
+                // into one saveAll() of at most BATCH_SIZE records.
+                List<RecordOutputContext> batch = new ArrayList<>();
+                int batchNumOutputRecords = 0;
+
+                Iterator<RecordOutputContext> it = outputContextsStream.iterator();
+                while (it.hasNext()) {
+                    RecordOutputContext outputContext = it.next();
+                    int numOutputRecords = outputContext.getOutputRecords().size();
+
+                    if (!batch.isEmpty() && batchNumOutputRecords + numOutputRecords > BATCH_SIZE) {
+                        saveCoalescedBatch(batch, saveBatch, fromOutputContext_SaveAndResolveDuplicatesIfAny, BATCH_SIZE, successfullyMigratedInputRecordIds);
+                        batch = new ArrayList<>();
+                        batchNumOutputRecords = 0;
                     }
-                    beginPos = endPos;
-                    endPos = Math.min(endPos + BATCH_SIZE, outputRecords.size());
+
+                    batch.add(outputContext);
+                    batchNumOutputRecords += numOutputRecords;
                 }
 
-                if (!failed) {
-                    successfullyMigratedInputRecordIds.add(
-                        outputContext.getInputRecord().getMigratableId()
-                    );
+                if (!batch.isEmpty()) {
+                    saveCoalescedBatch(batch, saveBatch, fromOutputContext_SaveAndResolveDuplicatesIfAny, BATCH_SIZE, successfullyMigratedInputRecordIds);
                 }
-            });
+            } else {
+                // Split into chunks/batches of output records that are transformed from one *same input record*.
+                // Reason? For error reporting.
+                // If one chunk is too large, split it further.
+
+                // NOTE: A parallelStream here won't do any good I guess
+                outputContextsStream.forEach(outputContext -> {
+                    if (saveOutputContext(outputContext, fromOutputContext_SaveAndResolveDuplicatesIfAny, BATCH_SIZE)) {
+                        successfullyMigratedInputRecordIds.add(
+                            outputContext.getInputRecord().getMigratableId()
+                        );
+                    }
+                });
+            }
         } finally {
             migrationRunner.getMigrationErrorInvestigator()
                 .reportSuccessfulRecords(
@@ -192,6 +262,128 @@ class TransformAndSaveRunner {
         }
     }
 
+    /**
+     * Saves output records of one input record, in chunks
+     * of BATCH_SIZE, with retries and duplicate resolution.
+     *
+     * @return whether all chunks were saved
+     */
+    private boolean saveOutputContext(
+        RecordOutputContext outputContext,
+        RetryLogicExecutor<RecordOutputContext, Object> saveAndResolveDuplicatesIfAny,
+        final int BATCH_SIZE
+    ) {
+        List<MigratableEntity> outputRecords = outputContext.getOutputRecords();
+
+        int beginPos = 0;
+        int endPos = Math.min(BATCH_SIZE, outputRecords.size());
+        boolean failed = false;
+
+        while (endPos <= outputRecords.size()) {
+            if (beginPos >= endPos) break;
+            final List<MigratableEntity> outputRecordsBatch = outputRecords.subList(beginPos, endPos);
+            final RecordOutputContext subCtx = new RecordOutputContext(
+                outputContext.getInputRecord(),
+                outputRecordsBatch,
+                outputContext.getReportedFailure()
+            );
+            try {
+                saveAndResolveDuplicatesIfAny.apply(subCtx);
+            } catch (RetriesExhaustedException ignored) {
+                failed = true;
+            }
+            beginPos = endPos;
+            endPos = Math.min(endPos + BATCH_SIZE, outputRecords.size());
+        }
+
+        return !failed;
+    }
+
+    /**
+     * Tries to save output records of all input records in one go
+     * (with retries). If the store reports which output records
+     * failed, only those are saved again (see saveOutputContext()),
+     * their reported failure being taken as the first attempt.
+     * Otherwise, once retries are exhausted, the batch is split in
+     * halves recursively, down to single input records, which are
+     * then saved by saveOutputContext() (with retries, duplicate
+     * resolution and exact error reporting).
+     *
+     * Only used if saveAll() of the output store is atomic or
+     * idempotent, so saving parts of a failed batch again is safe.
+     */
+    private void saveCoalescedBatch(
+        List<RecordOutputContext> batch,
+        RetryLogicExecutor<List<MigratableEntity>, Map<Integer, Exception>> saveBatch,
+        RetryLogicExecutor<RecordOutputContext, Object> saveAndResolveDuplicatesIfAny,
+        final int BATCH_SIZE,
+        Set<Serializable> successfullyMigratedInputRecordIds
+    ) {
+        if (batch.isEmpty()) return;
+
+        if (batch.size() == 1) {
+            RecordOutputContext outputContext = batch.get(0);
+            if (saveOutputContext(outputContext, saveAndResolveDuplicatesIfAny, BATCH_SIZE)) {
+                successfullyMigratedInputRecordIds.add(
+                    outputContext.getInputRecord().getMigratableId()
+                );
+            }
+            return;
+        }
+
+        List<MigratableEntity> allOutputRecords = new ArrayList<>();
+        for (RecordOutputContext outputContext : batch) {
+            allOutputRecords.addAll(outputContext.getOutputRecords());
+        }
+
+        Map<Integer, Exception> failuresByIndex;
+        try {
+            failuresByIndex = saveBatch.apply(allOutputRecords);
+        } catch (RetriesExhaustedException e) {
+            final int mid = batch.size() / 2;
+            saveCoalescedBatch(batch.subList(0, mid), saveBatch, saveAndResolveDuplicatesIfAny, BATCH_SIZE, successfullyMigratedInputRecordIds);
+            saveCoalescedBatch(batch.subList(mid, batch.size()), saveBatch, saveAndResolveDuplicatesIfAny, BATCH_SIZE, successfullyMigratedInputRecordIds);
+            return;
+        }
+
+        int beginPos = 0;
+        for (RecordOutputContext outputContext : batch) {
+            List<MigratableEntity> outputRecords = outputContext.getOutputRecords();
+            List<MigratableEntity> failedOutputRecords = new ArrayList<>();
+            Exception failure = null;
+            if (!failuresByIndex.isEmpty()) {
+                for (int i = 0; i < outputRecords.size(); ++i) {
+                    Exception failureOfOutputRecord = failuresByIndex.get(beginPos + i);
+                    if (failureOfOutputRecord != null) {
+                        failedOutputRecords.add(outputRecords.get(i));
+                        // Duplicates first, for handleDuplicate()
+                        if (failure == null || (
+                            failureOfOutputRecord instanceof DuplicateDataException
+                            && !(failure instanceof DuplicateDataException)
+                        )) {
+                            failure = failureOfOutputRecord;
+                        }
+                    }
+                }
+            }
+            beginPos += outputRecords.size();
+
+            // Only the output records that failed go through retries and
+            // duplicate resolution, starting from the reported failure
+            if (
+                failedOutputRecords.isEmpty()
+                || saveOutputContext(
+                    new RecordOutputContext(outputContext.getInputRecord(), failedOutputRecords, failure),
+                    saveAndResolveDuplicatesIfAny, BATCH_SIZE
+                )
+            ) {
+                successfullyMigratedInputRecordIds.add(
+                    outputContext.getInputRecord().getMigratableId()
+                );
+            }
+        }
+    }
+
     private void reportProblematicRecords(Exception exception, List<MigratableEntity> problematicRecords) {
         final RTransformAndSaveTo rTransformAndSaveTo = migrationRunner.getRTransformAndSaveTo();
 
@@ -3,14 +3,17 @@ package com.example.mjg.services.migration.internal.reflective;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.example.mjg.data.DataFilterSet;
 import com.example.mjg.data.DataStore;
 import com.example.mjg.data.MigratableEntity;
 import com.example.mjg.exceptions.DuplicateDataException;
+import com.example.mjg.processors.Migration.MigrationDispatcher;
+import com.example.mjg.processors.Migration.MigrationDispatcherLocation;
 import com.example.mjg.storage.DataStoreRegistry;
 import com.example.mjg.utils.RMethodSignature;
 import lombok.extern.slf4j.Slf4j;
@@ -27,6 +30,13 @@ public class RMigrationUtils {
     // private final List<RMatchWith> rMatchWiths;
     private final RTransformAndSaveTo rTransformAndSaveTo;
 
+    /**
+     * Generated at compile time, calls the migration methods directly.
+     * null if the migration class was not processed,
+     * then methods are invoked through reflection.
+     */
+    private final MigrationDispatcher dispatcher;
+
     public RMigrationUtils(
         DataStoreRegistry storeRegistry,
         Class<?> migrationClass,
@@ -34,6 +44,22 @@ public class RMigrationUtils {
         RForEachRecordFrom rForEachRecordFrom,
         List<RMatchWith> rMatchWiths,
         RTransformAndSaveTo rTransformAndSaveTo
+    ) {
+        this(storeRegistry, migrationClass, migrationInstance, rForEachRecordFrom, rMatchWiths, rTransformAndSaveTo, true);
+    }
+
+    /**
+     * @param useDispatcher false to always invoke methods through
+     *                      reflection, e.g. to compare both in tests
+     */
+    RMigrationUtils(
+        DataStoreRegistry storeRegistry,
+        Class<?> migrationClass,
+        Object migrationInstance,
+        RForEachRecordFrom rForEachRecordFrom,
+        List<RMatchWith> rMatchWiths,
+        RTransformAndSaveTo rTransformAndSaveTo,
+        boolean useDispatcher
     ) {
         this.dataStoreRegistry = storeRegistry;
         this.migrationClass = migrationClass;
@@ -41,6 +67,29 @@ public class RMigrationUtils {
         this.rForEachRecordFrom = rForEachRecordFrom;
         // this.rMatchWiths = rMatchWiths;
         this.rTransformAndSaveTo = rTransformAndSaveTo;
+        this.dispatcher = useDispatcher ? loadDispatcher(migrationClass, migrationInstance) : null;
+    }
+
+    boolean hasDispatcher() {
+        return dispatcher != null;
+    }
+
+    private static MigrationDispatcher loadDispatcher(Class<?> migrationClass, Object migrationInstance) {
+        String dispatcherFQCN = MigrationDispatcherLocation.fqcnOf(migrationClass);
+        try {
+            Class<?> dispatcherClass = Class.forName(dispatcherFQCN, true, migrationClass.getClassLoader());
+            return (MigrationDispatcher) dispatcherClass
+                .getConstructor(Object.class)
+                .newInstance(migrationInstance);
+        } catch (ClassNotFoundException e) {
+            log.warn(
+                "No generated dispatcher for migration {}, falling back to reflection",
+                migrationClass.getCanonicalName()
+            );
+            return null;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new RuntimeException("Could not load migration dispatcher: " + dispatcherFQCN, e);
+        }
     }
 
     public DataFilterSet callMatchingMethod(
@@ -52,6 +101,15 @@ public class RMigrationUtils {
         DataStore<? extends MigratableEntity, ? extends Serializable, ? extends DataFilterSet>
             matchingStoreInstance = dataStoreRegistry.get(rMatchWith.getDataStoreReflection().getStoreClass().getCanonicalName());
 
+        if (dispatcher != null) {
+            return dispatcher.matchWith(
+                rMatchWith.getMatchWith().value().getSimpleName(),
+                record,
+                aggregates,
+                matchingStoreInstance
+            );
+        }
+
         final Method method;
         {
             Method cachedMethod = getCachedMethodByName(methodName);
@@ -96,10 +154,141 @@ public class RMigrationUtils {
         return filters;
     }
 
+    public Object callMatchingKeyMethod(
+        RMatchWith rMatchWith,
+        MigratableEntity record,
+        Map<String, Object> aggregates
+    ) throws Exception {
+        if (dispatcher != null) {
+            return dispatcher.matchingKeyFor(rMatchWith.getMatchWith().value().getSimpleName(), record, aggregates);
+        }
+
+        String methodName = "matchingKeyFor" + rMatchWith.getMatchWith().value().getSimpleName();
+
+        final Method method;
+        {
+            Method cachedMethod = getCachedMethodByName(methodName);
+            if (cachedMethod != null) {
+                method = cachedMethod;
+            } else {
+                method = getMethodBySignatureAndCache(
+                    new RMethodSignature(
+                        methodName,
+                        List.of(
+                            rForEachRecordFrom.getDataStoreReflection().getEntityClass(),
+                            Map.class
+                        )
+                    )
+                );
+            }
+        }
+
+        return invokeMethod(
+            method,
+
+            record,
+            aggregates
+        );
+    }
+
+    public Object callMatchedKeyMethod(
+        RMatchWith rMatchWith,
+        MigratableEntity matchedRecord
+    ) throws Exception {
+        if (dispatcher != null) {
+            return dispatcher.matchedKeyFrom(rMatchWith.getMatchWith().value().getSimpleName(), matchedRecord);
+        }
+
+        String methodName = "matchedKeyFrom" + rMatchWith.getMatchWith().value().getSimpleName();
+
+        final Method method;
+        {
+            Method cachedMethod = getCachedMethodByName(methodName);
+            if (cachedMethod != null) {
+                method = cachedMethod;
+            } else {
+                method = getMethodBySignatureAndCache(
+                    new RMethodSignature(
+                        methodName,
+                        List.of(rMatchWith.getDataStoreReflection().getEntityClass())
+                    )
+                );
+            }
+        }
+
+        return invokeMethod(
+            method,
+
+            matchedRecord
+        );
+    }
+
+    public DataFilterSet callMatchingByKeysMethod(
+        RMatchWith rMatchWith,
+        Set<Object> keys
+    ) throws Exception {
+        String methodName = "matchWith" + rMatchWith.getMatchWith().value().getSimpleName() + "ByKeys";
+        DataStore<? extends MigratableEntity, ? extends Serializable, ? extends DataFilterSet>
+            matchingStoreInstance = dataStoreRegistry.get(rMatchWith.getDataStoreReflection().getStoreClass().getCanonicalName());
+
+        if (dispatcher != null) {
+            DataFilterSet filters = dispatcher.matchWithByKeys(
+                rMatchWith.getMatchWith().value().getSimpleName(),
+                keys,
+                matchingStoreInstance
+            );
+            if (filters != null) {
+                return filters;
+            }
+            throw new RuntimeException(
+                "Matching method returned null: " + methodName + " from " + migrationClass.getCanonicalName()
+            );
+        }
+
+        final Method method;
+        {
+            Method cachedMethod = getCachedMethodByName(methodName);
+            if (cachedMethod != null) {
+                method = cachedMethod;
+            } else {
+                method = getMethodBySignatureAndCache(
+                    new RMethodSignature(
+                        methodName,
+                        List.of(
+                            Set.class,
+                            rMatchWith.getDataStoreReflection().getStoreClass()
+                        )
+                    )
+                );
+            }
+        }
+
+        Object rawFilterSet = invokeMethod(
+            method,
+
+            keys,
+            matchingStoreInstance
+        );
+
+        if (rawFilterSet instanceof DataFilterSet realFilterSet) {
+            return realFilterSet;
+        }
+
+        throw new RuntimeException(
+            "Could not cast return value of matching method to DataFilterSet: "
+            + methodName + " from " + migrationClass.getCanonicalName()
+        );
+    }
+
     public void callStartReductionMethod(
         MigratableEntity record,
         Map<String, Object> aggregates
     ) throws Exception {
+        if (dispatcher != null) {
+            dispatcher.startReduction(record, aggregates);
+            return;
+        }
+
         String methodName = "startReduction";
 
         final Method method;
@@ -131,6 +320,11 @@ public class RMigrationUtils {
 
     public void callReduceMethod(RMatchWith rMatchWith, Map<String, Object> aggregates, List<MigratableEntity> moreMatchingRecords)
     throws Exception {
+        if (dispatcher != null) {
+            dispatcher.reduceFrom(rMatchWith.getMatchWith().value().getSimpleName(), aggregates, moreMatchingRecords);
+            return;
+        }
+
         String methodName = "reduceFrom" + rMatchWith.getMatchWith().value().getSimpleName();
 
         final Method method;
@@ -158,6 +352,12 @@ public class RMigrationUtils {
 
     public List<MigratableEntity> callTransformMethod(Map<String, Object> aggregates, MigratableEntity oldRecord)
     throws Exception {
+        if (dispatcher != null) {
+            @SuppressWarnings("unchecked")
+            List<MigratableEntity> records = (List<MigratableEntity>) dispatcher.transform(aggregates, oldRecord);
+            return records == null ? List.of() : records;
+        }
+
         String methodName = "transform";
 
         final Method method;
@@ -218,6 +418,19 @@ public class RMigrationUtils {
                 rTransformAndSaveTo.getDataStoreReflection().getStoreClass().getCanonicalName()
             );
 
+        if (dispatcher != null) {
+            @SuppressWarnings("unchecked")
+            List<MigratableEntity> resolvedRecords = (List<MigratableEntity>) dispatcher.handleDuplicate(
+                exception,
+                inputRecord,
+                outputRecordsFromTransform,
+                inputDataStoreInstance,
+                outputDataStoreInstance,
+                dataStoreRegistry
+            );
+            return resolvedRecords;
+        }
+
         String methodName = "handleDuplicate";
 
         final Method method;
@@ -278,7 +491,7 @@ public class RMigrationUtils {
      * Currently our methods are not overloaded,
      * so identify them by names is fine.
      */
-    private final Map<String, Method> methodCache = new HashMap<>();
+    private final Map<String, Method> methodCache = new ConcurrentHashMap<>();
 
     private Method getCachedMethodByName(String methodName) {
         return methodCache.get(methodName);
@@ -6,6 +6,7 @@ import com.example.mjg.migration_testing.suite1.data.entities.MeasurementResultE
 import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
 import com.example.mjg.migration_testing.suite1.data.entities.StationIndicatorEntity;
 import com.example.mjg.migration_testing.suite1.data.entities.StationIndicatorEntity2;
+import com.example.mjg.migration_testing.suite1.data.entities.StationSummaryEntity;
 import com.example.mjg.migration_testing.suite1.data.mocking.common.MockDataLoader;
 import com.example.mjg.migration_testing.suite1.data.stores.*;
 import com.example.mjg.migration_testing.suite1.utils.MigrationServiceSingleton;
@@ -99,6 +100,10 @@ public class Test1_DataMigratedProperlyInOneRun {
         MockDataLoader.reset(StationIndicatorStore.class);
         MockDataLoader.reset(StationIndicatorStore2.class);
         MockDataLoader.reset(StationStore2.class);
+        MockDataLoader.reset(StationSummaryStore.class);
+        MockDataLoader.reset(StationIndicatorStore3.class);
+        MockDataLoader.reset(StationIndicatorStore4.class);
+        MockDataLoader.reset(StationStore3.class);
 
 
         BiConsumer<MigrationProgress, String> saveMigrationProgressToFile = (
@@ -175,9 +180,65 @@ public class Test1_DataMigratedProperlyInOneRun {
         );
     }
 
+    /**
+     * Matchings of M4 run concurrently
+     */
+    @Test
+    public void testDataMigrated_M4() {
+        final var actualStationSummaries = MockDataLoader.getStore(StationSummaryStore.class).getRecords()
+            .stream()
+            .map(StationSummaryEntity.class::cast)
+            .map(summary -> new StationSummaryEntity(null, summary.getStationCode(), summary.getNumIndicators(), summary.getNumMeasurementResults()))
+            .collect(Collectors.toSet());
+
+        assertEquals(
+            Set.of(
+                new StationSummaryEntity(null, "STATION_1", 5, 4),
+                new StationSummaryEntity(null, "STATION_2", 5, 4),
+                new StationSummaryEntity(null, "STATION_3", 5, 0)
+            ),
+            actualStationSummaries
+        );
+    }
+
+    /**
+     * Same as M1, pipelined
+     */
+    @Test
+    public void testDataMigrated_M8() {
+        final var actualFinalM8StationIndicators = new HashSet<>(MockDataLoader.getStore(StationIndicatorStore3.class).getRecords());
+        assertEquals(
+            FINAL_M1_STATION_INDICATORS,
+            actualFinalM8StationIndicators
+        );
+    }
+
+    /**
+     * Same as M2, in parallel and saved in batches
+     */
+    @Test
+    public void testDataMigrated_M7() {
+        assertEquals(
+            INITIAL_STATIONS.size(),
+            MockDataLoader.getStore(StationStore3.class).getRecords().size()
+        );
+    }
+
     @Test
     public void testDataMigrated_M3() {
-        List<MigratableEntity> rawMigratedRecords = MockDataLoader.getStore(StationIndicatorStore2.class).getRecords();
+        assertStationIndicators2Migrated(StationIndicatorStore2.class);
+    }
+
+    /**
+     * Same as M3, with a broadcast lookup
+     */
+    @Test
+    public void testDataMigrated_M9() {
+        assertStationIndicators2Migrated(StationIndicatorStore4.class);
+    }
+
+    private static void assertStationIndicators2Migrated(Class<? extends StationIndicatorStore2> storeClass) {
+        List<MigratableEntity> rawMigratedRecords = MockDataLoader.getStore(storeClass).getRecords();
         List<StationIndicatorEntity2> migratedRecords = rawMigratedRecords
             .stream()
             .map(StationIndicatorEntity2.class::cast)
@@ -32,8 +32,12 @@ import com.example.mjg.migration_testing.suite1.data.stores.IndicatorStore;
 import com.example.mjg.migration_testing.suite1.data.stores.MeasurementResultStore;
 import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore;
 import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore4;
 import com.example.mjg.migration_testing.suite1.data.stores.StationStore;
 import com.example.mjg.migration_testing.suite1.data.stores.StationStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationSummaryStore;
 import com.example.mjg.migration_testing.suite1.migrations.M1_PopulatePivotTable_StationIndicators;
 import com.example.mjg.services.migration.internal.fault_tolerance.schemas.MigrationProgress;
 import com.example.mjg.utils.ObjectMapperFactory;
@@ -116,6 +120,10 @@ public class Test2_HandleDuplicates {
         MockDataLoader.reset(StationIndicatorStore.class);
         MockDataLoader.reset(StationIndicatorStore2.class);
         MockDataLoader.reset(StationStore2.class);
+        MockDataLoader.reset(StationSummaryStore.class);
+        MockDataLoader.reset(StationIndicatorStore3.class);
+        MockDataLoader.reset(StationIndicatorStore4.class);
+        MockDataLoader.reset(StationStore3.class);
 
         BiConsumer<MigrationProgress, String> saveMigrationProgressToFile = (
             migrationProgress, filePath
@@ -0,0 +1,109 @@
+package com.example.mjg.migration_testing.suite1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.example.mjg.migration_testing.suite1.data.entities.IndicatorEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.MeasurementResultEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
+import com.example.mjg.migration_testing.suite1.data.mocking.common.MockDataLoader;
+import com.example.mjg.migration_testing.suite1.data.stores.IndicatorStore;
+import com.example.mjg.migration_testing.suite1.data.stores.MeasurementResultStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore4;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationSummaryStore;
+import com.example.mjg.migration_testing.suite1.migrations.M7_Copy_Stations_In_Batches;
+import com.example.mjg.migration_testing.suite1.utils.MigrationServiceSingleton;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.MigrationProgress;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.FailedRecord;
+
+/**
+ * M7 saves output records of all stations in one batch, which
+ * fails because of STATION_2: the batch must be split until
+ * STATION_2 is isolated, the others being saved exactly once.
+ */
+public class Test5_FailingBatchSaveIsSplit {
+    private static final List<IndicatorEntity> INITIAL_INDICATORS = List.of(
+        new IndicatorEntity(1, "INDICATOR_1", "pH"),
+        new IndicatorEntity(2, "INDICATOR_2", "TSS")
+    );
+
+    private static final List<StationEntity> INITIAL_STATIONS = List.of(
+        new StationEntity(1, "STATION_1", "Binh Duong - Ace Cook (NT)"),
+        new StationEntity(2, "STATION_2", "Ha Noi - 556 Nguyen Van Cu"),
+        new StationEntity(3, "STATION_3", "Nam Dinh - Cua xa day 1")
+    );
+
+    private static final List<MeasurementResultEntity> INITIAL_MEASUREMENT_RESULTS = List.of(
+        new MeasurementResultEntity(1, "STATION_1,INDICATOR_1", 14)
+    );
+
+    private static final AtomicReference<MigrationProgress> lastProgress = new AtomicReference<>(null);
+
+    @BeforeAll
+    public static void setup() {
+        MockDataLoader.load(IndicatorStore.class, INITIAL_INDICATORS);
+        MockDataLoader.load(StationStore.class, INITIAL_STATIONS);
+        MockDataLoader.load(MeasurementResultStore.class, INITIAL_MEASUREMENT_RESULTS);
+
+        MockDataLoader.reset(StationIndicatorStore.class);
+        MockDataLoader.reset(StationIndicatorStore2.class);
+        MockDataLoader.reset(StationStore2.class);
+        MockDataLoader.reset(StationSummaryStore.class);
+        MockDataLoader.reset(StationIndicatorStore3.class);
+        MockDataLoader.reset(StationIndicatorStore4.class);
+        MockDataLoader.reset(StationStore3.class);
+
+        MigrationServiceSingleton.getInstance().addProgressPersistenceCallback(lastProgress::set);
+
+        StationStore3.setFailSaving("new code STATION_2");
+        try {
+            MigrationServiceSingleton.getInstance().runWithoutPreviousProgress();
+        } finally {
+            StationStore3.disableFailSaving();
+        }
+    }
+
+    @Test
+    public void testOthersSavedOnce() {
+        List<String> savedStationCodes = MockDataLoader.getStore(StationStore3.class).getRecords()
+            .stream()
+            .map(record -> ((StationEntity) record).getStationCode())
+            .sorted()
+            .toList();
+
+        assertEquals(
+            List.of("new code STATION_1", "new code STATION_3"),
+            savedStationCodes
+        );
+    }
+
+    @Test
+    public void testOnlyFailingRecordReported() {
+        List<FailedRecord> failedRecords = lastProgress.get()
+            .getMigrationProgress()
+            .get(M7_Copy_Stations_In_Batches.class.getCanonicalName())
+            .getFailedRecords();
+
+        assertEquals(
+            Set.of(2),
+            failedRecords.stream().map(FailedRecord::getId).collect(Collectors.toSet())
+        );
+        assertTrue(
+            failedRecords.stream().allMatch(failedRecord -> failedRecord.getCause().contains("Fake error while saving"))
+        );
+    }
+}
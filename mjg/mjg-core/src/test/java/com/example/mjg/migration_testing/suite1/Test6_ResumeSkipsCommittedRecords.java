@@ -0,0 +1,102 @@
+package com.example.mjg.migration_testing.suite1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.example.mjg.migration_testing.suite1.data.entities.IndicatorEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.MeasurementResultEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
+import com.example.mjg.migration_testing.suite1.data.mocking.common.MockDataLoader;
+import com.example.mjg.migration_testing.suite1.data.stores.IndicatorStore;
+import com.example.mjg.migration_testing.suite1.data.stores.MeasurementResultStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore4;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationSummaryStore;
+import com.example.mjg.migration_testing.suite1.migrations.M2_Migrate_Data_From_StationStore_To_StationStore2;
+import com.example.mjg.migration_testing.suite1.utils.MigrationServiceSingleton;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.MigrationProgress;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.MigrationProgressPerMigrationClass;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.ResumeCursor;
+
+/**
+ * StationStore supports keyset pagination: M2 restarted with
+ * a resume cursor must not read the stations up to it again,
+ * even though their IDs are not among the succeeded ones.
+ */
+public class Test6_ResumeSkipsCommittedRecords {
+    private static final List<IndicatorEntity> INITIAL_INDICATORS = List.of(
+        new IndicatorEntity(1, "INDICATOR_1", "pH")
+    );
+
+    private static final List<StationEntity> INITIAL_STATIONS = List.of(
+        new StationEntity(1, "STATION_1", "Binh Duong - Ace Cook (NT)"),
+        new StationEntity(2, "STATION_2", "Ha Noi - 556 Nguyen Van Cu"),
+        new StationEntity(3, "STATION_3", "Nam Dinh - Cua xa day 1")
+    );
+
+    private static final List<MeasurementResultEntity> INITIAL_MEASUREMENT_RESULTS = List.of(
+        new MeasurementResultEntity(1, "STATION_1,INDICATOR_1", 14)
+    );
+
+    private static final AtomicReference<MigrationProgress> lastProgress = new AtomicReference<>(null);
+
+    @BeforeAll
+    public static void setup() {
+        MockDataLoader.load(IndicatorStore.class, INITIAL_INDICATORS);
+        MockDataLoader.load(StationStore.class, INITIAL_STATIONS);
+        MockDataLoader.load(MeasurementResultStore.class, INITIAL_MEASUREMENT_RESULTS);
+
+        MockDataLoader.reset(StationIndicatorStore.class);
+        MockDataLoader.reset(StationIndicatorStore2.class);
+        MockDataLoader.reset(StationStore2.class);
+        MockDataLoader.reset(StationSummaryStore.class);
+        MockDataLoader.reset(StationIndicatorStore3.class);
+        MockDataLoader.reset(StationIndicatorStore4.class);
+        MockDataLoader.reset(StationStore3.class);
+
+        MigrationServiceSingleton.getInstance().addProgressPersistenceCallback(lastProgress::set);
+        MigrationServiceSingleton.getInstance().runWithoutPreviousProgress();
+
+        // As if M2 was interrupted right after committing STATION_2
+        MigrationProgress progress = lastProgress.get();
+        MigrationProgressPerMigrationClass m2Progress = progress.getMigrationProgress()
+            .get(M2_Migrate_Data_From_StationStore_To_StationStore2.class.getCanonicalName());
+        m2Progress.setSucceededRecordIds(new HashSet<>());
+        m2Progress.setEncodedSucceededRecordIds(null);
+        m2Progress.setResumeCursor(ResumeCursor.of(2));
+
+        MockDataLoader.reset(StationStore2.class);
+        MigrationServiceSingleton.getInstance().run(progress);
+    }
+
+    @Test
+    public void testOnlyRecordsAfterCursorMigrated() {
+        List<String> savedStationCodes = MockDataLoader.getStore(StationStore2.class).getRecords()
+            .stream()
+            .map(record -> ((StationEntity) record).getStationCode())
+            .toList();
+
+        assertEquals(List.of("new code STATION_3"), savedStationCodes);
+    }
+
+    @Test
+    public void testResumeCursorAdvanced() {
+        ResumeCursor resumeCursor = lastProgress.get()
+            .getMigrationProgress()
+            .get(M2_Migrate_Data_From_StationStore_To_StationStore2.class.getCanonicalName())
+            .getResumeCursor();
+
+        assertEquals(3, resumeCursor.toId());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.mjg.migration_testing.suite1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.example.mjg.migration_testing.suite1.data.entities.IndicatorEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.MeasurementResultEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
+import com.example.mjg.migration_testing.suite1.data.mocking.common.MockDataLoader;
+import com.example.mjg.migration_testing.suite1.data.stores.IndicatorStore;
+import com.example.mjg.migration_testing.suite1.data.stores.MeasurementResultStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore4;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationSummaryStore;
+import com.example.mjg.migration_testing.suite1.migrations.M7_Copy_Stations_In_Batches;
+import com.example.mjg.migration_testing.suite1.utils.MigrationServiceSingleton;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.FailedRecord;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.MigrationProgress;
+
+/**
+ * M7 reads stations in batches of 4, and several of them fail,
+ * in different batches: these are bisected in parallel, and only
+ * the failing stations must be reported. They are more than
+ * a batch, so that the next run retries them in several chunks.
+ */
+public class Test7_ParallelBisectionAndChunkedRetries {
+    private static final List<IndicatorEntity> INITIAL_INDICATORS = List.of(
+        new IndicatorEntity(1, "INDICATOR_1", "pH")
+    );
+
+    private static final List<StationEntity> INITIAL_STATIONS = IntStream.rangeClosed(1, 24)
+        .mapToObj(i -> new StationEntity(i, "STATION_" + i, "Station " + i))
+        .toList();
+
+    private static final Set<Integer> FAILING_STATION_IDS = Set.of(2, 7, 13, 14, 24);
+
+    private static final List<MeasurementResultEntity> INITIAL_MEASUREMENT_RESULTS = List.of(
+        new MeasurementResultEntity(1, "STATION_1,INDICATOR_1", 14)
+    );
+
+    private static final AtomicReference<MigrationProgress> lastProgress = new AtomicReference<>(null);
+
+    private static Set<Integer> failedIdsAfterFirstRun;
+
+    private static List<String> savedStationCodesAfterFirstRun;
+
+    @BeforeAll
+    public static void setup() {
+        MockDataLoader.load(IndicatorStore.class, INITIAL_INDICATORS);
+        MockDataLoader.load(StationStore.class, INITIAL_STATIONS);
+        MockDataLoader.load(MeasurementResultStore.class, INITIAL_MEASUREMENT_RESULTS);
+
+        MockDataLoader.reset(StationIndicatorStore.class);
+        MockDataLoader.reset(StationIndicatorStore2.class);
+        MockDataLoader.reset(StationStore2.class);
+        MockDataLoader.reset(StationSummaryStore.class);
+        MockDataLoader.reset(StationIndicatorStore3.class);
+        MockDataLoader.reset(StationIndicatorStore4.class);
+        MockDataLoader.reset(StationStore3.class);
+
+        MigrationServiceSingleton.getInstance().addProgressPersistenceCallback(lastProgress::set);
+
+        StationStore3.setFailSaving(
+            FAILING_STATION_IDS.stream().map(id -> "new code STATION_" + id).toArray(String[]::new)
+        );
+        try {
+            MigrationServiceSingleton.getInstance().runWithoutPreviousProgress();
+        } finally {
+            StationStore3.disableFailSaving();
+        }
+
+        failedIdsAfterFirstRun = getM7FailedRecords().stream()
+            .map(failedRecord -> (Integer) failedRecord.getId())
+            .collect(Collectors.toSet());
+        savedStationCodesAfterFirstRun = getSavedStationCodes();
+
+        MigrationServiceSingleton.getInstance().run(lastProgress.get());
+    }
+
+    private static List<FailedRecord> getM7FailedRecords() {
+        List<FailedRecord> failedRecords = lastProgress.get()
+            .getMigrationProgress()
+            .get(M7_Copy_Stations_In_Batches.class.getCanonicalName())
+            .getFailedRecords();
+        return failedRecords == null ? List.of() : failedRecords;
+    }
+
+    private static List<String> getSavedStationCodes() {
+        return MockDataLoader.getStore(StationStore3.class).getRecords()
+            .stream()
+            .map(record -> ((StationEntity) record).getStationCode())
+            .sorted()
+            .toList();
+    }
+
+    private static List<String> newCodesOf(Set<Integer> stationIds) {
+        return stationIds.stream()
+            .map(id -> "new code STATION_" + id)
+            .sorted()
+            .toList();
+    }
+
+    @Test
+    public void testOnlyFailingRecordsReported() {
+        assertEquals(FAILING_STATION_IDS, failedIdsAfterFirstRun);
+
+        Set<Integer> otherIds = IntStream.rangeClosed(1, 24)
+            .boxed()
+            .filter(id -> !FAILING_STATION_IDS.contains(id))
+            .collect(Collectors.toSet());
+        assertEquals(newCodesOf(otherIds), savedStationCodesAfterFirstRun);
+    }
+
+    @Test
+    public void testFailedRecordsRetriedInChunks() {
+        assertTrue(getM7FailedRecords().isEmpty());
+
+        Set<Integer> allIds = IntStream.rangeClosed(1, 24).boxed().collect(Collectors.toSet());
+        assertEquals(newCodesOf(allIds), getSavedStationCodes());
+    }
+}
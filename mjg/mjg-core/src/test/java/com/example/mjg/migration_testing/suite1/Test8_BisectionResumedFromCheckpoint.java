@@ -0,0 +1,125 @@
+package com.example.mjg.migration_testing.suite1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.example.mjg.migration_testing.suite1.data.entities.IndicatorEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.MeasurementResultEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationSummaryEntity;
+import com.example.mjg.migration_testing.suite1.data.mocking.common.MockDataLoader;
+import com.example.mjg.migration_testing.suite1.data.stores.IndicatorStore;
+import com.example.mjg.migration_testing.suite1.data.stores.MeasurementResultStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore4;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationSummaryStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationSummaryStore2;
+import com.example.mjg.migration_testing.suite1.migrations.M5_Summarize_Migrated_Stations;
+import com.example.mjg.migration_testing.suite1.utils.MigrationServiceSingleton;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.FailedRecord;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.MigrationProgress;
+
+/**
+ * M5 looks all migrated stations of a page up at once, which fails
+ * because of STATION_5. The page is bisected from the checkpoint
+ * taken before that lookup, and the half with STATION_5 fails again
+ * there, interrupting its bisection, which goes on from the new
+ * checkpoint. Only STATION_5 must be reported, and no station must
+ * be started or matched with indicators more than once.
+ */
+public class Test8_BisectionResumedFromCheckpoint {
+    private static final List<IndicatorEntity> INITIAL_INDICATORS = List.of(
+        new IndicatorEntity(1, "INDICATOR_1", "pH"),
+        new IndicatorEntity(2, "INDICATOR_2", "TSS")
+    );
+
+    private static final List<StationEntity> INITIAL_STATIONS = IntStream.rangeClosed(1, 8)
+        .mapToObj(i -> new StationEntity(i, "STATION_" + i, "Station " + i))
+        .toList();
+
+    private static final List<MeasurementResultEntity> INITIAL_MEASUREMENT_RESULTS = List.of(
+        new MeasurementResultEntity(1, "STATION_1,INDICATOR_1", 14)
+    );
+
+    private static final AtomicReference<MigrationProgress> lastProgress = new AtomicReference<>(null);
+
+    @BeforeAll
+    public static void setup() {
+        MockDataLoader.load(IndicatorStore.class, INITIAL_INDICATORS);
+        MockDataLoader.load(StationStore.class, INITIAL_STATIONS);
+        MockDataLoader.load(MeasurementResultStore.class, INITIAL_MEASUREMENT_RESULTS);
+
+        MockDataLoader.reset(StationIndicatorStore.class);
+        MockDataLoader.reset(StationIndicatorStore2.class);
+        MockDataLoader.reset(StationStore2.class);
+        MockDataLoader.reset(StationSummaryStore.class);
+        MockDataLoader.reset(StationIndicatorStore3.class);
+        MockDataLoader.reset(StationIndicatorStore4.class);
+        MockDataLoader.reset(StationStore3.class);
+        MockDataLoader.reset(StationSummaryStore2.class);
+
+        MigrationServiceSingleton.getInstance().addProgressPersistenceCallback(lastProgress::set);
+
+        M5_Summarize_Migrated_Stations.resetCounters();
+        StationStore3.setFailMatching("new code STATION_5");
+        try {
+            MigrationServiceSingleton.getInstance().runWithoutPreviousProgress();
+        } finally {
+            StationStore3.disableFailMatching();
+        }
+    }
+
+    @Test
+    public void testOnlyFailingRecordReported() {
+        List<FailedRecord> failedRecords = lastProgress.get()
+            .getMigrationProgress()
+            .get(M5_Summarize_Migrated_Stations.class.getCanonicalName())
+            .getFailedRecords();
+
+        assertEquals(
+            Set.of(5),
+            failedRecords.stream().map(FailedRecord::getId).collect(Collectors.toSet())
+        );
+        assertTrue(
+            failedRecords.stream().allMatch(failedRecord -> failedRecord.getCause().contains("Fake error while matching"))
+        );
+    }
+
+    @Test
+    public void testOthersSavedOnce() {
+        List<StationSummaryEntity> summaries = MockDataLoader.getStore(StationSummaryStore2.class).getRecords()
+            .stream()
+            .map(record -> (StationSummaryEntity) record)
+            .sorted((a, b) -> a.getStationCode().compareTo(b.getStationCode()))
+            .toList();
+
+        assertEquals(
+            IntStream.rangeClosed(1, 8)
+                .filter(i -> i != 5)
+                .mapToObj(i -> "new code STATION_" + i)
+                .toList(),
+            summaries.stream().map(StationSummaryEntity::getStationCode).toList()
+        );
+        assertTrue(summaries.stream().allMatch(summary -> summary.getNumIndicators() == 2));
+    }
+
+    @Test
+    public void testResumedWithoutStartingOver() {
+        assertEquals(INITIAL_STATIONS.size(), M5_Summarize_Migrated_Stations.getNumStartedReductions());
+        assertEquals(INITIAL_STATIONS.size(), M5_Summarize_Migrated_Stations.getNumReductionsFromIndicatorStore());
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.mjg.migration_testing.suite1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.example.mjg.migration_testing.suite1.data.entities.IndicatorEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.MeasurementResultEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationSummaryEntity;
+import com.example.mjg.migration_testing.suite1.data.mocking.common.MockDataLoader;
+import com.example.mjg.migration_testing.suite1.data.stores.IndicatorStore;
+import com.example.mjg.migration_testing.suite1.data.stores.IndicatorStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.MeasurementResultStore;
+import com.example.mjg.migration_testing.suite1.data.stores.MeasurementResultStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore4;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationSummaryStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationSummaryStore3;
+import com.example.mjg.migration_testing.suite1.migrations.M6_Summarize_Stations_With_Cached_Lookups;
+import com.example.mjg.migration_testing.suite1.utils.MigrationServiceSingleton;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.FailedRecord;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.MigrationProgress;
+
+/**
+ * M6 reads stations one at a time, so that stations with
+ * the same name are looked up again, from the cache unless
+ * the first lookup was too large to be cached (STATION_5
+ * and STATION_6 with indicators), or violated the
+ * cardinality (STATION_7 and STATION_8 with measurement
+ * results, which fail both).
+ */
+public class Test9_LookupCache {
+    private static final List<IndicatorEntity> INITIAL_INDICATORS = List.of(
+        new IndicatorEntity(1, "INDICATOR_1", "pH"),
+        new IndicatorEntity(2, "INDICATOR_2", "TSS"),
+        new IndicatorEntity(3, "INDICATOR_3", "COD")
+    );
+
+    private static final List<StationEntity> INITIAL_STATIONS = List.of(
+        new StationEntity(1, "STATION_1", "INDICATOR_1"),
+        new StationEntity(2, "STATION_2", "INDICATOR_1"),
+        new StationEntity(3, "STATION_3", "INDICATOR_9"),
+        new StationEntity(4, "STATION_4", "INDICATOR_9"),
+        new StationEntity(5, "STATION_5", "INDICATOR_1,INDICATOR_2,INDICATOR_3"),
+        new StationEntity(6, "STATION_6", "INDICATOR_1,INDICATOR_2,INDICATOR_3"),
+        new StationEntity(7, "STATION_7", "INDICATOR_2"),
+        new StationEntity(8, "STATION_8", "INDICATOR_2")
+    );
+
+    private static final List<MeasurementResultEntity> INITIAL_MEASUREMENT_RESULTS = List.of(
+        new MeasurementResultEntity(1, "INDICATOR_1", 14),
+        new MeasurementResultEntity(2, "INDICATOR_2", 255),
+        new MeasurementResultEntity(3, "INDICATOR_2", 411)
+    );
+
+    private static final AtomicReference<MigrationProgress> lastProgress = new AtomicReference<>(null);
+
+    @BeforeAll
+    public static void setup() {
+        MockDataLoader.load(IndicatorStore.class, INITIAL_INDICATORS);
+        MockDataLoader.load(IndicatorStore2.class, INITIAL_INDICATORS);
+        MockDataLoader.load(StationStore.class, INITIAL_STATIONS);
+        MockDataLoader.load(MeasurementResultStore.class, INITIAL_MEASUREMENT_RESULTS);
+        MockDataLoader.load(MeasurementResultStore2.class, INITIAL_MEASUREMENT_RESULTS);
+
+        MockDataLoader.reset(StationIndicatorStore.class);
+        MockDataLoader.reset(StationIndicatorStore2.class);
+        MockDataLoader.reset(StationStore2.class);
+        MockDataLoader.reset(StationSummaryStore.class);
+        MockDataLoader.reset(StationIndicatorStore3.class);
+        MockDataLoader.reset(StationIndicatorStore4.class);
+        MockDataLoader.reset(StationStore3.class);
+        MockDataLoader.reset(StationSummaryStore3.class);
+
+        MigrationServiceSingleton.getInstance().addProgressPersistenceCallback(lastProgress::set);
+
+        M6_Summarize_Stations_With_Cached_Lookups.resetCounters();
+        IndicatorStore2.resetNumLookups();
+        MeasurementResultStore2.resetNumLookups();
+        MigrationServiceSingleton.getInstance().runWithoutPreviousProgress();
+    }
+
+    @Test
+    public void testCachedResultsReduced() {
+        Set<StationSummaryEntity> summaries = MockDataLoader.getStore(StationSummaryStore3.class).getRecords()
+            .stream()
+            .map(StationSummaryEntity.class::cast)
+            .map(summary -> new StationSummaryEntity(null, summary.getStationCode(), summary.getNumIndicators(), summary.getNumMeasurementResults()))
+            .collect(Collectors.toSet());
+
+        assertEquals(
+            Set.of(
+                new StationSummaryEntity(null, "STATION_1", 1, 1),
+                new StationSummaryEntity(null, "STATION_2", 1, 1),
+                new StationSummaryEntity(null, "STATION_3", 0, 0),
+                new StationSummaryEntity(null, "STATION_4", 0, 0),
+                new StationSummaryEntity(null, "STATION_5", 3, 0),
+                new StationSummaryEntity(null, "STATION_6", 3, 0)
+            ),
+            summaries
+        );
+    }
+
+    @Test
+    public void testCardinalityViolationsNotCached() {
+        List<FailedRecord> failedRecords = lastProgress.get()
+            .getMigrationProgress()
+            .get(M6_Summarize_Stations_With_Cached_Lookups.class.getCanonicalName())
+            .getFailedRecords();
+
+        assertEquals(
+            Set.of(7, 8),
+            failedRecords.stream().map(FailedRecord::getId).collect(Collectors.toSet())
+        );
+        assertTrue(
+            failedRecords.stream().allMatch(failedRecord -> failedRecord.getCause().contains("Cardinality"))
+        );
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        // Misses: STATION_1, 3, 5, 6 (too large), 7
+        // Hits: STATION_2, 4 (empty), 8
+        assertEquals(INITIAL_STATIONS.size(), M6_Summarize_Stations_With_Cached_Lookups.getNumIndicatorLookups());
+        assertEquals(5, IndicatorStore2.getNumLookups());
+
+        // Misses: STATION_1, 3, 5, 7, 8 (cardinality violated)
+        // Hits: STATION_2, 4 (empty), 6
+        assertEquals(INITIAL_STATIONS.size(), M6_Summarize_Stations_With_Cached_Lookups.getNumMeasurementResultLookups());
+        assertEquals(5, MeasurementResultStore2.getNumLookups());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.mjg.migration_testing.suite1.data.entities;
+
+import com.example.mjg.data.MigratableEntity;
+import lombok.*;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class StationSummaryEntity implements MigratableEntity {
+    private Integer id = null;
+
+    private String stationCode = null;
+
+    private int numIndicators = 0;
+
+    private int numMeasurementResults = 0;
+
+    @Override
+    public Serializable getMigratableId() {
+        return id;
+    }
+
+    @Override
+    public String getMigratableDescription() {
+        return "StationSummaryEntity(id=" + id + ", stationCode=" + stationCode + ", numIndicators=" + numIndicators + ", numMeasurementResults=" + numMeasurementResults + ")";
+    }
+}
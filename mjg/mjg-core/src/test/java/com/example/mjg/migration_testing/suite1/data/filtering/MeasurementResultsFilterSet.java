@@ -3,10 +3,12 @@ package com.example.mjg.migration_testing.suite1.data.filtering;
 import com.example.mjg.data.DataFilterSet;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 
 import java.util.Set;
 
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
+@EqualsAndHashCode
 public class MeasurementResultsFilterSet implements DataFilterSet {
     public static enum FilterBy {
         NONE,
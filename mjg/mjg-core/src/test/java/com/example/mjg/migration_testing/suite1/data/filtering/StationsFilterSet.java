@@ -11,7 +11,8 @@ public class StationsFilterSet implements DataFilterSet {
     public static enum FilterBy {
         NONE,
         ID_IN,
-        STATION_CODE_IN
+        STATION_CODE_IN,
+        ID_GREATER_THAN
     }
 
     public static StationsFilterSet takeAll() {
@@ -26,6 +27,13 @@ public class StationsFilterSet implements DataFilterSet {
         return new StationsFilterSet(FilterBy.STATION_CODE_IN, stationCodes);
     }
 
+    /**
+     * In ascending ID order. All records if lastId is null.
+     */
+    public static StationsFilterSet filterByIdGreaterThan(Integer lastId) {
+        return new StationsFilterSet(FilterBy.ID_GREATER_THAN, lastId);
+    }
+
     public boolean isTakeAll() {
         return filterBy == FilterBy.NONE;
     }
@@ -48,6 +56,18 @@ public class StationsFilterSet implements DataFilterSet {
         }
     }
 
+    public boolean isFilterByIdGreaterThan() {
+        return filterBy == FilterBy.ID_GREATER_THAN;
+    }
+
+    public Integer getFilterByIdGreaterThan() {
+        if (filterBy == FilterBy.ID_GREATER_THAN) {
+            return (Integer) data;
+        } else {
+            return null;
+        }
+    }
+
     private final FilterBy filterBy;
 
     private final Object data;
@@ -0,0 +1,32 @@
+package com.example.mjg.migration_testing.suite1.data.stores;
+
+import com.example.mjg.data.DataPage;
+import com.example.mjg.migration_testing.suite1.data.entities.IndicatorEntity;
+import com.example.mjg.migration_testing.suite1.data.filtering.IndicatorsFilterSet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Same as IndicatorStore, for lookups of M6, which
+ * are counted (i.e. lookups not served from a cache)
+ */
+public class IndicatorStore2 extends IndicatorStore {
+    private static final AtomicInteger numLookups = new AtomicInteger(0);
+
+    public static int getNumLookups() {
+        return numLookups.get();
+    }
+
+    public static void resetNumLookups() {
+        numLookups.set(0);
+    }
+
+    @Override
+    protected DataPage<IndicatorEntity, Integer, IndicatorsFilterSet> doGetFirstPageOfRecords(
+        IndicatorsFilterSet filterSet,
+        int pageSize
+    ) {
+        numLookups.incrementAndGet();
+        return super.doGetFirstPageOfRecords(filterSet, pageSize);
+    }
+}
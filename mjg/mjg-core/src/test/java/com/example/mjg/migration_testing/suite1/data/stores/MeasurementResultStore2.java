@@ -0,0 +1,32 @@
+package com.example.mjg.migration_testing.suite1.data.stores;
+
+import com.example.mjg.data.DataPage;
+import com.example.mjg.migration_testing.suite1.data.entities.MeasurementResultEntity;
+import com.example.mjg.migration_testing.suite1.data.filtering.MeasurementResultsFilterSet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Same as MeasurementResultStore, for lookups of M6, which
+ * are counted (i.e. lookups not served from a cache)
+ */
+public class MeasurementResultStore2 extends MeasurementResultStore {
+    private static final AtomicInteger numLookups = new AtomicInteger(0);
+
+    public static int getNumLookups() {
+        return numLookups.get();
+    }
+
+    public static void resetNumLookups() {
+        numLookups.set(0);
+    }
+
+    @Override
+    protected DataPage<MeasurementResultEntity, Integer, MeasurementResultsFilterSet> doGetFirstPageOfRecords(
+        MeasurementResultsFilterSet filterSet,
+        int pageSize
+    ) {
+        numLookups.incrementAndGet();
+        return super.doGetFirstPageOfRecords(filterSet, pageSize);
+    }
+}
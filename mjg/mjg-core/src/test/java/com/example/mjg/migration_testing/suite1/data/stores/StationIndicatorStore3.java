@@ -0,0 +1,7 @@
+package com.example.mjg.migration_testing.suite1.data.stores;
+
+/**
+ * Same as StationIndicatorStore, for records of M8
+ */
+public class StationIndicatorStore3 extends StationIndicatorStore {
+}
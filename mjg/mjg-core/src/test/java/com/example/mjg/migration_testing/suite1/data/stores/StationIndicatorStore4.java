@@ -0,0 +1,7 @@
+package com.example.mjg.migration_testing.suite1.data.stores;
+
+/**
+ * Same as StationIndicatorStore2, for records of M9
+ */
+public class StationIndicatorStore4 extends StationIndicatorStore2 {
+}
@@ -4,6 +4,7 @@ import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
 import com.example.mjg.migration_testing.suite1.data.filtering.StationsFilterSet;
 import com.example.mjg.migration_testing.suite1.data.stores.common.IntegerIDAbstractStore;
 
+import java.util.Comparator;
 import java.util.Set;
 import java.util.stream.Stream;
 
@@ -18,6 +19,13 @@ public class StationStore extends IntegerIDAbstractStore<StationEntity, Stations
             });
         }
 
+        if (filterSet.isFilterByIdGreaterThan()) {
+            Integer lastId = filterSet.getFilterByIdGreaterThan();
+            return recordStream
+                .filter(record -> lastId == null || record.getId() > lastId)
+                .sorted(Comparator.comparing(StationEntity::getId));
+        }
+
         if (filterSet.getFilterByStationCodeIn() != null) {
             return recordStream.filter(record -> {
                 return filterSet.getFilterByStationCodeIn().contains(record.getStationCode());
@@ -52,4 +60,14 @@ public class StationStore extends IntegerIDAbstractStore<StationEntity, Stations
     protected StationsFilterSet doMatchAll() {
         return StationsFilterSet.takeAll();
     }
+
+    @Override
+    protected boolean doSupportsKeysetPagination() {
+        return true;
+    }
+
+    @Override
+    protected StationsFilterSet doMatchAllAfterId(Integer lastId) {
+        return StationsFilterSet.filterByIdGreaterThan(lastId);
+    }
 }
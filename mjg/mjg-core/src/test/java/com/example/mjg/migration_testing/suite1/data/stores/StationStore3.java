@@ -0,0 +1,96 @@
+package com.example.mjg.migration_testing.suite1.data.stores;
+
+import com.example.mjg.data.DataPage;
+import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
+import com.example.mjg.migration_testing.suite1.data.filtering.StationsFilterSet;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Same as StationStore2, for stations copied by M7,
+ * whose saves and lookups can be made to fail.
+ */
+public class StationStore3 extends StationStore2 {
+    private static final AtomicReference<Set<String>> STATION_CODES_THAT_FAIL = new AtomicReference<>(Set.of());
+
+    private static final AtomicReference<Set<String>> STATION_CODES_THAT_FAIL_MATCHING = new AtomicReference<>(Set.of());
+
+    /**
+     * Halves of a failed batch are saved again in parallel
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public static void setFailSaving(String... stationCodes) {
+        STATION_CODES_THAT_FAIL.set(Set.of(stationCodes));
+    }
+
+    public static void disableFailSaving() {
+        STATION_CODES_THAT_FAIL.set(Set.of());
+    }
+
+    /**
+     * Lookups by station codes fail if they include any of these
+     */
+    public static void setFailMatching(String... stationCodes) {
+        STATION_CODES_THAT_FAIL_MATCHING.set(Set.of(stationCodes));
+    }
+
+    public static void disableFailMatching() {
+        STATION_CODES_THAT_FAIL_MATCHING.set(Set.of());
+    }
+
+    @Override
+    protected DataPage<StationEntity, Integer, StationsFilterSet> doGetFirstPageOfRecords(
+        StationsFilterSet filterSet,
+        int pageSize
+    ) {
+        Set<String> stationCodes = filterSet.getFilterByStationCodeIn();
+        if (stationCodes != null && stationCodes.stream().anyMatch(STATION_CODES_THAT_FAIL_MATCHING.get()::contains)) {
+            throw new RuntimeException("Fake error while matching :)))");
+        }
+        return super.doGetFirstPageOfRecords(filterSet, pageSize);
+    }
+
+    @Override
+    protected void doSave(StationEntity record)
+    throws Exception {
+        if (STATION_CODES_THAT_FAIL.get().contains(record.getStationCode())) {
+            throw new RuntimeException("Fake error while saving :)))");
+        }
+        lock.lock();
+        try {
+            super.doSave(record);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * All or nothing, so that M7 can save output
+     * records of several stations together
+     */
+    @Override
+    protected void doSaveAll(List<StationEntity> records)
+    throws Exception {
+        lock.lock();
+        try {
+            int numRecordsBefore = getRecords().size();
+            try {
+                super.doSaveAll(records);
+            } catch (Exception e) {
+                getRecords().subList(numRecordsBefore, getRecords().size()).clear();
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected boolean doIsSaveAllAtomicOrIdempotent() {
+        return true;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.mjg.migration_testing.suite1.data.stores;
+
+import com.example.mjg.migration_testing.suite1.data.entities.StationSummaryEntity;
+import com.example.mjg.migration_testing.suite1.data.filtering.StationsFilterSet;
+import com.example.mjg.migration_testing.suite1.data.stores.common.IntegerIDAbstractStore;
+
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Summaries are filtered like stations
+ */
+public class StationSummaryStore extends IntegerIDAbstractStore<StationSummaryEntity, StationsFilterSet> {
+    @Override
+    protected Stream<StationSummaryEntity> applyFilterSet(Stream<StationSummaryEntity> recordStream, StationsFilterSet filterSet) {
+        if (filterSet.isTakeAll()) return recordStream;
+
+        if (filterSet.getFilterByIdIn() != null) {
+            return recordStream.filter(record -> {
+                return filterSet.getFilterByIdIn().contains(record.getId());
+            });
+        }
+
+        if (filterSet.getFilterByStationCodeIn() != null) {
+            return recordStream.filter(record -> {
+                return filterSet.getFilterByStationCodeIn().contains(record.getStationCode());
+            });
+        }
+
+        throw new IllegalArgumentException("Filter type not supported");
+    }
+
+    @Override
+    protected Integer getRecordId(StationSummaryEntity record) {
+        return record.getId();
+    }
+
+    @Override
+    protected void setRecordId(StationSummaryEntity record, Integer id) {
+        record.setId(id);
+    }
+
+    @Override
+    protected void assignRecordExceptId(StationSummaryEntity dest, StationSummaryEntity src) {
+        dest.setStationCode(src.getStationCode());
+        dest.setNumIndicators(src.getNumIndicators());
+        dest.setNumMeasurementResults(src.getNumMeasurementResults());
+    }
+
+    @Override
+    protected StationsFilterSet doMatchByIdIn(Set<Integer> ids) {
+        return StationsFilterSet.filterByIdIn(ids);
+    }
+
+    @Override
+    protected StationsFilterSet doMatchAll() {
+        return StationsFilterSet.takeAll();
+    }
+}
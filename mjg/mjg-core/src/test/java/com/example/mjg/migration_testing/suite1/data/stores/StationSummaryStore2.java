@@ -0,0 +1,7 @@
+package com.example.mjg.migration_testing.suite1.data.stores;
+
+/**
+ * Same as StationSummaryStore, for summaries of M5
+ */
+public class StationSummaryStore2 extends StationSummaryStore {
+}
@@ -42,7 +42,7 @@ extends DataStore<T, ID, F> {
         return getRecordsAtPage(
             previousPage.getFilterSet(),
             previousPage.getPageNumber() + 1,
-            previousPage.getSize()
+            previousPage.getPageSize()
         );
     }
 
@@ -90,7 +90,7 @@ extends DataStore<T, ID, F> {
                 );
         }
 
-        return new SimpleDataPage<>(this, filterSet, pageNumber, resultRecords);
+        return new SimpleDataPage<>(this, filterSet, pageNumber, resultRecords, pageSize);
     }
 
     private boolean checkIdAlreadyExists(ID id) {
@@ -0,0 +1,111 @@
+package com.example.mjg.migration_testing.suite1.migrations;
+
+import com.example.mjg.annotations.ForEachRecordFrom;
+import com.example.mjg.annotations.MatchWith;
+import com.example.mjg.annotations.Migration;
+import com.example.mjg.annotations.TransformAndSaveTo;
+import com.example.mjg.config.Cardinality;
+import com.example.mjg.exceptions.DuplicateDataException;
+import com.example.mjg.migration_testing.suite1.data.entities.IndicatorEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.MeasurementResultEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationSummaryEntity;
+import com.example.mjg.migration_testing.suite1.data.filtering.IndicatorsFilterSet;
+import com.example.mjg.migration_testing.suite1.data.filtering.MeasurementResultsFilterSet;
+import com.example.mjg.migration_testing.suite1.data.stores.IndicatorStore;
+import com.example.mjg.migration_testing.suite1.data.stores.MeasurementResultStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationSummaryStore;
+import com.example.mjg.storage.DataStoreRegistry;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Both matchings have order 0, and the migration is
+ * thread-safe, so they are run concurrently.
+ */
+@Migration(threadSafe = true)
+@ForEachRecordFrom(StationStore.class)
+@MatchWith(
+    value = IndicatorStore.class,
+    cardinality = Cardinality.ZERO_OR_MORE
+)
+@MatchWith(
+    value = MeasurementResultStore.class,
+    cardinality = Cardinality.ZERO_OR_MORE
+)
+@TransformAndSaveTo(
+    value = StationSummaryStore.class,
+    cardinality = Cardinality.EXACTLY_ONE
+)
+public class M4_Summarize_Stations {
+    public void startReduction(
+        StationEntity inputRecord,
+        Map<String, Object> aggregates
+    ) {
+        aggregates.put("stationCode", inputRecord.getStationCode());
+        aggregates.put("numIndicators", 0);
+        aggregates.put("numMeasurementResults", 0);
+    }
+
+    public IndicatorsFilterSet matchWithIndicatorStore(
+        StationEntity record,
+        Map<String, Object> aggregates,
+        IndicatorStore indicatorStore
+    ) {
+        return IndicatorsFilterSet.takeAll();
+    }
+
+    public MeasurementResultsFilterSet matchWithMeasurementResultStore(
+        StationEntity record,
+        Map<String, Object> aggregates,
+        MeasurementResultStore measurementResultStore
+    ) {
+        return MeasurementResultsFilterSet.takeAll();
+    }
+
+    public void reduceFromIndicatorStore(
+        Map<String, Object> aggregates,
+        List<IndicatorEntity> moreIndicators
+    ) {
+        aggregates.put("numIndicators", (int) aggregates.get("numIndicators") + moreIndicators.size());
+    }
+
+    public void reduceFromMeasurementResultStore(
+        Map<String, Object> aggregates,
+        List<MeasurementResultEntity> moreMeasurementResults
+    ) {
+        String stationCode = (String) aggregates.get("stationCode");
+        long numMeasurementResults = moreMeasurementResults.stream()
+            .filter(measurementResult -> measurementResult.getStationIndicatorId().startsWith(stationCode + ","))
+            .count();
+
+        aggregates.put("numMeasurementResults", (int) aggregates.get("numMeasurementResults") + (int) numMeasurementResults);
+    }
+
+    public List<StationSummaryEntity> transform(
+        Map<String, Object> aggregates,
+        StationEntity station
+    ) {
+        return List.of(
+            new StationSummaryEntity(
+                null,
+                station.getStationCode(),
+                (int) aggregates.get("numIndicators"),
+                (int) aggregates.get("numMeasurementResults")
+            )
+        );
+    }
+
+    public List<StationSummaryEntity> handleDuplicate(
+        DuplicateDataException exception,
+        StationEntity inputRecord,
+        List<StationSummaryEntity> outputRecords,
+        StationStore stationStore,
+        StationSummaryStore stationSummaryStore,
+        DataStoreRegistry dataStoreRegistry
+    ) {
+        return null;
+    }
+}
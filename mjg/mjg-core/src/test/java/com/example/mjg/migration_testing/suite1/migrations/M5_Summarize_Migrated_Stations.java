@@ -0,0 +1,144 @@
+package com.example.mjg.migration_testing.suite1.migrations;
+
+import com.example.mjg.annotations.ForEachRecordFrom;
+import com.example.mjg.annotations.MatchWith;
+import com.example.mjg.annotations.Migration;
+import com.example.mjg.annotations.TransformAndSaveTo;
+import com.example.mjg.config.Cardinality;
+import com.example.mjg.config.ErrorResolution;
+import com.example.mjg.config.LookupMode;
+import com.example.mjg.exceptions.DuplicateDataException;
+import com.example.mjg.migration_testing.suite1.data.entities.IndicatorEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationSummaryEntity;
+import com.example.mjg.migration_testing.suite1.data.filtering.IndicatorsFilterSet;
+import com.example.mjg.migration_testing.suite1.data.filtering.StationsFilterSet;
+import com.example.mjg.migration_testing.suite1.data.stores.IndicatorStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationSummaryStore2;
+import com.example.mjg.storage.DataStoreRegistry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Indicators are matched first, then migrated stations in
+ * batches: records failing the second matching are bisected
+ * from a checkpoint, i.e. without being started and reduced
+ * on indicators again, which is counted here.
+ */
+@Migration
+@ForEachRecordFrom(StationStore.class)
+@MatchWith(
+    value = IndicatorStore.class,
+    cardinality = Cardinality.ZERO_OR_MORE
+)
+@MatchWith(
+    value = StationStore3.class,
+    cardinality = Cardinality.ZERO_OR_MORE,
+    lookup = LookupMode.BATCHED,
+    order = 1,
+    inCaseOfError = @ErrorResolution(retryTimes = 0, retryDelayInSeconds = 0)
+)
+@TransformAndSaveTo(
+    value = StationSummaryStore2.class,
+    cardinality = Cardinality.EXACTLY_ONE
+)
+public class M5_Summarize_Migrated_Stations {
+    private static final AtomicInteger numStartedReductions = new AtomicInteger(0);
+
+    private static final AtomicInteger numReductionsFromIndicatorStore = new AtomicInteger(0);
+
+    public static int getNumStartedReductions() {
+        return numStartedReductions.get();
+    }
+
+    public static int getNumReductionsFromIndicatorStore() {
+        return numReductionsFromIndicatorStore.get();
+    }
+
+    public static void resetCounters() {
+        numStartedReductions.set(0);
+        numReductionsFromIndicatorStore.set(0);
+    }
+
+    public void startReduction(
+        StationEntity inputRecord,
+        Map<String, Object> aggregates
+    ) {
+        numStartedReductions.incrementAndGet();
+        aggregates.put("newStationCode", null);
+        aggregates.put("numIndicators", 0);
+    }
+
+    public IndicatorsFilterSet matchWithIndicatorStore(
+        StationEntity record,
+        Map<String, Object> aggregates,
+        IndicatorStore indicatorStore
+    ) {
+        return IndicatorsFilterSet.takeAll();
+    }
+
+    public void reduceFromIndicatorStore(
+        Map<String, Object> aggregates,
+        List<IndicatorEntity> moreIndicators
+    ) {
+        numReductionsFromIndicatorStore.incrementAndGet();
+        aggregates.put("numIndicators", (int) aggregates.get("numIndicators") + moreIndicators.size());
+    }
+
+    public String matchingKeyForStationStore3(
+        StationEntity record,
+        Map<String, Object> aggregates
+    ) {
+        return "new code " + record.getStationCode();
+    }
+
+    public String matchedKeyFromStationStore3(StationEntity station) {
+        return station.getStationCode();
+    }
+
+    public StationsFilterSet matchWithStationStore3ByKeys(
+        Set<String> stationCodes,
+        StationStore3 stationStore3
+    ) {
+        return StationsFilterSet.filterByStationCodeIn(stationCodes);
+    }
+
+    public void reduceFromStationStore3(
+        Map<String, Object> aggregates,
+        List<StationEntity> moreMatchingStations
+    ) {
+        if (!moreMatchingStations.isEmpty()) {
+            aggregates.put("newStationCode", moreMatchingStations.get(0).getStationCode());
+        }
+    }
+
+    public List<StationSummaryEntity> transform(
+        Map<String, Object> aggregates,
+        StationEntity station
+    ) {
+        return List.of(
+            new StationSummaryEntity(
+                null,
+                (String) aggregates.get("newStationCode"),
+                (int) aggregates.get("numIndicators"),
+                0
+            )
+        );
+    }
+
+    public List<StationSummaryEntity> handleDuplicate(
+        DuplicateDataException exception,
+        StationEntity inputRecord,
+        List<StationSummaryEntity> outputRecords,
+        StationStore stationStore,
+        StationSummaryStore2 stationSummaryStore2,
+        DataStoreRegistry dataStoreRegistry
+    ) {
+        return null;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.mjg.migration_testing.suite1.migrations;
+
+import com.example.mjg.annotations.ForEachRecordFrom;
+import com.example.mjg.annotations.MatchWith;
+import com.example.mjg.annotations.Migration;
+import com.example.mjg.annotations.TransformAndSaveTo;
+import com.example.mjg.config.Cardinality;
+import com.example.mjg.exceptions.DuplicateDataException;
+import com.example.mjg.migration_testing.suite1.data.entities.IndicatorEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.MeasurementResultEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationSummaryEntity;
+import com.example.mjg.migration_testing.suite1.data.filtering.IndicatorsFilterSet;
+import com.example.mjg.migration_testing.suite1.data.filtering.MeasurementResultsFilterSet;
+import com.example.mjg.migration_testing.suite1.data.stores.IndicatorStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.MeasurementResultStore2;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationSummaryStore3;
+import com.example.mjg.storage.DataStoreRegistry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Station names are indicator codes here, separated by
+ * commas, so that stations with the same name are looked
+ * up with the same filter sets, which are cached: empty
+ * results too, but not results of more than batchSize
+ * records, nor ones violating the cardinality. Lookups
+ * are counted here, so that cache hits can be told apart
+ * from the ones reaching the stores.
+ */
+@Migration
+@ForEachRecordFrom(value = StationStore.class, batchSize = 1)
+@MatchWith(
+    value = IndicatorStore2.class,
+    batchSize = 2,
+    cardinality = Cardinality.ZERO_OR_MORE,
+    cacheMaxEntries = 8
+)
+@MatchWith(
+    value = MeasurementResultStore2.class,
+    cardinality = Cardinality.ZERO_OR_ONE,
+    cacheMaxEntries = 8
+)
+@TransformAndSaveTo(
+    value = StationSummaryStore3.class,
+    cardinality = Cardinality.EXACTLY_ONE
+)
+public class M6_Summarize_Stations_With_Cached_Lookups {
+    private static final AtomicInteger numIndicatorLookups = new AtomicInteger(0);
+
+    private static final AtomicInteger numMeasurementResultLookups = new AtomicInteger(0);
+
+    public static int getNumIndicatorLookups() {
+        return numIndicatorLookups.get();
+    }
+
+    public static int getNumMeasurementResultLookups() {
+        return numMeasurementResultLookups.get();
+    }
+
+    public static void resetCounters() {
+        numIndicatorLookups.set(0);
+        numMeasurementResultLookups.set(0);
+    }
+
+    public void startReduction(
+        StationEntity inputRecord,
+        Map<String, Object> aggregates
+    ) {
+        aggregates.put("numIndicators", 0);
+        aggregates.put("numMeasurementResults", 0);
+    }
+
+    public IndicatorsFilterSet matchWithIndicatorStore2(
+        StationEntity record,
+        Map<String, Object> aggregates,
+        IndicatorStore2 indicatorStore2
+    ) {
+        numIndicatorLookups.incrementAndGet();
+        return IndicatorsFilterSet.filterByIndicatorCodeIn(
+            Set.of(record.getStationName().split(","))
+        );
+    }
+
+    public MeasurementResultsFilterSet matchWithMeasurementResultStore2(
+        StationEntity record,
+        Map<String, Object> aggregates,
+        MeasurementResultStore2 measurementResultStore2
+    ) {
+        numMeasurementResultLookups.incrementAndGet();
+        return MeasurementResultsFilterSet.filterByStationIndicatorIdIn(
+            Set.of(record.getStationName())
+        );
+    }
+
+    public void reduceFromIndicatorStore2(
+        Map<String, Object> aggregates,
+        List<IndicatorEntity> moreIndicators
+    ) {
+        aggregates.put("numIndicators", (int) aggregates.get("numIndicators") + moreIndicators.size());
+    }
+
+    public void reduceFromMeasurementResultStore2(
+        Map<String, Object> aggregates,
+        List<MeasurementResultEntity> moreMeasurementResults
+    ) {
+        aggregates.put("numMeasurementResults", (int) aggregates.get("numMeasurementResults") + moreMeasurementResults.size());
+    }
+
+    public List<StationSummaryEntity> transform(
+        Map<String, Object> aggregates,
+        StationEntity station
+    ) {
+        return List.of(
+            new StationSummaryEntity(
+                null,
+                station.getStationCode(),
+                (int) aggregates.get("numIndicators"),
+                (int) aggregates.get("numMeasurementResults")
+            )
+        );
+    }
+
+    public List<StationSummaryEntity> handleDuplicate(
+        DuplicateDataException exception,
+        StationEntity inputRecord,
+        List<StationSummaryEntity> outputRecords,
+        StationStore stationStore,
+        StationSummaryStore3 stationSummaryStore3,
+        DataStoreRegistry dataStoreRegistry
+    ) {
+        return null;
+    }
+}
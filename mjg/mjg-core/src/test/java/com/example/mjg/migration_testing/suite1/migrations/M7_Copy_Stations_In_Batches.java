@@ -0,0 +1,55 @@
+package com.example.mjg.migration_testing.suite1.migrations;
+
+import com.example.mjg.annotations.ForEachRecordFrom;
+import com.example.mjg.annotations.Migration;
+import com.example.mjg.annotations.TransformAndSaveTo;
+import com.example.mjg.config.Cardinality;
+import com.example.mjg.exceptions.DuplicateDataException;
+import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore3;
+import com.example.mjg.storage.DataStoreRegistry;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same as M2, except that stations are transformed in
+ * parallel, and saved together, in batches of 4.
+ */
+@Migration(threadSafe = true)
+@ForEachRecordFrom(value = StationStore.class, batchSize = 4)
+@TransformAndSaveTo(
+    value = StationStore3.class,
+    cardinality = Cardinality.EXACTLY_ONE,
+    batchAcrossInputRecords = true
+)
+public class M7_Copy_Stations_In_Batches {
+    public void startReduction(
+        StationEntity inputRecord,
+        Map<String, Object> aggregates
+    ) {}
+
+    public List<StationEntity> transform(
+        Map<String, Object> aggregates,
+        StationEntity station
+    ) {
+        StationEntity newStation = new StationEntity(
+            null,
+            "new code " + station.getStationCode(),
+            station.getStationName()
+        );
+        return List.of(newStation);
+    }
+
+    public List<StationEntity> handleDuplicate(
+        DuplicateDataException exception,
+        StationEntity inputRecord,
+        List<StationEntity> outputRecords,
+        StationStore stationStore,
+        StationStore3 stationStore3,
+        DataStoreRegistry dataStoreRegistry
+    ) {
+        return null;
+    }
+}
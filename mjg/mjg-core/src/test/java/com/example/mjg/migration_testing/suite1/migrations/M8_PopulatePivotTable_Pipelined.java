@@ -0,0 +1,100 @@
+package com.example.mjg.migration_testing.suite1.migrations;
+
+import com.example.mjg.annotations.ForEachRecordFrom;
+import com.example.mjg.annotations.MatchWith;
+import com.example.mjg.annotations.Migration;
+import com.example.mjg.annotations.TransformAndSaveTo;
+import com.example.mjg.config.Cardinality;
+import com.example.mjg.config.ErrorResolution;
+import com.example.mjg.exceptions.DuplicateDataException;
+import com.example.mjg.migration_testing.suite1.data.entities.IndicatorEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationIndicatorEntity;
+import com.example.mjg.migration_testing.suite1.data.filtering.IndicatorsFilterSet;
+import com.example.mjg.migration_testing.suite1.data.stores.IndicatorStore;
+import com.example.mjg.migration_testing.suite1.data.stores.StationIndicatorStore3;
+import com.example.mjg.migration_testing.suite1.data.stores.StationStore;
+import com.example.mjg.storage.DataStoreRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same as M1, except that stations are read, matched
+ * and saved in pipelined stages, and lookups are
+ * retried without blocking.
+ */
+@Migration
+@ForEachRecordFrom(
+    value = StationStore.class,
+    batchSize = 1,
+    inCaseOfError = @ErrorResolution(retryTimes = 0, retryDelayInSeconds = 0),
+    pipelineCapacity = 2
+)
+@MatchWith(
+    value = IndicatorStore.class,
+    batchSize = 1,
+    cardinality = Cardinality.ZERO_OR_MORE,
+    inCaseOfError = @ErrorResolution(retryTimes = 0, retryDelayInSeconds = 0, nonBlocking = true)
+)
+@TransformAndSaveTo(
+    value = StationIndicatorStore3.class,
+    cardinality = Cardinality.ZERO_OR_MORE,
+    inCaseOfError = @ErrorResolution(retryTimes = 0, retryDelayInSeconds = 0)
+)
+public class M8_PopulatePivotTable_Pipelined {
+    public void startReduction(
+        StationEntity inputRecord,
+        Map<String, Object> aggregates
+    ) {
+        aggregates.put("indicators", new ArrayList<IndicatorEntity>());
+    }
+
+    public IndicatorsFilterSet matchWithIndicatorStore(
+        StationEntity record,
+        Map<String, Object> aggregates,
+        IndicatorStore indicatorStore
+    ) {
+        return IndicatorsFilterSet.takeAll();
+    }
+
+    public void reduceFromIndicatorStore(
+        Map<String, Object> aggregates,
+        List<IndicatorEntity> moreIndicators
+    ) {
+        @SuppressWarnings("unchecked")
+        List<IndicatorEntity> indicators = (List<IndicatorEntity>) aggregates.get("indicators");
+
+        indicators.addAll(moreIndicators);
+    }
+
+    public List<StationIndicatorEntity> transform(
+        Map<String, Object> aggregates,
+        StationEntity station
+    ) {
+        @SuppressWarnings("unchecked")
+        List<IndicatorEntity> indicators = (List<IndicatorEntity>) aggregates.get("indicators");
+
+        return indicators.stream()
+                .map(indicator -> new StationIndicatorEntity(
+                        station.getStationCode() + "," + indicator.getIndicatorCode(),
+                        station.getStationCode(),
+                        station.getId(),
+                        indicator.getIndicatorCode(),
+                        indicator.getId()
+                ))
+                .toList();
+    }
+
+    public List<StationIndicatorEntity> handleDuplicate(
+        DuplicateDataException exception,
+        StationEntity inputRecord,
+        List<StationIndicatorEntity> outputRecords,
+        StationStore stationStore,
+        StationIndicatorStore3 stationIndicatorStore3,
+        DataStoreRegistry dataStoreRegistry
+    ) {
+        return null;
+    }
+}
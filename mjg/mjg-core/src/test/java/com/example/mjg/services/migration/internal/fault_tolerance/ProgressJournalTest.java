@@ -0,0 +1,194 @@
+package com.example.mjg.services.migration.internal.fault_tolerance;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.FailedRecord;
+import com.example.mjg.services.migration.internal.fault_tolerance.schemas.FailedRecordAction;
+
+public class ProgressJournalTest {
+    private static final String FQCN = "com.example.SomeMigration";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRecoverAfterCrash() throws IOException {
+        MigrationProgressManager manager = new MigrationProgressManager();
+        ProgressJournal journal = new ProgressJournal(directory, 10, Long.MAX_VALUE);
+        journal.open(manager);
+
+        manager.startMigration(FQCN);
+        manager.recordSucceeded(FQCN, List.of(1, 2, 3));
+        manager.recordFailed(FQCN, List.of(
+            new FailedRecord(4, "four", "x".repeat(100_000), new FailedRecordAction(FailedRecordAction.Type.IGNORE), LocalDateTime.now())
+        ));
+        manager.advanceResumeCursor(FQCN, 4);
+        manager.recordFailed(FQCN, List.of(
+            new FailedRecord(2, "two", "cause", new FailedRecordAction(FailedRecordAction.Type.RETRY), LocalDateTime.now())
+        ));
+        journal.sync();
+
+        // Not closed: as if the process was killed, in the
+        // middle of writing one more entry
+        manager.recordSucceeded(FQCN, List.of(5));
+        journal.sync();
+        Path lastSegment = listFiles("journal-").get(0);
+        try (RandomAccessFile file = new RandomAccessFile(lastSegment.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        MigrationProgressManager recovered = new MigrationProgressManager();
+        ProgressJournal recoveredJournal = new ProgressJournal(directory, 10, Long.MAX_VALUE);
+        recoveredJournal.open(recovered);
+
+        assertEquals(Set.of(2), recovered.getFailedRecordIds(FQCN));
+        assertEquals(Set.of(4), recovered.getIgnoredRecordIds(FQCN));
+        assertEquals(4, recovered.getResumeCursor(FQCN));
+        assertEquals(Set.of(2, 5), remainingAfterSucceeded(recovered, Set.of(1, 2, 3, 5)));
+        assertEquals(
+            manager.snapshot().getMetadata().getInProgressMigrationFQCNs(),
+            recovered.snapshot().getMetadata().getInProgressMigrationFQCNs()
+        );
+
+        recovered.finishMigration(FQCN);
+        recoveredJournal.close();
+
+        // Compacted into a single snapshot
+        assertTrue(listFiles("journal-").isEmpty());
+        assertEquals(1, listFiles("snapshot-").size());
+
+        MigrationProgressManager reopened = new MigrationProgressManager();
+        ProgressJournal reopenedJournal = new ProgressJournal(directory);
+        reopenedJournal.open(reopened);
+        assertEquals(Set.of(2), reopened.getFailedRecordIds(FQCN));
+        assertEquals(Set.of(2, 5), remainingAfterSucceeded(reopened, Set.of(1, 2, 3, 5)));
+        assertEquals(Set.of(FQCN), reopened.snapshot().getMetadata().getCompletedMigrationFQCNs());
+        reopenedJournal.close();
+    }
+
+    @Test
+    public void testCompactWhileReporting() throws IOException {
+        MigrationProgressManager manager = new MigrationProgressManager();
+        // Compacting every few entries
+        ProgressJournal journal = new ProgressJournal(directory, 1, 1024);
+        journal.open(manager);
+
+        for (int i = 0; i < 2000; ++i) {
+            manager.recordSucceeded(FQCN, List.of(i));
+        }
+        journal.sync();
+
+        MigrationProgressManager recovered = new MigrationProgressManager();
+        new ProgressJournal(directory).open(recovered);
+
+        Set<Serializable> ids = new HashSet<>();
+        for (int i = 0; i < 2000; ++i) {
+            ids.add(i);
+        }
+        assertEquals(Set.of(), remainingAfterSucceeded(recovered, ids));
+    }
+
+    @Test
+    public void testBackpressureWhileCompacting() throws Exception {
+        MigrationProgressManager manager = new MigrationProgressManager();
+        // Reporters wait for the writer after a few entries,
+        // while it compacts, i.e. takes the snapshot lock
+        ProgressJournal journal = new ProgressJournal(directory, 1, 1024, 256);
+        journal.open(manager);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> reporters = new ArrayList<>();
+            for (int t = 0; t < 4; ++t) {
+                final int offset = t * 500;
+                reporters.add(executor.submit(() -> {
+                    for (int i = offset; i < offset + 500; ++i) {
+                        manager.recordSucceeded(FQCN, List.of(i));
+                    }
+                }));
+            }
+            for (Future<?> reporter : reporters) {
+                reporter.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        journal.sync();
+
+        MigrationProgressManager recovered = new MigrationProgressManager();
+        new ProgressJournal(directory).open(recovered);
+
+        Set<Serializable> ids = new HashSet<>();
+        for (int i = 0; i < 2000; ++i) {
+            ids.add(i);
+        }
+        assertEquals(Set.of(), remainingAfterSucceeded(recovered, ids));
+    }
+
+    @Test
+    public void testUnsupportedIdTypeRejected() throws IOException {
+        MigrationProgressManager manager = new MigrationProgressManager();
+        ProgressJournal journal = new ProgressJournal(directory, 10, Long.MAX_VALUE);
+        journal.open(manager);
+
+        UUID id = UUID.randomUUID();
+        // Checked before saving, so that nothing is saved
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> manager.checkRecordIdsJournalable(List.of(1, id))
+        );
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> manager.checkRecordIdsJournalable(Collections.singletonList(null))
+        );
+        manager.checkRecordIdsJournalable(List.of(1, 2L, "3"));
+
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> manager.recordSucceeded(FQCN, List.of(id))
+        );
+        // Neither journaled nor kept in memory
+        assertEquals(Set.of(id), remainingAfterSucceeded(manager, Set.of(id)));
+        journal.close();
+
+        // Anything goes without a journal
+        manager.checkRecordIdsJournalable(List.of(id));
+    }
+
+    private static Set<Serializable> remainingAfterSucceeded(MigrationProgressManager manager, Set<? extends Serializable> ids) {
+        Set<Serializable> remaining = new HashSet<>(ids);
+        manager.excludeSuccessfullyMigratedRecordIds(FQCN, remaining);
+        return remaining;
+    }
+
+    private List<Path> listFiles(String prefix) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths
+                .filter(path -> path.getFileName().toString().startsWith(prefix))
+                .sorted()
+                .toList();
+        }
+    }
+}
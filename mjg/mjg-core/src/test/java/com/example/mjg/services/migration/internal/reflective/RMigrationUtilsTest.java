@@ -0,0 +1,128 @@
+package com.example.mjg.services.migration.internal.reflective;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.mjg.annotations.ForEachRecordFrom;
+import com.example.mjg.annotations.MatchWith;
+import com.example.mjg.annotations.TransformAndSaveTo;
+import com.example.mjg.data.MigratableEntity;
+import com.example.mjg.exceptions.DuplicateDataException;
+import com.example.mjg.migration_testing.suite1.data.entities.MeasurementResultEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationEntity;
+import com.example.mjg.migration_testing.suite1.data.entities.StationIndicatorEntity;
+import com.example.mjg.migration_testing.suite1.data.filtering.MeasurementResultsFilterSet;
+import com.example.mjg.migration_testing.suite1.data.filtering.StationsFilterSet;
+import com.example.mjg.migration_testing.suite1.migrations.M9_Migrate_StationIndicator_With_Broadcast;
+import com.example.mjg.storage.DataStoreRegistry;
+import com.example.mjg.utils.DataStoreReflection;
+
+/**
+ * The generated dispatcher must behave like the reflection fallback.
+ */
+public class RMigrationUtilsTest {
+    private static final Class<?> MIGRATION_CLASS = M9_Migrate_StationIndicator_With_Broadcast.class;
+
+    private final DataStoreRegistry storeRegistry = new DataStoreRegistry();
+
+    private final RForEachRecordFrom rForEachRecordFrom = new RForEachRecordFrom(
+        MIGRATION_CLASS,
+        MIGRATION_CLASS.getAnnotation(ForEachRecordFrom.class),
+        new DataStoreReflection(MIGRATION_CLASS.getAnnotation(ForEachRecordFrom.class).value())
+    );
+
+    private final RTransformAndSaveTo rTransformAndSaveTo = new RTransformAndSaveTo(
+        MIGRATION_CLASS,
+        MIGRATION_CLASS.getAnnotation(TransformAndSaveTo.class),
+        new DataStoreReflection(MIGRATION_CLASS.getAnnotation(TransformAndSaveTo.class).value())
+    );
+
+    private final List<RMatchWith> rMatchWiths = List.of(MIGRATION_CLASS.getAnnotationsByType(MatchWith.class))
+        .stream()
+        .map(matchWith -> new RMatchWith(MIGRATION_CLASS, matchWith, new DataStoreReflection(matchWith.value())))
+        .toList();
+
+    private final RMigrationUtils withDispatcher = create(true);
+    private final RMigrationUtils withReflection = create(false);
+
+    private RMigrationUtils create(boolean useDispatcher) {
+        return new RMigrationUtils(
+            storeRegistry,
+            MIGRATION_CLASS,
+            new M9_Migrate_StationIndicator_With_Broadcast(),
+            rForEachRecordFrom,
+            rMatchWiths,
+            rTransformAndSaveTo,
+            useDispatcher
+        );
+    }
+
+    @Test
+    public void testDispatcherIsGenerated() {
+        assertTrue(withDispatcher.hasDispatcher());
+        assertFalse(withReflection.hasDispatcher());
+    }
+
+    @Test
+    public void testDispatcherBehavesLikeReflection() throws Exception {
+        RMatchWith stations = rMatchWiths.get(0);
+        RMatchWith measurementResults = rMatchWiths.get(1);
+
+        StationIndicatorEntity record = new StationIndicatorEntity("1-1", "STATION_1", 1, "INDICATOR_1", 1);
+        StationEntity station = new StationEntity(1, "new code STATION_1", "Station 1");
+        List<MigratableEntity> matchedResults = List.of(
+            new MeasurementResultEntity(1, "1-1", 1.0),
+            new MeasurementResultEntity(2, "1-1", 2.0)
+        );
+
+        List<Object> results = new ArrayList<>();
+        for (RMigrationUtils utils : List.of(withDispatcher, withReflection)) {
+            Map<String, Object> aggregates = new HashMap<>();
+            utils.callStartReductionMethod(record, aggregates);
+
+            Object matchingKey = utils.callMatchingKeyMethod(stations, record, aggregates);
+            Object matchedKey = utils.callMatchedKeyMethod(stations, station);
+            StationsFilterSet stationFilters = (StationsFilterSet) utils.callMatchingByKeysMethod(
+                stations,
+                Set.of(matchingKey)
+            );
+            MeasurementResultsFilterSet resultFilters = (MeasurementResultsFilterSet) utils.callMatchingMethod(
+                measurementResults,
+                record,
+                aggregates
+            );
+
+            utils.callReduceMethod(stations, aggregates, List.of(station));
+            utils.callReduceMethod(measurementResults, aggregates, matchedResults);
+            List<MigratableEntity> transformed = utils.callTransformMethod(aggregates, record);
+
+            List<MigratableEntity> resolved = utils.callHandleDuplicateMethod(
+                new DuplicateDataException("duplicate"),
+                record,
+                transformed
+            );
+
+            results.add(List.of(
+                matchingKey,
+                matchedKey,
+                stationFilters.getFilterByStationCodeIn(),
+                resultFilters.getStationIndicatorIdsIn(),
+                aggregates,
+                transformed,
+                String.valueOf(resolved)
+            ));
+        }
+
+        assertEquals(results.get(1), results.get(0));
+        assertEquals("new code STATION_1", ((List<?>) results.get(0)).get(0));
+    }
+}
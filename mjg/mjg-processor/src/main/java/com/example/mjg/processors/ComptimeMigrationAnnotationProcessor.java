@@ -4,6 +4,7 @@ package com.example.mjg.processors;
 import com.example.mjg.processors.Migration.*;
 import com.example.mjg.processors.Migration.processing.DataStoreNamesValidation;
 import com.example.mjg.processors.Migration.processing.DependencyResolution;
+import com.example.mjg.processors.Migration.processing.DispatcherGeneration;
 import com.example.mjg.processors.Migration.processing.MethodsValidation;
 
 import javax.annotation.processing.*;
@@ -17,6 +18,12 @@ import javax.tools.Diagnostic;
 public class ComptimeMigrationAnnotationProcessor extends AbstractProcessor {
     final Set<TypeElement> migrationClasses = new HashSet<>();
 
+    /**
+     * Parsed (valid) migrations, whose dispatchers are already generated
+     */
+    final List<ComptimeMigration> comptimeMigrations = new ArrayList<>();
+    boolean atLeastOneMigrationIsInvalid = false;
+
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
         processingEnv.getMessager().printMessage(
@@ -33,12 +40,18 @@ public class ComptimeMigrationAnnotationProcessor extends AbstractProcessor {
             for (Element element : elements) {
                 if (element.getKind() == ElementKind.CLASS) {
                     TypeElement typeElement = (TypeElement) element;
-                    migrationClasses.add(typeElement);
+                    if (!migrationClasses.add(typeElement)) {
+                        continue;
+                    }
 
                     processingEnv.getMessager().printMessage(
                             Diagnostic.Kind.NOTE,
                             "Found @Migration on class: " + typeElement.getQualifiedName().toString()
                     );
+
+                    // Generated in this (normal) round, so that the
+                    // dispatchers are compiled like any other source.
+                    processMigrationClass(typeElement);
                 } else {
                     processingEnv.getMessager().printMessage(
                             Diagnostic.Kind.ERROR,
@@ -49,21 +62,37 @@ public class ComptimeMigrationAnnotationProcessor extends AbstractProcessor {
         }
 
         if (roundEnv.processingOver()) {
-            DependencyResolution resolver = new DependencyResolution(processingEnv);
-            List<ComptimeMigration> sortedComptimeMigrations = resolver.resolve(migrationClasses);
-
-            if (sortedComptimeMigrations != null) {
-                sortedComptimeMigrations.forEach(comptimeMigration -> {
-                    MethodsValidation methodsValidator = new MethodsValidation(processingEnv, comptimeMigration);
-                    methodsValidator.validate();
-
-                    DataStoreNamesValidation dataStoreNamesValidator = new DataStoreNamesValidation(processingEnv, comptimeMigration);
-                    dataStoreNamesValidator.validate();
-                });
+            if (atLeastOneMigrationIsInvalid) {
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR,
+                        "At least one Migration is invalid."
+                );
+            } else {
+                new DependencyResolution(processingEnv).resolve(comptimeMigrations);
             }
         }
 
         return true;
     }
 
+    private void processMigrationClass(TypeElement migrationClass) {
+        ComptimeMigration comptimeMigration = new DependencyResolution(processingEnv).parse(migrationClass);
+        if (comptimeMigration == null) {
+            atLeastOneMigrationIsInvalid = true;
+            return;
+        }
+        comptimeMigrations.add(comptimeMigration);
+
+        MethodsValidation methodsValidator = new MethodsValidation(processingEnv, comptimeMigration);
+        if (methodsValidator.validate()) {
+            new DispatcherGeneration(
+                processingEnv,
+                comptimeMigration,
+                methodsValidator.getFoundMethodsByName()
+            ).generate();
+        }
+
+        DataStoreNamesValidation dataStoreNamesValidator = new DataStoreNamesValidation(processingEnv, comptimeMigration);
+        dataStoreNamesValidator.validate();
+    }
 }
@@ -108,7 +108,7 @@ public class ComptimeUtils {
         Types typeUtils = processingEnv.getTypeUtils();
 
         // Check return value
-        if (!typeUtils.isSameType(resolvedMethod.getReturnType(), prototype.getReturnType())) {
+        if (!typeMatchesPrototypeType(typeUtils, resolvedMethod.getReturnType(), prototype.getReturnType())) {
             return false;
         }
 
@@ -122,7 +122,7 @@ public class ComptimeUtils {
             TypeMirror methodParamType = resolvedMethod.getParameterTypes().get(i);
             TypeMirror prototypeParamType = prototype.getParameterTypes().get(i);
 
-            if (!typeUtils.isSameType(methodParamType, prototypeParamType)) {
+            if (!typeMatchesPrototypeType(typeUtils, methodParamType, prototypeParamType)) {
                 return false;
             }
         }
@@ -130,6 +130,30 @@ public class ComptimeUtils {
         return true;
     }
 
+    /**
+     * A null prototype type accepts any type, and a raw prototype type
+     * (e.g. java.util.Set) accepts any parameterization of it.
+     */
+    private static boolean typeMatchesPrototypeType(
+            Types typeUtils,
+            TypeMirror actualType,
+            TypeMirror prototypeType
+    ) {
+        if (prototypeType == null) {
+            return actualType.getKind() != TypeKind.VOID;
+        }
+
+        if (
+            prototypeType instanceof DeclaredType declaredPrototypeType
+            && declaredPrototypeType.getTypeArguments().isEmpty()
+            && !((TypeElement) declaredPrototypeType.asElement()).getTypeParameters().isEmpty()
+        ) {
+            return typeUtils.isSameType(typeUtils.erasure(actualType), typeUtils.erasure(prototypeType));
+        }
+
+        return typeUtils.isSameType(actualType, prototypeType);
+    }
+
     public static List<? extends TypeMirror> getDataStoreTypeArguments(
         Elements elementUtils,
         Types typeUtils,
@@ -9,6 +9,9 @@ import java.util.stream.Collectors;
 
 @Value
 public class MethodPrototype {
+    /**
+     * null means any non-void type.
+     */
     private final TypeMirror returnType;
 
     private final String name;
@@ -18,7 +21,7 @@ public class MethodPrototype {
     @Override
     public String toString() {
         AtomicInteger iVar = new AtomicInteger(1);
-        return "" + returnType + "   " + name + "(\n        "
+        return (returnType == null ? "<any type>" : "" + returnType) + "   " + name + "(\n        "
                 + parameterTypes.stream().map(
                         parameterType -> "" + parameterType.toString() + " var" + iVar.getAndIncrement()
                 ).collect(Collectors.joining(",\n        "))
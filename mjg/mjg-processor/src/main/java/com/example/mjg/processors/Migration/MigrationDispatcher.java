@@ -0,0 +1,53 @@
+package com.example.mjg.processors.Migration;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.mjg.data.DataFilterSet;
+import com.example.mjg.data.DataStore;
+import com.example.mjg.data.MigratableEntity;
+import com.example.mjg.exceptions.DuplicateDataException;
+import com.example.mjg.storage.DataStoreRegistry;
+
+/**
+ * Calls the methods of a migration class directly,
+ * instead of through reflection.
+ *
+ * One implementation is generated per @Migration class,
+ * see {@link MigrationDispatcherLocation}.
+ * Matching and reduction methods are selected by
+ * the simple name of the matching store.
+ *
+ * Implementations are stateless, so they can be called
+ * from many threads.
+ */
+public interface MigrationDispatcher {
+    void startReduction(MigratableEntity record, Map<String, Object> aggregates) throws Exception;
+
+    DataFilterSet matchWith(
+        String storeName,
+        MigratableEntity record,
+        Map<String, Object> aggregates,
+        DataStore<?, ?, ?> store
+    ) throws Exception;
+
+    Object matchingKeyFor(String storeName, MigratableEntity record, Map<String, Object> aggregates) throws Exception;
+
+    Object matchedKeyFrom(String storeName, MigratableEntity matchedRecord) throws Exception;
+
+    DataFilterSet matchWithByKeys(String storeName, Set<Object> keys, DataStore<?, ?, ?> store) throws Exception;
+
+    void reduceFrom(String storeName, Map<String, Object> aggregates, List<MigratableEntity> matchingRecords) throws Exception;
+
+    List<?> transform(Map<String, Object> aggregates, MigratableEntity record) throws Exception;
+
+    List<?> handleDuplicate(
+        DuplicateDataException exception,
+        MigratableEntity inputRecord,
+        List<MigratableEntity> outputRecords,
+        DataStore<?, ?, ?> inputStore,
+        DataStore<?, ?, ?> outputStore,
+        DataStoreRegistry dataStoreRegistry
+    ) throws Exception;
+}
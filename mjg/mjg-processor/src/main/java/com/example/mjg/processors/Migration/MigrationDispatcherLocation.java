@@ -0,0 +1,22 @@
+package com.example.mjg.processors.Migration;
+
+public class MigrationDispatcherLocation {
+    public static final String CLASS_NAME_SUFFIX = "_MjgDispatcher";
+
+    /**
+     * The dispatcher is generated in the package of the migration class,
+     * nested class names are flattened: {@code a.b.Outer.Inner}
+     * becomes {@code a.b.Outer_Inner_MjgDispatcher}.
+     */
+    public static String fqcnOf(String packageName, String migrationCanonicalName) {
+        String relativeName = packageName.isEmpty()
+            ? migrationCanonicalName
+            : migrationCanonicalName.substring(packageName.length() + 1);
+        String className = relativeName.replace('.', '_') + CLASS_NAME_SUFFIX;
+        return packageName.isEmpty() ? className : packageName + "." + className;
+    }
+
+    public static String fqcnOf(Class<?> migrationClass) {
+        return fqcnOf(migrationClass.getPackageName(), migrationClass.getCanonicalName());
+    }
+}
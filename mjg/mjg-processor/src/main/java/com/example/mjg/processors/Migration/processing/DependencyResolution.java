@@ -27,177 +27,170 @@ public class DependencyResolution {
     private final ProcessingEnvironment processingEnv;
 
     /**
-     * Constructs migration execution plan/ordering.
+     * Reads the annotations of one migration class.
+     *
+     * @return null if they are invalid (errors are reported)
      */
-    public List<ComptimeMigration> resolve(Set<TypeElement> migrationClasses) {
-        Map<Integer, List<ComptimeMigration>> migrationsByOrderMap = new HashMap<>();
-
-        boolean atLeastOneMigrationIsInvalid = false;
-
-        for (TypeElement migrationClass : migrationClasses) {
-            Map<String, Object> valuesAnnMigration = null;
-            Map<String, Object> valuesAnnForEachRecordFrom = null;
-            List<Map<String, Object>> valuesAnnsMatchWith = new ArrayList<>();
-            Map<String, Object> valuesAnnTransformAndSaveTo = null;
-            boolean thisMigrationIsInvalid = false;
-
-            for (AnnotationMirror annotationMirror : migrationClass.getAnnotationMirrors()) {
-                DeclaredType annotationType = annotationMirror.getAnnotationType();
-                Name annotationQualifiedName = ((TypeElement) annotationType.asElement()).getQualifiedName();
-
-                Map<String, Object> annotationValues = ComptimeUtils.getAllAnnotationValues(annotationMirror, processingEnv);
-
-                if (annotationQualifiedName.contentEquals(Migration.class.getCanonicalName())) {
-                    if (valuesAnnMigration == null) {
-                        valuesAnnMigration = annotationValues;
-                    } else {
-                        processingEnv.getMessager().printMessage(
-                                Diagnostic.Kind.ERROR,
-                                "@Migration could only be applied to a class once"
-                        );
-                        thisMigrationIsInvalid = true;
-                    }
+    public ComptimeMigration parse(TypeElement migrationClass) {
+        Map<String, Object> valuesAnnMigration = null;
+        Map<String, Object> valuesAnnForEachRecordFrom = null;
+        List<Map<String, Object>> valuesAnnsMatchWith = new ArrayList<>();
+        Map<String, Object> valuesAnnTransformAndSaveTo = null;
+        boolean thisMigrationIsInvalid = false;
+
+        for (AnnotationMirror annotationMirror : migrationClass.getAnnotationMirrors()) {
+            DeclaredType annotationType = annotationMirror.getAnnotationType();
+            Name annotationQualifiedName = ((TypeElement) annotationType.asElement()).getQualifiedName();
+
+            Map<String, Object> annotationValues = ComptimeUtils.getAllAnnotationValues(annotationMirror, processingEnv);
+
+            if (annotationQualifiedName.contentEquals(Migration.class.getCanonicalName())) {
+                if (valuesAnnMigration == null) {
+                    valuesAnnMigration = annotationValues;
+                } else {
+                    processingEnv.getMessager().printMessage(
+                            Diagnostic.Kind.ERROR,
+                            "@Migration could only be applied to a class once"
+                    );
+                    thisMigrationIsInvalid = true;
+                }
 
-                } else if (annotationQualifiedName.contentEquals(ForEachRecordFrom.class.getCanonicalName())) {
-                    if (valuesAnnForEachRecordFrom == null) {
-                        valuesAnnForEachRecordFrom = annotationValues;
-                    } else {
-                        processingEnv.getMessager().printMessage(
-                                Diagnostic.Kind.ERROR,
-                                "A @Migration must have exactly one @ForEachRecordFrom annotation applied"
-                        );
-                        thisMigrationIsInvalid = true;
-                    }
+            } else if (annotationQualifiedName.contentEquals(ForEachRecordFrom.class.getCanonicalName())) {
+                if (valuesAnnForEachRecordFrom == null) {
+                    valuesAnnForEachRecordFrom = annotationValues;
+                } else {
+                    processingEnv.getMessager().printMessage(
+                            Diagnostic.Kind.ERROR,
+                            "A @Migration must have exactly one @ForEachRecordFrom annotation applied"
+                    );
+                    thisMigrationIsInvalid = true;
+                }
 
-                } else if (annotationQualifiedName.contentEquals(MatchWith.class.getCanonicalName())) {
-                    valuesAnnsMatchWith.add(annotationValues);
-
-                } else if (annotationQualifiedName.contentEquals(MatchWithEntries.class.getCanonicalName())) {
-                    Object valueArray = annotationValues.get("value");
-                    boolean ok = false;
-                    if (valueArray instanceof List<?> matchWithMirrors) {
-                        ok = true;
-                        for (Object item : matchWithMirrors) {
-                            boolean thisItemIsOk = false;
-
-                            if (item instanceof Map<?,?> map) {
-                                @SuppressWarnings("unchecked")
-                                Map<String, Object> matchWithValues =  (Map<String, Object>) map;
-                                valuesAnnsMatchWith.add((Map<String, Object>) matchWithValues);
-                                thisItemIsOk = true;
-                            }
-
-                            if (ok && !thisItemIsOk) {
-                                ok = false;
-                            }
+            } else if (annotationQualifiedName.contentEquals(MatchWith.class.getCanonicalName())) {
+                valuesAnnsMatchWith.add(annotationValues);
+
+            } else if (annotationQualifiedName.contentEquals(MatchWithEntries.class.getCanonicalName())) {
+                Object valueArray = annotationValues.get("value");
+                boolean ok = false;
+                if (valueArray instanceof List<?> matchWithMirrors) {
+                    ok = true;
+                    for (Object item : matchWithMirrors) {
+                        boolean thisItemIsOk = false;
+
+                        if (item instanceof Map<?,?> map) {
+                            @SuppressWarnings("unchecked")
+                            Map<String, Object> matchWithValues =  (Map<String, Object>) map;
+                            valuesAnnsMatchWith.add((Map<String, Object>) matchWithValues);
+                            thisItemIsOk = true;
                         }
-                    }
 
-                    if (!ok) {
-                        processingEnv.getMessager().printMessage(
-                                Diagnostic.Kind.ERROR,
-                                "An empty or malformed @MatchWithEntries annotation applied"
-                        );
-                        thisMigrationIsInvalid = true;
+                        if (ok && !thisItemIsOk) {
+                            ok = false;
+                        }
                     }
+                }
 
-                } else if (annotationQualifiedName.contentEquals(TransformAndSaveTo.class.getCanonicalName())) {
-                    if (valuesAnnTransformAndSaveTo == null) {
-                        valuesAnnTransformAndSaveTo = annotationValues;
-                    } else {
-                        processingEnv.getMessager().printMessage(
-                                Diagnostic.Kind.ERROR,
-                                "A @Migration must have exactly one @TransformAndSaveTo annotation applied"
-                        );
-                        thisMigrationIsInvalid = true;
-                    }
+                if (!ok) {
+                    processingEnv.getMessager().printMessage(
+                            Diagnostic.Kind.ERROR,
+                            "An empty or malformed @MatchWithEntries annotation applied"
+                    );
+                    thisMigrationIsInvalid = true;
+                }
 
+            } else if (annotationQualifiedName.contentEquals(TransformAndSaveTo.class.getCanonicalName())) {
+                if (valuesAnnTransformAndSaveTo == null) {
+                    valuesAnnTransformAndSaveTo = annotationValues;
+                } else {
+                    processingEnv.getMessager().printMessage(
+                            Diagnostic.Kind.ERROR,
+                            "A @Migration must have exactly one @TransformAndSaveTo annotation applied"
+                    );
+                    thisMigrationIsInvalid = true;
                 }
-            }
 
-            if (valuesAnnMigration == null) {
-                processingEnv.getMessager().printMessage(
-                        Diagnostic.Kind.ERROR,
-                        "No @Migration annotation applied to this class. This should never happen, but isn't your fault."
-                );
-                thisMigrationIsInvalid = true;
             }
+        }
 
-            if (valuesAnnForEachRecordFrom == null) {
-                processingEnv.getMessager().printMessage(
-                        Diagnostic.Kind.ERROR,
-                        "A @Migration must have a @ForEachRecordFrom annotation applied"
-                );
-                thisMigrationIsInvalid = true;
-            }
+        if (valuesAnnMigration == null) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR,
+                    "No @Migration annotation applied to this class. This should never happen, but isn't your fault."
+            );
+            thisMigrationIsInvalid = true;
+        }
 
-            if (valuesAnnTransformAndSaveTo == null) {
-                processingEnv.getMessager().printMessage(
-                        Diagnostic.Kind.ERROR,
-                        "A @Migration must have a @TransformAndSaveTo annotation applied"
-                );
-                thisMigrationIsInvalid = true;
-            }
+        if (valuesAnnForEachRecordFrom == null) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR,
+                    "A @Migration must have a @ForEachRecordFrom annotation applied"
+            );
+            thisMigrationIsInvalid = true;
+        }
 
-            if (thisMigrationIsInvalid) {
-                atLeastOneMigrationIsInvalid = true;
-            }
+        if (valuesAnnTransformAndSaveTo == null) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR,
+                    "A @Migration must have a @TransformAndSaveTo annotation applied"
+            );
+            thisMigrationIsInvalid = true;
+        }
 
-            if (atLeastOneMigrationIsInvalid) {
-                migrationsByOrderMap.clear();
-            } else {
-                // Only try to build the task graph
-                // when the migrations are not (or
-                // have not been) invalid.
-                ComptimeMigration m = createComptimeMigration(
-                        migrationClass,
-                        valuesAnnMigration,
-                        valuesAnnForEachRecordFrom,
-                        valuesAnnsMatchWith,
-                        valuesAnnTransformAndSaveTo
-                );
-                if (m == null) {
-                    atLeastOneMigrationIsInvalid = true;
-                } else {
-                    Integer migrationOrder = m.getPMigration().getOrder();
-                    List<ComptimeMigration> migrationsOfTheSameOrder = migrationsByOrderMap.computeIfAbsent(
-                            migrationOrder,
-                            k -> new ArrayList<>()
-                    );
-                    migrationsOfTheSameOrder.add(m);
-                }
-            } // if (atLeastOneMigrationIsInvalid)
+        if (thisMigrationIsInvalid) {
+            return null;
+        }
+
+        return createComptimeMigration(
+                migrationClass,
+                valuesAnnMigration,
+                valuesAnnForEachRecordFrom,
+                valuesAnnsMatchWith,
+                valuesAnnTransformAndSaveTo
+        );
+    }
+
+    /**
+     * Constructs migration execution plan/ordering,
+     * from valid migrations (see parse()).
+     */
+    public List<ComptimeMigration> resolve(Collection<ComptimeMigration> comptimeMigrations) {
+        Map<Integer, List<ComptimeMigration>> migrationsByOrderMap = new HashMap<>();
+
+        for (ComptimeMigration m : comptimeMigrations) {
+            Integer migrationOrder = m.getPMigration().getOrder();
+            List<ComptimeMigration> migrationsOfTheSameOrder = migrationsByOrderMap.computeIfAbsent(
+                    migrationOrder,
+                    k -> new ArrayList<>()
+            );
+            migrationsOfTheSameOrder.add(m);
         }
 
-        if (!atLeastOneMigrationIsInvalid) {
-            // Build the task graph, or more accurately,
-            // a topologically sorted list of tasks/migrations.
-            List<ComptimeMigration> sortedComptimeMigrations = buildMigrationExecutionPlan(migrationsByOrderMap);
+        // Build the task graph, or more accurately, topologically
+        // sorted levels of tasks/migrations: migrations of the same
+        // level do not depend on each other.
+        List<List<ComptimeMigration>> comptimeMigrationLevels = buildMigrationExecutionPlan(migrationsByOrderMap);
 
-            if (sortedComptimeMigrations == null) {
-                processingEnv.getMessager().printMessage(
-                        Diagnostic.Kind.ERROR,
-                        "Stopped building migration execution plan earlier.."
-                );
-            } else {
-                List<RuntimeMigration> sortedRuntimeMigrations = sortedComptimeMigrations.stream()
-                        .map(
-                                comptimeMigration -> new RuntimeMigration(
-                                        comptimeMigration.getPMigration().getFQCN()
-                                )
-                        )
-                        .toList();
-
-                boolean successful = embedTaskGraph(sortedRuntimeMigrations);
-                if (successful) {
-                    return sortedComptimeMigrations;
-                }
-            }
-        } else {
+        if (comptimeMigrationLevels == null) {
             processingEnv.getMessager().printMessage(
                     Diagnostic.Kind.ERROR,
-                    "At least one Migration is invalid."
+                    "Stopped building migration execution plan earlier.."
             );
+        } else {
+            List<List<RuntimeMigration>> runtimeMigrationLevels = comptimeMigrationLevels.stream()
+                    .map(level -> level.stream()
+                            .map(
+                                    comptimeMigration -> new RuntimeMigration(
+                                            comptimeMigration.getPMigration().getFQCN()
+                                    )
+                            )
+                            .toList()
+                    )
+                    .toList();
+
+            boolean successful = embedTaskGraph(runtimeMigrationLevels);
+            if (successful) {
+                return comptimeMigrationLevels.stream().flatMap(List::stream).toList();
+            }
         }
 
         return null;
@@ -297,19 +290,25 @@ public class DependencyResolution {
         );
     }
 
-    private boolean embedTaskGraph(List<RuntimeMigration> sortedMigrations) {
+    private boolean embedTaskGraph(List<List<RuntimeMigration>> migrationLevels) {
         String source = "package " + RuntimeMigrationDataLocation.PACKAGE_NAME + ";"
                 + "import java.util.List;"
                 + "import " + RuntimeMigration.class.getCanonicalName() + ";"
                 + "public final class " + RuntimeMigrationDataLocation.CLASS_NAME + "{"
                 + """
-            public static final List<RuntimeMigration> sortedMigrations = List.of(
+            public static final List<List<RuntimeMigration>> migrationLevels = List.of(
         """ +
-                sortedMigrations.stream()
-                        .map(RuntimeMigration::repr)
+                migrationLevels.stream()
+                        .map(level -> "List.of(\n" + level.stream()
+                                .map(RuntimeMigration::repr)
+                                .collect(Collectors.joining(",\n")) + "\n)")
                         .collect(Collectors.joining(",\n"))
                 + """
             );
+
+            public static final List<RuntimeMigration> sortedMigrations = migrationLevels.stream()
+                .flatMap(List::stream)
+                .toList();
         }
         """;
 
@@ -333,8 +332,8 @@ public class DependencyResolution {
         return true;
     }
 
-    private List<ComptimeMigration> buildMigrationExecutionPlan(Map<Integer, List<ComptimeMigration>> migrationsByOrderMap) {
-        List<ComptimeMigration> sortedMigrations = new ArrayList<>(migrationsByOrderMap.size());
+    private List<List<ComptimeMigration>> buildMigrationExecutionPlan(Map<Integer, List<ComptimeMigration>> migrationsByOrderMap) {
+        List<List<ComptimeMigration>> migrationLevels = new ArrayList<>(migrationsByOrderMap.size());
 
         List<Map.Entry<Integer, List<ComptimeMigration>>> migrationEntriesSortedByMigrationOrder = migrationsByOrderMap
                 .entrySet()
@@ -343,40 +342,43 @@ public class DependencyResolution {
                 .toList();
 
         for (Map.Entry<Integer, List<ComptimeMigration>> entry : migrationEntriesSortedByMigrationOrder) {
-            List<ComptimeMigration> sortedSameOrderMigrations = buildMigrationExecutionPlan(
+            // Levels never span several migration orders
+            List<List<ComptimeMigration>> sameOrderMigrationLevels = buildMigrationExecutionPlan(
                     entry.getValue()
             );
-            if (sortedSameOrderMigrations == null) {
+            if (sameOrderMigrationLevels == null) {
                 processingEnv.getMessager().printMessage(
                         Diagnostic.Kind.ERROR,
                         "Stopped building migration execution plan earlier.\nNO MIGRATIONS' ORDER OF EXECUTION ESTABLISHED"
                 );
                 return null;
             }
-            sortedMigrations.addAll(
-                    sortedSameOrderMigrations
+            migrationLevels.addAll(
+                    sameOrderMigrationLevels
             );
 
             AtomicInteger counter = new AtomicInteger(0);
             processingEnv.getMessager().printMessage(
                 Diagnostic.Kind.NOTE,
-                "MIGRATIONS' ORDER OF EXECUTION:\n        "
+                "MIGRATIONS' ORDER OF EXECUTION (migrations of the same level may run concurrently):\n        "
                     + String.join(
                     ",\n        ",
-                    sortedMigrations.stream().map(
-                        comptimeMigration -> {
-                            return counter.incrementAndGet() + ". "
-                                + comptimeMigration.getPMigration().getFQCN();
+                    migrationLevels.stream().map(
+                        level -> {
+                            return "Level " + counter.incrementAndGet() + ": "
+                                + level.stream()
+                                    .map(comptimeMigration -> comptimeMigration.getPMigration().getFQCN())
+                                    .collect(Collectors.joining(", "));
                         }
                     ).toList()
                 )
             );
         }
 
-        return sortedMigrations;
+        return migrationLevels;
     }
 
-    private List<ComptimeMigration> buildMigrationExecutionPlan(List<ComptimeMigration> migrations) {
+    private List<List<ComptimeMigration>> buildMigrationExecutionPlan(List<ComptimeMigration> migrations) {
         Map<SuperEdge<String>, ComptimeMigration> edgeToMigrationMap = new HashMap<>();
 
         List<SuperEdge<String>> allEdges = migrations.stream().map(
@@ -398,10 +400,10 @@ public class DependencyResolution {
                 }
         ).toList();
 
-        List<SuperEdge<String>> sortedEdges;
+        List<List<SuperEdge<String>>> edgeLevels;
         try {
             SuperTopoSort<String> sorter = new SuperTopoSort<>(allEdges);
-            sortedEdges = sorter.toSorted();
+            edgeLevels = sorter.toLevels();
         } catch (IllegalArgumentException e) {
             processingEnv.getMessager().printMessage(
                     Diagnostic.Kind.ERROR,
@@ -428,11 +430,13 @@ public class DependencyResolution {
             return null;
         }
 
-        List<ComptimeMigration> sortedMigrations = sortedEdges.stream().map(
-                e -> edgeToMigrationMap.getOrDefault(e, null)
+        List<List<ComptimeMigration>> migrationLevels = edgeLevels.stream().map(
+                level -> level.stream().map(
+                        e -> edgeToMigrationMap.getOrDefault(e, null)
+                ).toList()
         ).toList();
 
-        if (sortedMigrations.stream().anyMatch(Objects::isNull)) {
+        if (migrationLevels.stream().flatMap(List::stream).anyMatch(Objects::isNull)) {
             processingEnv.getMessager().printMessage(
                     Diagnostic.Kind.ERROR,
                     "Could not remap sorted migrations. This is an internal error, not your fault."
@@ -440,6 +444,6 @@ public class DependencyResolution {
             return null;
         }
 
-        return sortedMigrations;
+        return migrationLevels;
     }
 }
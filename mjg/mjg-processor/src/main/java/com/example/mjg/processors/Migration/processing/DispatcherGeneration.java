@@ -0,0 +1,246 @@
+package com.example.mjg.processors.Migration.processing;
+
+import com.example.mjg.data.DataFilterSet;
+import com.example.mjg.data.DataStore;
+import com.example.mjg.data.MigratableEntity;
+import com.example.mjg.exceptions.DuplicateDataException;
+import com.example.mjg.processors.Migration.ComptimeMigration;
+import com.example.mjg.processors.Migration.MigrationDispatcher;
+import com.example.mjg.processors.Migration.MigrationDispatcherLocation;
+import com.example.mjg.storage.DataStoreRegistry;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Generates the {@link MigrationDispatcher} of a migration class,
+ * from the methods found by {@link MethodsValidation}.
+ *
+ * Every argument is cast to the erasure of the parameter type,
+ * which is always valid source code, even with generics.
+ */
+public class DispatcherGeneration {
+    private final ProcessingEnvironment processingEnv;
+    private final ComptimeMigration comptimeMigration;
+    private final Map<String, ExecutableType> foundMethodsByName;
+
+    private final Elements elementUtils;
+    private final Types typeUtils;
+
+    public DispatcherGeneration(
+        ProcessingEnvironment processingEnv,
+        ComptimeMigration comptimeMigration,
+        Map<String, ExecutableType> foundMethodsByName
+    ) {
+        this.processingEnv = processingEnv;
+        this.comptimeMigration = comptimeMigration;
+        this.foundMethodsByName = foundMethodsByName;
+
+        this.elementUtils = processingEnv.getElementUtils();
+        this.typeUtils = processingEnv.getTypeUtils();
+    }
+
+    public boolean generate() {
+        TypeElement migrationClass = comptimeMigration.getMigrationClass();
+        if (!isAccessibleFromItsPackage(migrationClass)) {
+            // The runtime falls back to reflection
+            processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.NOTE,
+                "No dispatcher generated for private migration class: " + migrationClass.getQualifiedName()
+            );
+            return true;
+        }
+
+        String packageName = elementUtils.getPackageOf(migrationClass).getQualifiedName().toString();
+        String fqcn = MigrationDispatcherLocation.fqcnOf(packageName, migrationClass.getQualifiedName().toString());
+        String className = fqcn.substring(fqcn.lastIndexOf('.') + 1);
+
+        List<String> storeNames = comptimeMigration.getMatchingDataStoreFQCNs()
+            .stream()
+            .map(storeFQCN -> storeFQCN.substring(storeFQCN.lastIndexOf('.') + 1))
+            .toList();
+
+        String source;
+        try {
+            source = source(packageName, className, migrationClass, storeNames);
+        } catch (IllegalStateException e) {
+            // Rather than generating code that fails at runtime
+            processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR,
+                e.getMessage(),
+                migrationClass
+            );
+            return false;
+        }
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(fqcn, migrationClass);
+
+            try (Writer writer = file.openWriter()) {
+                writer.write(source);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR,
+                "Could not create source file: "
+                    + fqcn
+                    + "\n\nOriginal exception:"
+                    + e.getMessage()
+            );
+            return false;
+        }
+        return true;
+    }
+
+    private String source(String packageName, String className, TypeElement migrationClass, List<String> storeNames) {
+        return (packageName.isEmpty() ? "" : "package " + packageName + ";\n\n")
+            + "@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n"
+            + "public final class " + className + " implements " + MigrationDispatcher.class.getCanonicalName() + " {\n"
+            + "    private final " + migrationClass.getQualifiedName() + " migration;\n\n"
+            + "    public " + className + "(Object migration) {\n"
+            + "        this.migration = (" + migrationClass.getQualifiedName() + ") migration;\n"
+            + "    }\n\n"
+
+            + method(
+                "void startReduction(" + MigratableEntity.class.getCanonicalName() + " record, java.util.Map<String, Object> aggregates)",
+                call("startReduction", false, "record", "aggregates")
+            )
+
+            + method(
+                DataFilterSet.class.getCanonicalName() + " matchWith(String storeName, "
+                    + MigratableEntity.class.getCanonicalName() + " record, java.util.Map<String, Object> aggregates, "
+                    + DataStore.class.getCanonicalName() + "<?, ?, ?> store)",
+                switchOnStoreName(storeNames, "matchWith", "", true, "record", "aggregates", "store")
+            )
+
+            + method(
+                "Object matchingKeyFor(String storeName, "
+                    + MigratableEntity.class.getCanonicalName() + " record, java.util.Map<String, Object> aggregates)",
+                switchOnStoreName(storeNames, "matchingKeyFor", "", true, "record", "aggregates")
+            )
+
+            + method(
+                "Object matchedKeyFrom(String storeName, " + MigratableEntity.class.getCanonicalName() + " matchedRecord)",
+                switchOnStoreName(storeNames, "matchedKeyFrom", "", true, "matchedRecord")
+            )
+
+            + method(
+                DataFilterSet.class.getCanonicalName() + " matchWithByKeys(String storeName, java.util.Set<Object> keys, "
+                    + DataStore.class.getCanonicalName() + "<?, ?, ?> store)",
+                switchOnStoreName(storeNames, "matchWith", "ByKeys", true, "keys", "store")
+            )
+
+            + method(
+                "void reduceFrom(String storeName, java.util.Map<String, Object> aggregates, java.util.List<"
+                    + MigratableEntity.class.getCanonicalName() + "> matchingRecords)",
+                switchOnStoreName(storeNames, "reduceFrom", "", false, "aggregates", "matchingRecords")
+            )
+
+            + method(
+                "java.util.List<?> transform(java.util.Map<String, Object> aggregates, "
+                    + MigratableEntity.class.getCanonicalName() + " record)",
+                call("transform", true, "aggregates", "record")
+            )
+
+            + method(
+                "java.util.List<?> handleDuplicate("
+                    + DuplicateDataException.class.getCanonicalName() + " exception, "
+                    + MigratableEntity.class.getCanonicalName() + " inputRecord, "
+                    + "java.util.List<" + MigratableEntity.class.getCanonicalName() + "> outputRecords, "
+                    + DataStore.class.getCanonicalName() + "<?, ?, ?> inputStore, "
+                    + DataStore.class.getCanonicalName() + "<?, ?, ?> outputStore, "
+                    + DataStoreRegistry.class.getCanonicalName() + " dataStoreRegistry)",
+                call(
+                    "handleDuplicate", true,
+                    "exception", "inputRecord", "outputRecords", "inputStore", "outputStore", "dataStoreRegistry"
+                )
+            )
+            + "}\n";
+    }
+
+    private static String method(String signature, String body) {
+        return "    @Override\n"
+            + "    public " + signature + " throws Exception {\n"
+            + body
+            + "    }\n\n";
+    }
+
+    /**
+     * @param returnsValue whether the dispatcher method returns
+     *                     the value of the migration method
+     * @throws IllegalStateException if the method was not found
+     */
+    private String call(String methodName, boolean returnsValue, String... args) {
+        ExecutableType method = foundMethodsByName.get(methodName);
+        if (method == null) {
+            throw new IllegalStateException(
+                "Could not generate dispatcher, method not found: " + methodName
+                    + " in " + comptimeMigration.getMigrationClass().getQualifiedName()
+            );
+        }
+
+        List<? extends TypeMirror> parameterTypes = method.getParameterTypes();
+        List<String> castArgs = new ArrayList<>(args.length);
+        for (int i = 0; i < args.length; i++) {
+            castArgs.add("(" + typeUtils.erasure(parameterTypes.get(i)) + ") (Object) " + args[i]);
+        }
+        String invocation = "migration." + methodName + "(" + String.join(", ", castArgs) + ")";
+
+        if (!returnsValue) {
+            return "        " + invocation + ";\n";
+        }
+        if (method.getReturnType().getKind() == TypeKind.VOID) {
+            return "        " + invocation + ";\n"
+                + "        return null;\n";
+        }
+        return "        return " + invocation + ";\n";
+    }
+
+    private String switchOnStoreName(
+        List<String> storeNames,
+        String methodNamePrefix,
+        String methodNameSuffix,
+        boolean returnsValue,
+        String... args
+    ) {
+        String cases = storeNames.stream()
+            .filter(storeName -> foundMethodsByName.containsKey(methodNamePrefix + storeName + methodNameSuffix))
+            .map(storeName -> "            case \"" + storeName + "\": {\n"
+                + call(methodNamePrefix + storeName + methodNameSuffix, returnsValue, args).indent(8)
+                + (returnsValue ? "" : "                return;\n")
+                + "            }\n")
+            .collect(Collectors.joining());
+
+        return "        switch (storeName) {\n"
+            + cases
+            + "            default:\n"
+            + "                throw new IllegalArgumentException(\"No " + methodNamePrefix + "..." + methodNameSuffix
+            + " method for store: \" + storeName);\n"
+            + "        }\n";
+    }
+
+    private static boolean isAccessibleFromItsPackage(TypeElement migrationClass) {
+        for (Element element = migrationClass; element.getKind() != ElementKind.PACKAGE; element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
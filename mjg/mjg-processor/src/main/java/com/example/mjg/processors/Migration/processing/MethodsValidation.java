@@ -1,5 +1,6 @@
 package com.example.mjg.processors.Migration.processing;
 
+import com.example.mjg.config.LookupMode;
 import com.example.mjg.exceptions.DuplicateDataException;
 import com.example.mjg.processors.ComptimeUtils;
 import com.example.mjg.processors.MethodPrototype;
@@ -42,6 +43,13 @@ public class MethodsValidation {
     private final Elements elementUtils;
     private final Types typeUtils;
 
+    /**
+     * Required methods found by {@link #validate()}, by name,
+     * as members of the migration class.
+     */
+    @Getter
+    private final Map<String, ExecutableType> foundMethodsByName = new HashMap<>();
+
     public MethodsValidation(ProcessingEnvironment processingEnv, ComptimeMigration comptimeMigration) {
         this.processingEnv = processingEnv;
         this.comptimeMigration = comptimeMigration;
@@ -148,6 +156,7 @@ public class MethodsValidation {
                         resolvedMethod
                     )) {
                         remainingMethodPrototypes.remove(matchingPrototype);
+                        foundMethodsByName.put(name, resolvedMethod);
                     }
                 }
             }
@@ -167,15 +176,66 @@ public class MethodsValidation {
     }
 
     private List<MethodPrototype> getMatchingAndReductionMethodPrototypes() {
-        return matchingStoreFQCNs
+        return comptimeMigration.getPMatchWiths()
             .stream()
-            .map((fqcn) -> {
+            .map((pMatchWith) -> {
+                String fqcn = pMatchWith.getFQCN();
+                Object lookup = pMatchWith.getAnnotationValues().get("lookup");
+                // BROADCAST falls back to BATCHED, so needs the same methods
+                boolean batched = LookupMode.BATCHED.name().equals(lookup) || LookupMode.BROADCAST.name().equals(lookup);
+
                 TypeMirror storeType = elementUtils.getTypeElement(fqcn).asType();
                 var temp = ComptimeUtils.getDataStoreTypeArguments(elementUtils, typeUtils, storeType);
                 TypeMirror storeEntityType = temp.get(0);
                 TypeMirror storeFilterSetType = temp.get(2);
 
                 String storeName = fqcn.substring(fqcn.lastIndexOf('.') + 1);
+
+                if (batched) {
+                    return List.of(
+                        new MethodPrototype(
+                            // K matchingKeyFor...(Entity, Map<String, Object>);
+                            null,
+
+                            "matchingKeyFor" + storeName,
+
+                            List.of(
+                                inputEntityType,
+
+                                typeUtils.getDeclaredType(
+                                    elementUtils.getTypeElement("java.util.Map"),
+                                    elementUtils.getTypeElement("java.lang.String").asType(),
+                                    elementUtils.getTypeElement("java.lang.Object").asType()
+                                )
+                            )
+                        ),
+
+                        new MethodPrototype(
+                            // K matchedKeyFrom...(StoreEntity);
+                            null,
+
+                            "matchedKeyFrom" + storeName,
+
+                            List.of(storeEntityType)
+                        ),
+
+                        new MethodPrototype(
+                            // F matchWith...ByKeys(Set<K>, DataStore);
+                            storeFilterSetType,
+
+                            "matchWith" + storeName + "ByKeys",
+
+                            List.of(
+                                typeUtils.getDeclaredType(elementUtils.getTypeElement("java.util.Set")),
+
+                                storeType
+                            )
+                        ),
+
+                        getReduceMethodPrototype(storeName, storeEntityType)
+                    );
+                }
+
                 return List.of(
                     new MethodPrototype(
                         // F matchWith...(Entity, Map<String, Object>, DataStore);
@@ -196,31 +256,35 @@ public class MethodsValidation {
                         )
                     ),
 
-                    new MethodPrototype(
-                        // void reduceFrom...(Map<String, Object>, List<Entity>)
-                        typeUtils.getNoType(TypeKind.VOID),
-
-                        "reduceFrom" + storeName,
-
-                        List.of(
-                            typeUtils.getDeclaredType(
-                                elementUtils.getTypeElement("java.util.Map"),
-                                elementUtils.getTypeElement("java.lang.String").asType(),
-                                elementUtils.getTypeElement("java.lang.Object").asType()
-                            ),
-
-                            typeUtils.getDeclaredType(
-                                elementUtils.getTypeElement("java.util.List"),
-                                storeEntityType
-                            )
-                        )
-                    )
+                    getReduceMethodPrototype(storeName, storeEntityType)
                 );
             })
             .flatMap(List::stream)
             .toList();
     }
 
+    private MethodPrototype getReduceMethodPrototype(String storeName, TypeMirror storeEntityType) {
+        return new MethodPrototype(
+            // void reduceFrom...(Map<String, Object>, List<Entity>)
+            typeUtils.getNoType(TypeKind.VOID),
+
+            "reduceFrom" + storeName,
+
+            List.of(
+                typeUtils.getDeclaredType(
+                    elementUtils.getTypeElement("java.util.Map"),
+                    elementUtils.getTypeElement("java.lang.String").asType(),
+                    elementUtils.getTypeElement("java.lang.Object").asType()
+                ),
+
+                typeUtils.getDeclaredType(
+                    elementUtils.getTypeElement("java.util.List"),
+                    storeEntityType
+                )
+            )
+        );
+    }
+
     private List<MethodPrototype> getStartReductionAndTransformMethodPrototypes() {
         return List.of(
             new MethodPrototype(
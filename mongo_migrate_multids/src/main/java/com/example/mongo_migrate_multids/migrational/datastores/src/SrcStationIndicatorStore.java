@@ -23,4 +23,16 @@ public class SrcStationIndicatorStore extends BaseStationIndicatorStore {
     @Getter
     @Nullable
     private final MongoTransactionManager txManager;
+
+    // Bảng lớn nhất, phân trang theo _id thay vì skip
+    @Override
+    protected boolean isKeysetPaginationEnabled() {
+        return true;
+    }
+
+    // Quét toàn bảng bằng một cursor duy nhất (vẫn theo _id)
+    @Override
+    protected boolean isCursorScanEnabled() {
+        return true;
+    }
 }
@@ -6,8 +6,10 @@ import com.example.mjg.annotations.Migration;
 import com.example.mjg.annotations.TransformAndSaveTo;
 import com.example.mjg.config.Cardinality;
 import com.example.mjg.config.ErrorResolution;
+import com.example.mjg.config.LookupMode;
 import com.example.mjg.exceptions.DuplicateDataException;
 import com.example.mjg.spring.filtering.SpringRepositoryFilterSet;
+import com.example.mjg.spring.mongo.filtering.MongoCriteriaFilterSet;
 import com.example.mjg.storage.DataStoreRegistry;
 import com.example.mongo_migrate_multids.entity.IndicatorEntity;
 import com.example.mongo_migrate_multids.entity.StationEntity;
@@ -20,13 +22,16 @@ import com.example.mongo_migrate_multids.migrational.datastores.src.SrcIndicator
 import com.example.mongo_migrate_multids.migrational.datastores.src.SrcStationIndicatorStore;
 import com.example.mongo_migrate_multids.migrational.datastores.src.SrcStationStore;
 import com.example.mongo_migrate_multids.repository.dest.DestIndicatorRepository;
-import com.example.mongo_migrate_multids.repository.dest.DestStationRepository;
+
+import org.springframework.data.mongodb.core.query.Criteria;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
-@Migration
+// các hàm chỉ dùng aggregates của từng bản ghi => gọi song song được
+@Migration(threadSafe = true)
 @ForEachRecordFrom(
     value = SrcStationIndicatorStore.class,
     inCaseOfError = @ErrorResolution(retryTimes = 3, retryDelayInSeconds = 2)
@@ -35,6 +40,9 @@ import java.util.Set;
     // lấy station code từ station id cũ
     value = SrcStationStore.class,
     inCaseOfError = @ErrorResolution(retryTimes = 3, retryDelayInSeconds = 2),
+    lookup = LookupMode.BATCHED,
+    // chỉ cần stationCode (và _id)
+    fields = { "stationCode" },
     order = 0,
     cardinality = Cardinality.ZERO_OR_ONE
 )
@@ -42,6 +50,10 @@ import java.util.Set;
     // lấy indicator code từ indicator id cũ
     value = SrcIndicatorStore.class,
     inCaseOfError = @ErrorResolution(retryTimes = 3, retryDelayInSeconds = 2),
+    // danh mục indicator nhỏ, nạp sẵn toàn bộ vào bộ nhớ
+    lookup = LookupMode.BROADCAST,
+    broadcastMaxRecords = 50_000,
+    fields = { "indicator", "indicatorType" },
     order = 0,
     cardinality = Cardinality.ZERO_OR_ONE
 )
@@ -49,6 +61,8 @@ import java.util.Set;
     // tra station code lấy được station id mới
     value = DestStationStore.class,
     inCaseOfError = @ErrorResolution(retryTimes = 3, retryDelayInSeconds = 2),
+    lookup = LookupMode.BATCHED,
+    fields = { "stationCode", "stationName", "stationType" },
     order = 1,
     cardinality = Cardinality.ZERO_OR_ONE
 )
@@ -56,6 +70,11 @@ import java.util.Set;
     // tra indicator code lấy được indicator id mới
     value = DestIndicatorStore.class,
     inCaseOfError = @ErrorResolution(retryTimes = 3, retryDelayInSeconds = 2),
+    // danh mục indicator nhỏ, nạp sẵn toàn bộ vào bộ nhớ
+    lookup = LookupMode.BROADCAST,
+    broadcastMaxRecords = 50_000,
+    // cần indicator, indicatorType để làm key, và _id
+    fields = { "indicator", "indicatorType" },
     order = 1,
     cardinality = Cardinality.ZERO_OR_ONE
 )
@@ -82,20 +101,26 @@ public class MigrateStationIndicatorsToTW {
 
     // lấy station code từ station id cũ,
     // tức là phải lấy được station ra trước
-    public SpringRepositoryFilterSet<StationEntity, String> matchWithSrcStationStore(
+    public String matchingKeyForSrcStationStore(
         StationIndicatorEntity stationIndicator,
-        Map<String, Object> aggregates,
-        SrcStationStore srcStationStore
+        Map<String, Object> aggregates
     ) {
         String oldStationId = stationIndicator.getStationId();
         if (oldStationId == null || oldStationId.isEmpty()) {
             // Không gọi repo filter, và cũng không gọi reduce... ở dưới
             return null;
         }
-
-        return SpringRepositoryFilterSet.findAllByIdIn(
-            Set.of(ObjectIdHelpers.convertLargeIntegerToStringId(oldStationId))
-        );
+        return ObjectIdHelpers.convertLargeIntegerToStringId(oldStationId);
+    }
+    public String matchedKeyFromSrcStationStore(StationEntity srcStation) {
+        return srcStation.getId();
+    }
+    public SpringRepositoryFilterSet<StationEntity, String> matchWithSrcStationStoreByKeys(
+        Set<String> stationIds,
+        SrcStationStore srcStationStore
+    ) {
+        // một query cho cả page, chỉ đọc các field cần thiết
+        return MongoCriteriaFilterSet.byIdIn(stationIds);
     }
     public void reduceFromSrcStationStore(
         Map<String, Object> aggregates,
@@ -108,19 +133,25 @@ public class MigrateStationIndicatorsToTW {
 
     // lấy indicator code từ indicator id cũ,
     // tức là phải lấy được các IndicatorEntity cũ đó trước
-    public SpringRepositoryFilterSet<IndicatorEntity, String> matchWithSrcIndicatorStore(
+    public String matchingKeyForSrcIndicatorStore(
         StationIndicatorEntity stationIndicator,
-        Map<String, Object> aggregates,
-        SrcIndicatorStore srcIndicatorStore
+        Map<String, Object> aggregates
     ) {
         String oldIndicatorId = stationIndicator.getIndicatorId();
         if (oldIndicatorId == null || oldIndicatorId.isEmpty()) {
             // Không gọi repo filter, và cũng không gọi reduce... ỏ dưới
             return null;
         }
-        return SpringRepositoryFilterSet.findAllByIdIn(
-            Set.of(ObjectIdHelpers.convertLargeIntegerToStringId(oldIndicatorId))
-        );
+        return ObjectIdHelpers.convertLargeIntegerToStringId(oldIndicatorId);
+    }
+    public String matchedKeyFromSrcIndicatorStore(IndicatorEntity srcIndicator) {
+        return srcIndicator.getId();
+    }
+    public SpringRepositoryFilterSet<IndicatorEntity, String> matchWithSrcIndicatorStoreByKeys(
+        Set<String> indicatorIds,
+        SrcIndicatorStore srcIndicatorStore
+    ) {
+        return SpringRepositoryFilterSet.findAllByIdIn(indicatorIds);
     }
     public void reduceFromSrcIndicatorStore(
         Map<String, Object> aggregates,
@@ -138,19 +169,26 @@ public class MigrateStationIndicatorsToTW {
 
 
     // tra station code lấy được station id mới
-    public SpringRepositoryFilterSet<StationEntity, String> matchWithDestStationStore(
+    public String matchingKeyForDestStationStore(
         StationIndicatorEntity stationIndicator,
-        Map<String, Object> aggregates,
-        DestStationStore destStationStore
+        Map<String, Object> aggregates
     ) {
         String stationCode = (String) aggregates.get("stationCode");
         if (stationCode == null || stationCode.isEmpty()) {
             // Không có stationCode, không tra được station id mới...
             return null;
         }
-        return SpringRepositoryFilterSet.of(
-            DestStationRepository::findAllByStationCodeIn,
-            Set.of(stationCode)
+        return stationCode;
+    }
+    public String matchedKeyFromDestStationStore(StationEntity destStation) {
+        return destStation.getStationCode();
+    }
+    public SpringRepositoryFilterSet<StationEntity, String> matchWithDestStationStoreByKeys(
+        Set<String> stationCodes,
+        DestStationStore destStationStore
+    ) {
+        return MongoCriteriaFilterSet.of(
+            Criteria.where("stationCode").in(stationCodes)
         );
     }
     public void reduceFromDestStationStore(
@@ -167,10 +205,11 @@ public class MigrateStationIndicatorsToTW {
 
 
     // tra indicator code lấy được indicator id mới
-    public SpringRepositoryFilterSet<IndicatorEntity, String> matchWithDestIndicatorStore(
+    public record IndicatorKey(String indicatorCode, Integer indicatorType) {}
+
+    public IndicatorKey matchingKeyForDestIndicatorStore(
         StationIndicatorEntity stationIndicator,
-        Map<String, Object> aggregates,
-        DestIndicatorStore destIndicatorStore
+        Map<String, Object> aggregates
     ) {
         String indicatorCode = (String) aggregates.get("indicatorCode");
         Integer indicatorType = (Integer) aggregates.get("indicatorType");
@@ -178,11 +217,21 @@ public class MigrateStationIndicatorsToTW {
             // Không có indicatorCode, nên không tra được indicator id mới...
             return null;
         }
-
+        return new IndicatorKey(indicatorCode, indicatorType);
+    }
+    public IndicatorKey matchedKeyFromDestIndicatorStore(IndicatorEntity destIndicator) {
+        return new IndicatorKey(destIndicator.getIndicator(), destIndicator.getIndicatorType());
+    }
+    public SpringRepositoryFilterSet<IndicatorEntity, String> matchWithDestIndicatorStoreByKeys(
+        Set<IndicatorKey> indicatorKeys,
+        DestIndicatorStore destIndicatorStore
+    ) {
+        // (code IN ...) AND (type IN ...) có thể trả về nhiều hơn cần,
+        // engine sẽ lọc lại theo IndicatorKey
         return SpringRepositoryFilterSet.of(
             DestIndicatorRepository::findAllByIndicatorInAndIndicatorTypeIn,
-            Set.of(indicatorCode),
-            Set.of(indicatorType)
+            indicatorKeys.stream().map(IndicatorKey::indicatorCode).collect(Collectors.toSet()),
+            indicatorKeys.stream().map(IndicatorKey::indicatorType).collect(Collectors.toSet())
         );
     }
     public void reduceFromDestIndicatorStore(
@@ -20,7 +20,8 @@ import com.example.mongo_migrate_multids.migrational.datastores.src.SrcAreaStore
 import com.example.mongo_migrate_multids.migrational.datastores.src.SrcStationStore;
 import com.example.mongo_migrate_multids.repository.dest.DestAreaRepository;
 
-@Migration
+// không có trạng thái dùng chung, chỉ đổi ObjectId <-> BigInteger => chạy song song theo bản ghi
+@Migration(threadSafe = true)
 @ForEachRecordFrom(
     value = SrcStationStore.class,
     batchSize = 512,
@@ -29,12 +30,20 @@ import com.example.mongo_migrate_multids.repository.dest.DestAreaRepository;
 @MatchWith(
     value = SrcAreaStore.class,
     batchSize = 8,
+    // ít khu vực, nhiều trạm dùng chung => cache
+    cacheMaxEntries = 1024,
+    // mỗi trạm một tập khu vực riêng => truy vấn song song
+    maxConcurrentQueries = 16,
     cardinality = Cardinality.ZERO_OR_MORE,
     order = 0
 )
 @MatchWith(
     value = DestAreaStore.class,
     batchSize = 8,
+    // ít khu vực, nhiều trạm dùng chung => cache
+    cacheMaxEntries = 1024,
+    // mỗi trạm một tập khu vực riêng => truy vấn song song
+    maxConcurrentQueries = 16,
     cardinality = Cardinality.ZERO_OR_MORE,
     order = 1
 )
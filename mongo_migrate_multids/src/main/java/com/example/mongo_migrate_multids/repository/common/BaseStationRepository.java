@@ -3,11 +3,11 @@ package com.example.mongo_migrate_multids.repository.common;
 import java.util.Collection;
 
 import com.example.mjg.spring.mongo.repositories.MigratableMongoRepository;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import com.example.mongo_migrate_multids.entity.StationEntity;
 import org.springframework.data.domain.Pageable;
 
 public interface BaseStationRepository extends MigratableMongoRepository<StationEntity, String> {
-    Page<StationEntity> findAllByStationCodeIn(Collection<String> stationCodes, Pageable pageable);
+    Slice<StationEntity> findAllByStationCodeIn(Collection<String> stationCodes, Pageable pageable);
 }
@@ -7,6 +7,7 @@ import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 
+import com.example.mjg.algorithms.store_guard.StoreGuardConfig;
 import com.example.mjg.storage.DataStoreRegistry;
 import com.example.mongo_migrate_multids.migrational.datastores.dest.DestAreaStore;
 import com.example.mongo_migrate_multids.migrational.datastores.dest.DestIndicatorStore;
@@ -49,8 +50,14 @@ public class MigrateToTWService {
         dataStoreRegistry.set(SrcStationStore.class, srcStationStore);
         dataStoreRegistry.set(DestStationStore.class, destStationStore);
 
+        // Khi Mongo đích bị quá tải thì tạm dừng thay vì retry liên tục
+        dataStoreRegistry.setStoreGuardConfig(new StoreGuardConfig());
+
         migrationService = new MigrationService(dataStoreRegistry);
 
+        // area và indicator không phụ thuộc nhau, chạy song song được
+        migrationService.setMaxConcurrentMigrations(2);
+
         migrationService.removeAllProgressPersistenceCallbacks();
 
         migrationService.addProgressPersistenceCallback(MigrateToTWService::saveMigrationProgress);